@@ -19,7 +19,6 @@ public class NetworkAdapter {
 
     private final RailsRoot root;
     
-    private NetworkGraph mapGraph;
     private NetworkGraph routeGraph;
     private NetworkGraph revenueGraph;
     private NetworkMultigraph multiGraph;
@@ -36,26 +35,27 @@ public class NetworkAdapter {
     }
     
     public NetworkGraph getMapGraph() {
-        mapGraph = NetworkGraph.createMapGraph(root);
-        log.info("MapGraph created");
+        NetworkGraph mapGraph = root.getMapManager().getNetworkMapGraph().createMapGraph();
+        log.debug("MapGraph created");
         return mapGraph;
     }
         
+    /**
+     * @return route graph of the company, this is shared and must not be changed
+     */
     public NetworkGraph getRouteGraph(PublicCompany company, boolean addHQ) {
-        routeGraph = NetworkGraph.createRouteGraph(getMapGraph(), company, addHQ);
-        this.company = company;
-        this.addHQ = addHQ;
-        log.info("RouteGraph created");
-        return routeGraph;
+        return root.getMapManager().getNetworkMapGraph().getRouteGraph(company, addHQ);
     }
     
+    /**
+     * @return copy of the route graph of the company, which is kept for the revenue and multi graph
+     */
     public NetworkGraph getRouteGraphCached(PublicCompany company, boolean addHQ) {
         if (routeGraph == null || company != this.company || addHQ != this.addHQ) {
-            if (mapGraph != null) {
-                routeGraph = NetworkGraph.createRouteGraph(mapGraph, company, addHQ);
-            } else {
-                getRouteGraph(company, addHQ);
-            }
+            routeGraph = getRouteGraph(company, addHQ).copyGraph();
+            this.company = company;
+            this.addHQ = addHQ;
+            log.debug("RouteGraph created");
         }
         return routeGraph;
     }
@@ -55,19 +55,74 @@ public class NetworkGraph {
     protected static Logger log =
             LoggerFactory.getLogger(NetworkGraph.class);
 
-    private final SimpleGraph<NetworkVertex, NetworkEdge> graph;
+    /**
+     * SimpleGraph that rejects all changes of its structure after it is frozen
+     */
+    private static final class FreezableGraph extends SimpleGraph<NetworkVertex, NetworkEdge> {
+        private static final long serialVersionUID = 1L;
+
+        private boolean frozen = false;
+
+        private FreezableGraph() {
+            super(NetworkEdge.class);
+        }
+
+        private void checkNotFrozen() {
+            if (frozen) {
+                throw new UnsupportedOperationException("Shared network graph cannot be changed");
+            }
+        }
+
+        @Override
+        public NetworkEdge addEdge(NetworkVertex source, NetworkVertex target) {
+            checkNotFrozen();
+            return super.addEdge(source, target);
+        }
+
+        @Override
+        public boolean addEdge(NetworkVertex source, NetworkVertex target, NetworkEdge edge) {
+            checkNotFrozen();
+            return super.addEdge(source, target, edge);
+        }
+
+        @Override
+        public boolean addVertex(NetworkVertex vertex) {
+            checkNotFrozen();
+            return super.addVertex(vertex);
+        }
+
+        @Override
+        public NetworkEdge removeEdge(NetworkVertex source, NetworkVertex target) {
+            checkNotFrozen();
+            return super.removeEdge(source, target);
+        }
+
+        @Override
+        public boolean removeEdge(NetworkEdge edge) {
+            checkNotFrozen();
+            return super.removeEdge(edge);
+        }
+
+        @Override
+        public boolean removeVertex(NetworkVertex vertex) {
+            checkNotFrozen();
+            return super.removeVertex(vertex);
+        }
+    }
+
+    private final FreezableGraph graph;
 
     private final Map<String, NetworkVertex> vertices;
 
     private NetworkIterator iterator;
 
     private NetworkGraph() {
-        graph = new SimpleGraph<NetworkVertex, NetworkEdge>(NetworkEdge.class);
+        graph = new FreezableGraph();
         vertices = Maps.newHashMap();
     }
     
     private NetworkGraph(NetworkGraph inGraph) {
-        graph = new SimpleGraph<NetworkVertex, NetworkEdge>(NetworkEdge.class);
+        graph = new FreezableGraph();
         Graphs.addGraph(graph, inGraph.graph);
         vertices = Maps.newHashMap(inGraph.vertices);
     }
@@ -93,10 +148,59 @@ public class NetworkGraph {
         return newGraph;
     }
     
+    /**
+     * @return an empty graph, which is filled by {@link #updateHexes}
+     */
+    static NetworkGraph createEmptyGraph() {
+        return new NetworkGraph();
+    }
+
     public NetworkGraph cloneGraph() {
         return new NetworkGraph(this);
     }
+
+    /**
+     * @return a copy of the graph that does not share vertices and edges with this graph
+     */
+    NetworkGraph copyGraph() {
+        NetworkGraph newGraph = new NetworkGraph();
+        Map<NetworkVertex, NetworkVertex> copies = Maps.newHashMap();
+        for (NetworkVertex vertex:graph.vertexSet()) {
+            NetworkVertex copy = vertex.copy();
+            copies.put(vertex, copy);
+            newGraph.graph.addVertex(copy);
+            newGraph.vertices.put(copy.getIdentifier(), copy);
+        }
+        for (NetworkEdge edge:graph.edgeSet()) {
+            NetworkVertex source = copies.get(edge.getSource());
+            NetworkVertex target = copies.get(edge.getTarget());
+            List<NetworkVertex> hiddenVertices = new ArrayList<NetworkVertex>();
+            for (NetworkVertex hidden:edge.getHiddenVertices()) {
+                hiddenVertices.add(copies.containsKey(hidden) ? copies.get(hidden) : hidden);
+            }
+            newGraph.graph.addEdge(source, target, new NetworkEdge(source, target,
+                    edge.isGreedy(), edge.getDistance(), hiddenVertices));
+        }
+        return newGraph;
+    }
     
+    /**
+     * Prevents all further changes of the graph structure, as the graph is shared.
+     * Use {@link #copyGraph()} to get a graph that can be changed.
+     * @return this graph
+     */
+    NetworkGraph freeze() {
+        graph.frozen = true;
+        return this;
+    }
+
+    /**
+     * @return true if the graph structure cannot be changed
+     */
+    public boolean isFrozen() {
+        return graph.frozen;
+    }
+
     public SimpleGraph<NetworkVertex, NetworkEdge> getGraph() {
         return graph;
     }
@@ -203,102 +307,159 @@ public class NetworkGraph {
     private void generateMapGraph(RailsRoot root) {
         MapManager mapManager = root.getMapManager();
         RevenueManager revenueManager = root.getRevenueManager();
-        for (MapHex hex:mapManager.getHexes()) {
-            // get Tile
-            Tile tile = hex.getCurrentTile();
-            
-            // then get stations
-            Collection<Station> stations = tile.getStations(); 
-            // and add those to the mapGraph
-            for (Station station: stations) {
-                NetworkVertex stationVertex = new NetworkVertex(hex, station);
-                graph.addVertex(stationVertex);
-                vertices.put(stationVertex.getIdentifier(), stationVertex);
-                log.info("Added " + stationVertex);
-            }
-            
-            // get tracks per side to add that vertex
-            for (HexSide side:HexSide.all()) 
-                if (tile.hasTracks(side)) {
-                    HexSide rotated = side.rotate(hex.getCurrentTileRotation());
-                    NetworkVertex sideVertex = new NetworkVertex(hex, rotated); 
-                    graph.addVertex(sideVertex);
-                    vertices.put(sideVertex.getIdentifier(), sideVertex);
-                    log.info("Added " + sideVertex);
-                }
+
+        updateHexes(mapManager, mapManager.getHexes());
+        
+        // add graph modifiers
+        if (revenueManager != null) {
+            revenueManager.activateMapGraphModifiers(this);
+        }
+
+    }
+
+    /**
+     * (Re-)creates the track network of the hexes from their current tiles.
+     * This replaces the previous vertices and edges of those hexes
+     * and reconnects them to their neighbours.
+     * Graph modifiers are not applied.
+     */
+    void updateHexes(MapManager mapManager, Collection<MapHex> hexes) {
+        Set<MapHex> updatedHexes = ImmutableSet.copyOf(hexes);
+
+        removeHexes(updatedHexes);
+
+        for (MapHex hex:hexes) {
+            addHexVertices(hex);
         }
         
         // loop over all hex and add tracks
-        for (MapHex hex:mapManager.getHexes()) {
-            // get Tile
-            Tile tile = hex.getCurrentTile();
-            // get Tracks
-            Set<Track> tracks = tile.getTracks();
-
-            for (Track track:tracks) {
-                NetworkVertex startVertex = getVertexRotated(hex, track.getStart());
-                NetworkVertex endVertex = getVertexRotated(hex, track.getEnd());
-                log.info("Track: " + track);
-                NetworkEdge edge =  new NetworkEdge(startVertex, endVertex, false);
-                if (startVertex == endVertex) {
-                    log.error("Track " + track + " on hex " + hex + "has identical start/end");
-                } else {
-                    graph.addEdge(startVertex, endVertex, edge);
-                    log.info("Added non-greedy edge " + edge.getConnection());
-                }
-            }
+        for (MapHex hex:hexes) {
+            addHexTracks(hex);
+        }
 
-            // TODO: Rewrite this by employing the features of Trackpoint
-            // and connect to neighbouring hexes (for sides 0-2)
+        // connect to neighbouring hexes (for sides 0-2 of each hex)
+        for (MapHex hex:mapManager.getHexes()) {
             for (HexSide side:HexSide.head()) {
                 MapHex neighborHex = mapManager.getNeighbour(hex, side);
-                if (neighborHex == null) {
-                    log.info("No connection for Hex " + hex.getId() + " at "
-                            + hex.getOrientationName(side) + ", No Neighbor");
-                    continue;
+                if (updatedHexes.contains(hex) || updatedHexes.contains(neighborHex)) {
+                    connectHexSide(hex, side, neighborHex);
                 }
-                NetworkVertex vertex = getVertex(hex, side);
-                HexSide rotated = side.opposite();
-                NetworkVertex otherVertex = getVertex(neighborHex, rotated);
-                if (vertex == null && otherVertex == null){
-                    log.info("Hex " + hex.getId() + " has no track at "
-                            + hex.getOrientationName(side));
-                    log.info("And Hex " + neighborHex.getId() + " has no track at "
-                            + neighborHex.getOrientationName(rotated));
-                    continue;
-                }
-                else if (vertex == null && otherVertex != null) { 
-                    log.info("Deadend connection for Hex " + neighborHex.getId() + " at "
-                            + neighborHex.getOrientationName(rotated) + ", NeighborHex "
-                            + hex.getId() + " has no track at side " +
-                            hex.getOrientationName(side));
-                    vertex = new NetworkVertex(hex, side);
-                    graph.addVertex(vertex);
-                    vertices.put(vertex.getIdentifier(), vertex);
-                    log.info("Added deadend vertex " + vertex);
-                }
-                else if (otherVertex == null)  {
-                    log.info("Deadend connection for Hex " + hex.getId() + " at "
-                            + hex.getOrientationName(side) + ", NeighborHex "
-                            + neighborHex.getId() + " has no track at side " +
-                            neighborHex.getOrientationName(rotated));
-                    otherVertex = new NetworkVertex(neighborHex, rotated);
-                    graph.addVertex(otherVertex);
-                    vertices.put(otherVertex.getIdentifier(), otherVertex);
-                    log.info("Added deadend vertex " + otherVertex);
+            }
+        }
+    }
+
+    private void removeHexes(Set<MapHex> hexes) {
+        if (graph.vertexSet().isEmpty()) return;
+
+        Set<NetworkVertex> hexVertices = NetworkVertex.getVerticesByHexes(graph.vertexSet(), hexes);
+        // vertices on other hexes that are connected to the removed ones
+        Set<NetworkVertex> neighborVertices = new HashSet<NetworkVertex>();
+        for (NetworkVertex vertex:hexVertices) {
+            for (NetworkVertex neighbor:Graphs.neighborListOf(graph, vertex)) {
+                if (!hexes.contains(neighbor.getHex())) {
+                    neighborVertices.add(neighbor);
                 }
-                NetworkEdge edge =  new NetworkEdge(vertex, otherVertex, true);
-                graph.addEdge(vertex, otherVertex, 
-                        edge);
-                log.info("Added greedy edge " + edge.getConnection());
+            }
+            vertices.remove(vertex.getIdentifier());
+        }
+        graph.removeAllVertices(hexVertices);
+
+        // deadend vertices of neighbours only exist due to track on the removed hexes
+        for (NetworkVertex vertex:neighborVertices) {
+            if (vertex.isSide() && graph.edgesOf(vertex).isEmpty()) {
+                graph.removeVertex(vertex);
+                vertices.remove(vertex.getIdentifier());
+                log.debug("Removed deadend vertex " + vertex);
             }
         }
+    }
+
+    private void addHexVertices(MapHex hex) {
+        // get Tile
+        Tile tile = hex.getCurrentTile();
         
-        // add graph modifiers
-        if (revenueManager != null) {
-            revenueManager.activateMapGraphModifiers(this);
+        // then get stations
+        Collection<Station> stations = tile.getStations(); 
+        // and add those to the mapGraph
+        for (Station station: stations) {
+            NetworkVertex stationVertex = new NetworkVertex(hex, station);
+            graph.addVertex(stationVertex);
+            vertices.put(stationVertex.getIdentifier(), stationVertex);
+            log.debug("Added " + stationVertex);
         }
+        
+        // get tracks per side to add that vertex
+        for (HexSide side:HexSide.all()) 
+            if (tile.hasTracks(side)) {
+                HexSide rotated = side.rotate(hex.getCurrentTileRotation());
+                NetworkVertex sideVertex = new NetworkVertex(hex, rotated); 
+                graph.addVertex(sideVertex);
+                vertices.put(sideVertex.getIdentifier(), sideVertex);
+                log.debug("Added " + sideVertex);
+            }
+    }
+
+    private void addHexTracks(MapHex hex) {
+        // get Tile
+        Tile tile = hex.getCurrentTile();
+        // get Tracks
+        Set<Track> tracks = tile.getTracks();
+
+        for (Track track:tracks) {
+            NetworkVertex startVertex = getVertexRotated(hex, track.getStart());
+            NetworkVertex endVertex = getVertexRotated(hex, track.getEnd());
+            log.debug("Track: " + track);
+            NetworkEdge edge =  new NetworkEdge(startVertex, endVertex, false);
+            if (startVertex == endVertex) {
+                log.error("Track " + track + " on hex " + hex + "has identical start/end");
+            } else {
+                graph.addEdge(startVertex, endVertex, edge);
+                log.debug("Added non-greedy edge " + edge.getConnection());
+            }
+        }
+    }
 
+    // TODO: Rewrite this by employing the features of Trackpoint
+    private void connectHexSide(MapHex hex, HexSide side, MapHex neighborHex) {
+        if (neighborHex == null) {
+            log.debug("No connection for Hex " + hex.getId() + " at "
+                    + hex.getOrientationName(side) + ", No Neighbor");
+            return;
+        }
+        NetworkVertex vertex = getVertex(hex, side);
+        HexSide rotated = side.opposite();
+        NetworkVertex otherVertex = getVertex(neighborHex, rotated);
+        if (vertex == null && otherVertex == null){
+            log.debug("Hex " + hex.getId() + " has no track at "
+                    + hex.getOrientationName(side));
+            log.debug("And Hex " + neighborHex.getId() + " has no track at "
+                    + neighborHex.getOrientationName(rotated));
+            return;
+        }
+        else if (vertex == null && otherVertex != null) { 
+            log.debug("Deadend connection for Hex " + neighborHex.getId() + " at "
+                    + neighborHex.getOrientationName(rotated) + ", NeighborHex "
+                    + hex.getId() + " has no track at side " +
+                    hex.getOrientationName(side));
+            vertex = new NetworkVertex(hex, side);
+            graph.addVertex(vertex);
+            vertices.put(vertex.getIdentifier(), vertex);
+            log.debug("Added deadend vertex " + vertex);
+        }
+        else if (otherVertex == null)  {
+            log.debug("Deadend connection for Hex " + hex.getId() + " at "
+                    + hex.getOrientationName(side) + ", NeighborHex "
+                    + neighborHex.getId() + " has no track at side " +
+                    neighborHex.getOrientationName(rotated));
+            otherVertex = new NetworkVertex(neighborHex, rotated);
+            graph.addVertex(otherVertex);
+            vertices.put(otherVertex.getIdentifier(), otherVertex);
+            log.debug("Added deadend vertex " + otherVertex);
+        }
+        NetworkEdge edge =  new NetworkEdge(vertex, otherVertex, true);
+        graph.addEdge(vertex, otherVertex, 
+                edge);
+        log.debug("Added greedy edge " + edge.getConnection());
     }
 
     public void optimizeGraph() {
@@ -327,7 +488,7 @@ public class NetworkGraph {
             if ((source.isSide() && graph.edgesOf(source).size() == 2 || source.isStation()) &&
                     (target.isSide() && graph.edgesOf(target).size() == 2 || target.isStation())) {
                 edge.setGreedy(true);
-                log.info("Increased greedness for " + edge.getConnection());
+                log.debug("Increased greedness for " + edge.getConnection());
             }
         }
     }
@@ -347,7 +508,7 @@ public class NetworkGraph {
 
             // remove hermit
             if (vertexEdges.size() == 0) {
-                log.info("Remove hermit (no connection) = "  + vertex);
+                log.debug("Remove hermit (no connection) = "  + vertex);
                 graph.removeVertex(vertex);
                 removed = true;
             }
@@ -356,14 +517,14 @@ public class NetworkGraph {
             if (!vertex.isSide()) continue;
 
             if (vertexEdges.size() == 1) { 
-                log.info("Remove deadend side (single connection) = "  + vertex);
+                log.debug("Remove deadend side (single connection) = "  + vertex);
                 graph.removeVertex(vertex);
                 removed = true;
             } else if (vertexEdges.size() == 2) { // not necessary vertices 
                 NetworkEdge[] edges = vertexEdges.toArray(new NetworkEdge[2]);
                 if (edges[0].isGreedy() == edges[1].isGreedy()) {
                     if (!edges[0].isGreedy()) {
-                        log.info("Remove deadend side (no greedy connection) = "  + vertex);
+                        log.debug("Remove deadend side (no greedy connection) = "  + vertex);
                         // two non greedy edges indicate a deadend
                         graph.removeVertex(vertex);
                         removed = true;
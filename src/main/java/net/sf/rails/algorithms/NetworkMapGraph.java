@@ -0,0 +1,229 @@
+package net.sf.rails.algorithms;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.rails.game.HexSide;
+import net.sf.rails.game.MapHex;
+import net.sf.rails.game.MapManager;
+import net.sf.rails.game.Phase;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.Stop;
+import net.sf.rails.game.Tile;
+import net.sf.rails.game.state.Observable;
+import net.sf.rails.game.state.Observer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * NetworkMapGraph keeps the track network of the map between requests.
+ *
+ * Each hex is observed, thus the hexes changed by a tile lay (or its undo/redo)
+ * are known and only those are rebuilt, if their tile or rotation differs
+ * from the one used for the network.
+ * During a replay the observers are updated at its end only, thus all hexes are compared.
+ *
+ * The map graph with the graph modifiers applied and the route graphs are shared
+ * between requests. Those are frozen, thus cannot be changed, callers that require
+ * to change a graph use a copy (see {@link #createMapGraph()}).
+ *
+ * In addition it caches the most recently used route graphs.
+ * Those are identified by company, phase, map version, token version
+ * and the rights of the company.
+ */
+public final class NetworkMapGraph {
+
+    protected static Logger log =
+            LoggerFactory.getLogger(NetworkMapGraph.class);
+
+    private final MapManager mapManager;
+
+    private final NetworkGraph graph;
+
+    // tiles and rotations that are used in the graph
+    private final Map<MapHex, Tile> tiles = Maps.newHashMap();
+    private final Map<MapHex, HexSide> rotations = Maps.newHashMap();
+
+    // hexes that changed since the last update
+    private final Set<MapHex> changedHexes = Sets.newHashSet();
+
+    // increased for each change of the graph
+    private int version = 0;
+
+    // map graph including graph modifiers, defined by version and phase
+    private NetworkGraph mapGraph;
+    private int mapGraphVersion;
+    private Phase mapGraphPhase;
+
+    // base tokens on the map, the token version is increased for each change
+    private List<Object> tokens = ImmutableList.of();
+    private int tokenVersion = 0;
+
+    // cached route graphs, least recently used are removed first
+    private static final int ROUTE_GRAPH_CACHE_SIZE = 32;
+    private final Map<List<Object>, NetworkGraph> routeGraphs =
+            new LinkedHashMap<List<Object>, NetworkGraph>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, NetworkGraph> eldest) {
+                    return size() > ROUTE_GRAPH_CACHE_SIZE;
+                }
+            };
+    private int routeGraphHits = 0;
+    private int routeGraphMisses = 0;
+
+    /**
+     * Observes a hex and marks it as changed
+     */
+    private final class HexObserver implements Observer {
+        private final MapHex hex;
+
+        private HexObserver(MapHex hex) {
+            this.hex = hex;
+        }
+
+        public void update(String text) {
+            synchronized (NetworkMapGraph.this) {
+                changedHexes.add(hex);
+            }
+        }
+
+        public Observable getObservable() {
+            return hex;
+        }
+    }
+
+    private NetworkMapGraph(MapManager mapManager) {
+        this.mapManager = mapManager;
+        this.graph = NetworkGraph.createEmptyGraph();
+        for (MapHex hex:mapManager.getHexes()) {
+            hex.addObserver(new HexObserver(hex));
+        }
+        changedHexes.addAll(mapManager.getHexes());
+    }
+
+    public static NetworkMapGraph create(MapManager mapManager) {
+        return new NetworkMapGraph(mapManager);
+    }
+
+    /**
+     * Returns the map graph for the current map, including graph modifiers.
+     * It is shared with other callers, thus it is frozen.
+     */
+    public synchronized NetworkGraph getMapGraph() {
+        update();
+        Phase phase = mapManager.getRoot().getPhaseManager().getCurrentPhase();
+        if (mapGraph == null || mapGraphVersion != version || mapGraphPhase != phase) {
+            NetworkGraph newGraph = graph.copyGraph();
+            RevenueManager revenueManager = mapManager.getRoot().getRevenueManager();
+            if (revenueManager != null) {
+                revenueManager.activateMapGraphModifiers(newGraph);
+            }
+            mapGraph = newGraph.freeze();
+            mapGraphVersion = version;
+            mapGraphPhase = phase;
+        }
+        return mapGraph;
+    }
+
+    /**
+     * @return a new map graph for the current map, including graph modifiers, which can be changed
+     */
+    public synchronized NetworkGraph createMapGraph() {
+        return getMapGraph().copyGraph();
+    }
+
+    /**
+     * @return version of the track network, changes with each tile lay (or its undo)
+     */
+    public synchronized int getVersion() {
+        update();
+        return version;
+    }
+
+    /**
+     * @return version of the base tokens on the map, changes with each token lay (or its undo)
+     */
+    public synchronized int getTokenVersion() {
+        updateTokens();
+        return tokenVersion;
+    }
+
+    /**
+     * Returns the route graph of the company, which is shared with other callers.
+     * Thus the graph is frozen, use {@link NetworkGraph#copyGraph()} to change it.
+     */
+    public synchronized NetworkGraph getRouteGraph(PublicCompany company, boolean addHQ) {
+        update();
+        updateTokens();
+        Observable rights = company.getRightsModel();
+        List<Object> key = ImmutableList.<Object>of(company, addHQ,
+                mapManager.getRoot().getPhaseManager().getCurrentPhase(),
+                version, tokenVersion, rights == null ? "" : rights.toText());
+
+        NetworkGraph routeGraph = routeGraphs.get(key);
+        if (routeGraph != null) {
+            routeGraphHits++;
+            log.debug("RouteGraph cache hit for " + company.getId() + ", hits = " + routeGraphHits);
+        } else {
+            routeGraphMisses++;
+            // the creation of the route graph changes the map graph
+            routeGraph = NetworkGraph.createRouteGraph(createMapGraph(), company, addHQ).freeze();
+            routeGraphs.put(key, routeGraph);
+            log.debug("RouteGraph cache miss for " + company.getId() + ", misses = " + routeGraphMisses);
+        }
+        return routeGraph;
+    }
+
+    private void update() {
+        // observers are delayed during a replay
+        if (mapManager.getRoot().getStateManager().getChangeStack().isReplay()) {
+            changedHexes.addAll(mapManager.getHexes());
+        }
+        if (changedHexes.isEmpty()) return;
+
+        List<MapHex> updatedHexes = Lists.newArrayList();
+        for (MapHex hex:changedHexes) {
+            if (hex.getCurrentTile() != tiles.get(hex)
+                    || hex.getCurrentTileRotation() != rotations.get(hex)) {
+                updatedHexes.add(hex);
+            }
+        }
+        changedHexes.clear();
+        if (updatedHexes.isEmpty()) return;
+
+        graph.updateHexes(mapManager, updatedHexes);
+        for (MapHex hex:updatedHexes) {
+            tiles.put(hex, hex.getCurrentTile());
+            rotations.put(hex, hex.getCurrentTileRotation());
+        }
+        version++;
+        log.debug("MapGraph updated for " + updatedHexes.size() + " hexes, version = " + version);
+    }
+
+    private void updateTokens() {
+        ImmutableList.Builder<Object> tokenBuilder = ImmutableList.builder();
+        for (MapHex hex:mapManager.getHexes()) {
+            for (Stop stop:hex.getStops()) {
+                if (stop.hasTokens()) {
+                    tokenBuilder.add(stop, stop.getBaseTokens());
+                }
+            }
+        }
+        List<Object> currentTokens = tokenBuilder.build();
+        if (currentTokens.equals(tokens)) return;
+
+        tokens = currentTokens;
+        tokenVersion++;
+        log.debug("Base tokens changed, token version = " + tokenVersion);
+    }
+
+}
@@ -54,9 +54,9 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
         this.trackPoint = station;
         this.stop = hex.getRelatedStop(station);
         if (stop != null) {
-            log.info("Found stop " + stop);
+            log.debug("Found stop " + stop);
         } else {
-            log.info("No stop found");
+            log.debug("No stop found");
         }
 
         this.virtual = false;
@@ -89,6 +89,27 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
         this.virtualId = name;
     }
 
+    /** copy constructor, only used for copies of graphs */
+    private NetworkVertex(NetworkVertex vertex) {
+        this.type = vertex.type;
+        this.hex = vertex.hex;
+        this.trackPoint = vertex.trackPoint;
+        this.stop = vertex.stop;
+
+        this.virtual = vertex.virtual;
+        this.virtualId = vertex.virtualId;
+
+        this.stationType = vertex.stationType;
+        this.value = vertex.value;
+        this.sink = vertex.sink;
+        this.stopName = vertex.stopName;
+    }
+
+    /** creates an identical vertex that is not linked to the original */
+    NetworkVertex copy() {
+        return new NetworkVertex(this);
+    }
+
     /** factory method for virtual vertex
      */
     public static NetworkVertex getVirtualVertex(VertexType type, String name) {
@@ -228,12 +249,12 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
         // Only station remains
         Station station = (Station) trackPoint;
         
-        log.info("Init of vertex " + this);
+        log.debug("Init of vertex " + this);
 
         // check if it has to be removed because it is run-to only
         // if company == null, then no vertex gets removed
         if (company != null && !stop.isRunToAllowedFor(company)) {
-           log.info("Vertex is removed");
+           log.debug("Vertex is removed");
            return false;
         }
 
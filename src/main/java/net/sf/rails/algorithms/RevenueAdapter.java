@@ -79,10 +79,25 @@ public final class RevenueAdapter implements Runnable {
     private List<NetworkEdge> rcEdges;
     private List<RevenueTrainRun> optimalRun;
     private boolean hasDynamicModifiers;
+    private RevenueRunView runView;
+    private boolean useReachPrediction = false;
+    private int runCacheSize = 0;
+    private boolean useBitSets;
+    
+    // suggested number of cached runs of the final train, if the run cache is activated
+    public static final int DEFAULT_RUN_CACHE_SIZE = 65536;
     
     // revenue listener to communicate results
     private RevenueListener revenueListener;
     
+    // interval of progress reports in milliseconds, 0 => no reports
+    private long progressInterval;
+    
+    // limits of the calculation: time in milliseconds and evaluations, 0 => no limit
+    private long timeLimit;
+    private long maxEvaluations;
+    private volatile boolean cancelled;
+    
     public RevenueAdapter(RailsRoot root, NetworkAdapter networkAdapter, 
             PublicCompany company, Phase phase){
         this.root = root;
@@ -294,6 +309,24 @@ public final class RevenueAdapter implements Runnable {
     }
     
     public void initRevenueCalculator(boolean useMultiGraph){
+        initRevenueCalculator(useMultiGraph, 1);
+    }
+    
+    /**
+     * Selects the calculator that stores visited vertices and used edges as bitsets,
+     * has to be called before initRevenueCalculator.
+     * @param activate true => bitset calculator (only for multigraphs), false => default calculators
+     */
+    public void setBitSetCalculator(boolean activate) {
+        useBitSets = activate;
+    }
+    
+    /**
+     * @param useMultiGraph true => multigraph, false => simplegraph
+     * @param parallelism number of threads for the revenue calculation, 1 => sequential
+     * (parallel search is not available if dynamic modifiers are active)
+     */
+    public void initRevenueCalculator(boolean useMultiGraph, int parallelism){
         
         this.useMultiGraph = useMultiGraph;
 
@@ -332,7 +365,10 @@ public final class RevenueAdapter implements Runnable {
         int maxTravelEdges = maxTravelEdges();
          
         if (useMultiGraph) {
-            if (useHTrains()) {
+            if (useBitSets) {
+                rc = new RevenueCalculatorMultiBits(this, rcVertices.size(), rcEdges.size(), 
+                        maxNeighbors, maxVisitVertices, maxTravelEdges, trains.size(), maxBonusVertices);
+            } else if (useHTrains()) {
                 rc = new RevenueCalculatorMultiHex(this, rcVertices.size(), rcEdges.size(), 
                         maxNeighbors, maxVisitVertices, maxTravelEdges, trains.size(), maxBonusVertices);
             } else {
@@ -345,6 +381,11 @@ public final class RevenueAdapter implements Runnable {
         }
         
         populateRevenueCalculator();
+        
+        rc.setParallelism(parallelism);
+        rc.setReachPrediction(useReachPrediction);
+        rc.setRunCache(runCacheSize);
+        if (cancelled) rc.cancel();
     }
 
     private int maxVisitVertices() {
@@ -517,13 +558,20 @@ public final class RevenueAdapter implements Runnable {
                 for (NetworkEdge n:edgeTravel.set){
                     setArray[j++] = rcEdges.indexOf(n);
                 }
-                ((RevenueCalculatorMulti)rc).setTravelSet(rcEdges.indexOf(edge), setArray);
+                if (rc instanceof RevenueCalculatorMultiBits) {
+                    ((RevenueCalculatorMultiBits)rc).setTravelSet(rcEdges.indexOf(edge), setArray);
+                } else {
+                    ((RevenueCalculatorMulti)rc).setTravelSet(rcEdges.indexOf(edge), setArray);
+                }
             }
         }
 
         
         // activate dynamic modifiers
         rc.setDynamicModifiers(hasDynamicModifiers);
+        if (hasDynamicModifiers) {
+            runView = new RevenueRunView(rc, trains, rcVertices, rcEdges, useMultiGraph);
+        }
     }
 
     public int getVertexValue(NetworkVertex vertex, NetworkTrain train, Phase phase) {
@@ -600,12 +648,94 @@ public final class RevenueAdapter implements Runnable {
         }
         // the optimal run might change
         optimalRun = null;
+        rc.setProgressInterval(progressInterval * 1000000);
+        rc.setSearchLimits(timeLimit * 1000000, maxEvaluations);
         rc.initRuns(startTrain, finalTrain);
         rc.executePredictions(startTrain, finalTrain);
         int value = rc.calculateRevenue(startTrain, finalTrain);
         return value;
     }
     
+    /**
+     * @param activate true => revenue predictions only use the stops within reach of the 
+     * start vertex of each train, false => all stops of the graph are used (default)
+     */
+    public void setReachPrediction(boolean activate) {
+        useReachPrediction = activate;
+        if (rc != null) {
+            rc.setReachPrediction(activate);
+        }
+    }
+    
+    /**
+     * The run cache stores the results of the final train for the edges used by the other trains,
+     * it is kept for all calculations of this adapter.
+     * Is ignored if dynamic modifiers are active.
+     * The cache is inactive by default: each run of the final train has to collect the used edges
+     * for the lookup, which only pays off for train sets with many repeated sub-searches.
+     * @param maxEntries maximum number of cached runs, 0 => no cache (default)
+     */
+    public void setRunCacheSize(int maxEntries) {
+        runCacheSize = maxEntries;
+        if (rc != null) {
+            rc.setRunCache(maxEntries);
+        }
+    }
+    
+    /**
+     * Defines limits for the following calculations (bounded mode):
+     * If a limit is reached, the calculation returns the best run found so far.
+     * @param milliseconds time limit of a calculation, 0 => no time limit
+     * @param maxEvaluations maximum number of evaluated runs of a calculation, 0 => no limit 
+     */
+    public void setSearchLimits(long milliseconds, long maxEvaluations) {
+        this.timeLimit = milliseconds;
+        this.maxEvaluations = maxEvaluations;
+    }
+    
+    /**
+     * Stops the running calculation as soon as possible, it returns the best run found so far.
+     * All later calculations of this adapter return immediately. 
+     * Can be called from any thread, interrupting the calculating thread has the same effect on
+     * the running calculation.
+     */
+    public void cancel() {
+        cancelled = true;
+        RevenueCalculator calculator = rc;
+        if (calculator != null) {
+            calculator.cancel();
+        }
+    }
+    
+    /**
+     * @return true if the last calculation was completed, thus the optimal run is proven to be optimal,
+     * false if it was stopped by a limit, a cancellation or an interrupt (or no calculation was started)
+     */
+    public boolean isOptimal() {
+        return rc != null && !rc.isSearchStopped();
+    }
+    
+    /**
+     * @return number of evaluations of the last calculation
+     */
+    public int getNumberOfEvaluations() {
+        return (rc == null) ? 0 : rc.getNumberOfEvaluations();
+    }
+    
+    /**
+     * @return number of revenue predictions of the last calculation
+     */
+    public int getNumberOfPredictions() {
+        return (rc == null) ? 0 : rc.getNumberOfPredictions();
+    }
+    
+    /**
+     * @return statistics of the last calculation, null if no calculation has finished
+     */
+    public RevenueStatistics getStatistics() {
+        return (rc == null) ? null : rc.getRevenueStatistics();
+    }
+    
     public  List<RevenueTrainRun> getOptimalRun() {
         if (optimalRun == null) {
             optimalRun = convertRcRun(rc.getOptimalRun());
@@ -626,7 +756,8 @@ public final class RevenueAdapter implements Runnable {
     int dynamicEvaluation() {
         int value = 0;
         if (hasDynamicModifiers) {
-            value = revenueManager.evaluationValue(this.getCurrentRun(), false);
+            runView.reset();
+            value = revenueManager.evaluationValue(runView);
         }
         return value;
     }
@@ -637,7 +768,8 @@ public final class RevenueAdapter implements Runnable {
     int dynamicPrediction() {
         int value = 0;
         if (hasDynamicModifiers) {
-            value = revenueManager.predictionValue(this.getCurrentRun());
+            runView.reset();
+            value = revenueManager.predictionValue(runView);
         }
         return value;
     }
@@ -658,6 +790,25 @@ public final class RevenueAdapter implements Runnable {
                 });
     }
     
+    /**
+     * @param milliseconds interval of progress reports to the revenue listener, 0 => no reports
+     */
+    public void setProgressInterval(long milliseconds) {
+        this.progressInterval = milliseconds;
+    }
+    
+    void notifyRevenueProgress(final RevenueStatistics statistics) {
+        if (revenueListener == null) return;
+        
+        EventQueue.invokeLater(
+                new Runnable() {
+                    public void run() {
+                        //listener could have deregistered himself in the meantime
+                        if (revenueListener != null) revenueListener.revenueProgress(statistics);
+                    }
+                });
+    }
+    
     public void run() {
         calculateRevenue(0, trains.size() -1);
     }
@@ -1,6 +1,19 @@
 package net.sf.rails.algorithms;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +41,7 @@ abstract class RevenueCalculator {
 
     // start vertexes
     protected int[] startVertexes;
+    protected int[] vertexStartNb; // index in startVertexes, -1 => no start vertex
     
     // static edge data
     protected final boolean[] edgeGreedy;
@@ -52,6 +66,7 @@ abstract class RevenueCalculator {
     protected final boolean [] trainBottomActive;
     protected final int [] trainStartEdge;
     protected final int[] trainDistance; // keeps track of distance travelled (for H-trains)
+    protected final int[] trainStartVertex; // start vertex of the current run, -1 => not yet defined
      
     // static bonus data
     protected final int [] bonusValue;
@@ -77,6 +92,12 @@ abstract class RevenueCalculator {
     protected int[][] maxMajorRevenues; // dimensions trainId x nb vertex; 
     protected int[][] maxMinorRevenues; // dimensions trainId x nb vertex;
     protected int[][] maxBonusRevenues; // dimensions trainId x nb bonuses
+    
+    // reach prediction data: values of the vertices within reach of the start vertexes
+    protected boolean useReachPrediction;
+    protected int[][][] reachMajorRevenues; // dimensions trainId x startNb x nb vertex
+    protected int[][][] reachMinorRevenues; // dimensions trainId x startNb x nb vertex
+    protected int[][][] reachBonusRevenues; // dimensions trainId x startNb x nb bonuses
 
     // statistic data
     protected int countVisits;
@@ -84,6 +105,40 @@ abstract class RevenueCalculator {
     protected int nbEdgesTravelled;
     protected int nbEvaluations;
     protected int nbPredictions;
+    protected int nbPrunes;
+    
+    // cache of the runs of the final train, shared with the workers, null => no cache
+    private RevenueRunCache runCache;
+    private final long[] usedEdges; // bitset of the used edges for the cache
+    private long cacheHitsAtStart;
+    private long cacheMissesAtStart;
+    
+    // statistics of the current calculation, improvements are shared with the workers
+    private long calculationStart;
+    private final List<RevenueStatistics.Improvement> improvements;
+    private final List<RevenueStatistics.TrainSetRun> trainSetRuns;
+    private RevenueStatistics statistics;
+    
+    // progress reports: interval in nanoseconds (0 => no reports) and time of the next report
+    private long progressInterval;
+    private long nextProgress;
+    // number of evaluations (or predictions) between checks of the time and the interrupt flag
+    private static final int PROGRESS_CHECK_MASK = 0x3FF;
+    
+    // limits of a bounded calculation: time limit in nanoseconds and evaluations (0 => no limit)
+    private long timeLimit;
+    private long maxEvaluations;
+    // limits of the current calculation, shared with the workers
+    private volatile SearchLimits limits;
+    // evaluations left from the budget taken from the limits
+    private long evaluationsLeft;
+    // set by cancel(), applies to the current and all later calculations
+    private volatile boolean cancelled;
+    
+    // best completed single train run, kept as result if the search is stopped
+    private int bestSingleValue;
+    private int bestSingleTrain;
+    private int[] bestSingleRun;
 
     // revenue Adapter
     protected RevenueAdapter revenueAdapter;
@@ -91,6 +146,40 @@ abstract class RevenueCalculator {
     // activate dynamic revenue modifiers
     protected boolean callDynamicModifiers;
     
+    // parallel search: number of worker threads (1 => sequential search)
+    protected int parallelism;
+    
+    // shared best value of all workers of a parallel search, null for sequential search
+    private AtomicInteger sharedBestValue;
+    
+    // threads of the parallel search of all calculators, each search runs at most parallelism parts at once
+    // idle threads end after a minute, the daemon threads do not prevent the exit of the application
+    private static final ExecutorService workerThreads = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "RevenueWorker");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    
+    /**
+     * Limits of a calculation, shared by the master and the workers of a parallel search
+     */
+    private static final class SearchLimits {
+        private final long deadline; // compared to System.nanoTime(), 0 => no deadline
+        private final AtomicLong evaluations; // evaluations not yet taken, null => no limit
+        private volatile boolean stopped;
+        
+        private SearchLimits(long deadline, long maxEvaluations) {
+            this.deadline = deadline;
+            if (maxEvaluations == 0) {
+                this.evaluations = null;
+            } else {
+                this.evaluations = new AtomicLong(maxEvaluations);
+            }
+        }
+    }
+    
     // termination results
     protected static enum Terminated {
         WithEvaluation,
@@ -105,6 +194,17 @@ abstract class RevenueCalculator {
     
     public RevenueCalculator (RevenueAdapter revenueAdapter, int nbVertexes, int nbEdges, 
             int maxNeighbors, int maxVertexSets, int maxEdgeSets, int nbTrains, int nbBonuses) {
+        this(revenueAdapter, nbVertexes, nbEdges, maxNeighbors, maxVertexSets, maxEdgeSets, 
+                nbTrains, nbBonuses, true);
+    }
+
+    /**
+     * @param visitedFlags false if the subclass stores the visited vertices itself,
+     * then trainVisited is not allocated and visitVertex/setVisited have to be overridden
+     */
+    protected RevenueCalculator (RevenueAdapter revenueAdapter, int nbVertexes, int nbEdges, 
+            int maxNeighbors, int maxVertexSets, int maxEdgeSets, int nbTrains, int nbBonuses,
+            boolean visitedFlags) {
         
         log.info("RC defined: nbVertexes = " + nbVertexes + ", nbEdges = " + nbEdges + ", maxNeighbors = " + maxNeighbors +
                 ", maxVertexSets = " + maxVertexSets + ", maxEdgeSets = " + maxEdgeSets + ", nbTrains = " + nbTrains + ", nbBonuses = " + nbBonuses );
@@ -142,13 +242,18 @@ abstract class RevenueCalculator {
         trainMajors = new int[nbTrains];
         trainMinors = new int[nbTrains];
         trainBonuses = new int[nbTrains];
-        trainVisited = new boolean[nbTrains][nbVertexes];
+        if (visitedFlags) {
+            trainVisited = new boolean[nbTrains][nbVertexes];
+        } else {
+            trainVisited = null;
+        }
         // increase necessary due to buttom train
         trainStack = new int[nbTrains][nbVertexes + 1];
         trainStackPos = new int[nbTrains];
         trainBottomActive = new boolean[nbTrains];
         trainStartEdge = new int[nbTrains];
         trainDistance = new int[nbTrains];
+        trainStartVertex = new int[nbTrains];
         maxCumulatedTrainRevenues = new int[nbTrains];
         
         bonusValue = new int[nbBonuses];
@@ -158,9 +263,112 @@ abstract class RevenueCalculator {
         
         currentBestRun = new int[nbTrains][nbVertexes + 1];
         
+        usedEdges = new long[(nbEdges + 63) / 64];
+        
+        improvements = new ArrayList<RevenueStatistics.Improvement>();
+        trainSetRuns = new ArrayList<RevenueStatistics.TrainSetRun>();
+        
         useRevenuePrediction = false;
         
         callDynamicModifiers = false;
+        
+        parallelism = 1;
+    }
+
+    /**
+     * Creates a worker for a parallel search:
+     * The static data is shared with the master, the dynamic data is copied
+     */
+    protected RevenueCalculator (RevenueCalculator master) {
+        this.revenueAdapter = master.revenueAdapter;
+        this.nbVertexes = master.nbVertexes;
+        this.nbEdges = master.nbEdges;
+        this.nbTrains = master.nbTrains;
+        this.nbBonuses = master.nbBonuses;
+
+        // static data is shared
+        vertexValueByTrain = master.vertexValueByTrain;
+        vertexMajor = master.vertexMajor;
+        vertexMinor = master.vertexMinor;
+        vertexSink = master.vertexSink;
+        vertexNbNeighbors = master.vertexNbNeighbors;
+        vertexNbVisitSets = master.vertexNbVisitSets;
+        vertexNbBonusSets = master.vertexNbBonusSets;
+        vertexNeighbors = master.vertexNeighbors;
+        vertexEdges = master.vertexEdges;
+        vertexVisitSets = master.vertexVisitSets;
+        vertexBonusSets = master.vertexBonusSets;
+        startVertexes = master.startVertexes;
+        vertexStartNb = master.vertexStartNb;
+        
+        edgeGreedy = master.edgeGreedy;
+        edgeDistance = master.edgeDistance;
+        
+        trainMaxMajors = master.trainMaxMajors;
+        trainMaxMinors = master.trainMaxMinors;
+        trainMaxBonuses = master.trainMaxBonuses;
+        trainIgnoreMinors = master.trainIgnoreMinors;
+        trainIsH = master.trainIsH;
+        trainIsE = master.trainIsE;
+        
+        bonusValue = master.bonusValue;
+        bonusRequiresVertices = master.bonusRequiresVertices;
+        bonusActiveForTrain = master.bonusActiveForTrain;
+
+        // prediction data is read-only during a run
+        maxCumulatedTrainRevenues = master.maxCumulatedTrainRevenues;
+        maxMajorRevenues = master.maxMajorRevenues;
+        maxMinorRevenues = master.maxMinorRevenues;
+        maxBonusRevenues = master.maxBonusRevenues;
+        useReachPrediction = master.useReachPrediction;
+        reachMajorRevenues = master.reachMajorRevenues;
+        reachMinorRevenues = master.reachMinorRevenues;
+        reachBonusRevenues = master.reachBonusRevenues;
+        
+        // dynamic data is created for each worker
+        trainCurrentValue = new int[nbTrains];
+        trainMajors = new int[nbTrains];
+        trainMinors = new int[nbTrains];
+        trainBonuses = new int[nbTrains];
+        if (master.trainVisited != null) {
+            trainVisited = new boolean[nbTrains][nbVertexes];
+        } else {
+            trainVisited = null;
+        }
+        trainStack = new int[nbTrains][nbVertexes + 1];
+        trainStackPos = new int[nbTrains];
+        trainBottomActive = new boolean[nbTrains];
+        trainStartEdge = new int[nbTrains];
+        trainDistance = new int[nbTrains];
+        trainStartVertex = new int[nbTrains];
+        bonusTrainVertices = new int[nbBonuses][nbTrains];
+        currentBestRun = new int[nbTrains][nbVertexes + 1];
+        for (int j = 0; j < nbTrains; j++) {
+            currentBestRun[j][0] = -1;
+        }
+        
+        // run settings
+        startTrainSet = master.startTrainSet;
+        finalTrainSet = master.finalTrainSet;
+        startTrain = master.startTrain;
+        finalTrain = master.finalTrain;
+        useRevenuePrediction = master.useRevenuePrediction;
+        currentBestValue = master.currentBestValue;
+        sharedBestValue = master.sharedBestValue;
+        limits = master.limits;
+        evaluationsLeft = 0;
+        runCache = master.runCache;
+        usedEdges = new long[master.usedEdges.length];
+        
+        // statistics: improvements are reported to the master, progress is reported by the master
+        calculationStart = master.calculationStart;
+        improvements = master.improvements;
+        trainSetRuns = new ArrayList<RevenueStatistics.TrainSetRun>();
+        progressInterval = 0;
+        
+        // workers never start other workers and do not call dynamic modifiers 
+        callDynamicModifiers = false;
+        parallelism = 1;
     }
 
     final void setVertex(int id, boolean major, boolean minor, boolean sink) {
@@ -189,6 +397,11 @@ abstract class RevenueCalculator {
    
     final void setStartVertexes(int[] startVertexes) {
         this.startVertexes = startVertexes;
+        vertexStartNb = new int[nbVertexes];
+        Arrays.fill(vertexStartNb, -1);
+        for (int i=0; i < startVertexes.length; i++) {
+            vertexStartNb[startVertexes[i]] = i;
+        }
     }
     
     
@@ -236,6 +449,99 @@ abstract class RevenueCalculator {
         callDynamicModifiers = activate;
     }
     
+    /**
+     * @param activate true => predictions use only the values of vertices within reach
+     * of the start vertex of the train
+     */
+    final void setReachPrediction(boolean activate) {
+        useReachPrediction = activate;
+    }
+    
+    /**
+     * @return true if the train is limited by the distance travelled instead of the stations visited
+     */
+    protected boolean isDistanceLimited(final int trainId) {
+        return false;
+    }
+    
+    /**
+     * @param maxEntries maximum number of cached runs of the final train, 0 => no cache
+     */
+    final void setRunCache(int maxEntries) {
+        if (maxEntries > 0) {
+            runCache = new RevenueRunCache(maxEntries);
+        } else {
+            runCache = null;
+        }
+    }
+    
+    /**
+     * @param parallelism number of threads used for the search, 1 => sequential search
+     */
+    final void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    /**
+     * Defines the limits of the following calculations, the best run found so far is the result
+     * if a limit is reached. 
+     * @param timeLimit time limit in nanoseconds, 0 => no time limit
+     * @param maxEvaluations maximum number of evaluations, 0 => no limit
+     */
+    final void setSearchLimits(long timeLimit, long maxEvaluations) {
+        this.timeLimit = Math.max(0, timeLimit);
+        this.maxEvaluations = Math.max(0, maxEvaluations);
+    }
+    
+    /**
+     * Stops the current calculation as soon as possible and all later calculations immediately.
+     * Can be called from any thread.
+     */
+    final void cancel() {
+        cancelled = true;
+        SearchLimits current = limits;
+        if (current != null) {
+            current.stopped = true;
+        }
+    }
+    
+    /**
+     * @return true if the latest calculation was stopped by a limit, a cancellation or an interrupt 
+     * before it was completed, thus the result is not proven to be optimal
+     */
+    final boolean isSearchStopped() {
+        SearchLimits current = limits;
+        return current != null && current.stopped;
+    }
+    
+    private void stopSearch() {
+        if (!limits.stopped) {
+            limits.stopped = true;
+            log.info("RC: search stopped after " + getStatistics());
+        }
+    }
+    
+    /**
+     * takes the next part of the evaluations budget 
+     * @return false if the budget is used up 
+     */
+    private boolean takeEvaluations() {
+        AtomicLong evaluations = limits.evaluations;
+        if (evaluations == null) {
+            evaluationsLeft = Long.MAX_VALUE;
+            return true;
+        }
+        long available, taken;
+        do {
+            available = evaluations.get();
+            if (available <= 0) return false;
+            // workers take small parts to share the budget
+            taken = (sharedBestValue == null) ? available : Math.min(available, PROGRESS_CHECK_MASK + 1);
+        } while (!evaluations.compareAndSet(available, available - taken));
+        evaluationsLeft = taken;
+        return true;
+    }
+    
     final int[][] getOptimalRun() {
         log.info("RC: currentBestRun = " + Arrays.deepToString(currentBestRun));
         return currentBestRun;
@@ -260,6 +566,61 @@ abstract class RevenueCalculator {
         return nbEvaluations;
     }
     
+    final int getNumberOfPredictions() {
+        return nbPredictions;
+    }
+    
+    /**
+     * @return statistics of the latest finished calculation, null if there is none
+     */
+    final RevenueStatistics getRevenueStatistics() {
+        return statistics;
+    }
+    
+    /**
+     * @param progressInterval time between progress reports in nanoseconds, 0 => no reports
+     */
+    final void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+    
+    private RevenueStatistics createStatistics(boolean finalResult) {
+        int bestValue = currentBestValue;
+        AtomicInteger shared = sharedBestValue;
+        if (shared != null) {
+            bestValue = Math.max(bestValue, shared.get());
+        }
+        long cacheHits = 0, cacheMisses = 0;
+        if (runCache != null) {
+            cacheHits = runCache.getHits() - cacheHitsAtStart;
+            cacheMisses = runCache.getMisses() - cacheMissesAtStart;
+        }
+        synchronized (improvements) {
+            return new RevenueStatistics(nbVertexes, nbEdges, nbTrains, nbEvaluations, nbPredictions,
+                    nbPrunes, nbEdgesTravelled, cacheHits, cacheMisses, bestValue, 
+                    System.nanoTime() - calculationStart, finalResult, finalResult && !limits.stopped, 
+                    improvements, trainSetRuns);
+        }
+    }
+    
+    private void checkProgress() {
+        long now = System.nanoTime();
+        if (now < nextProgress) return;
+        nextProgress = now + progressInterval;
+        revenueAdapter.notifyRevenueProgress(createStatistics(false));
+    }
+    
+    /**
+     * checks the time limit, the interrupt flag and the progress reports
+     */
+    private void checkTime() {
+        if (cancelled || Thread.currentThread().isInterrupted() 
+                || limits.deadline != 0 && System.nanoTime() - limits.deadline >= 0) {
+            stopSearch();
+        }
+        if (progressInterval != 0) checkProgress();
+    }
+    
     final String getStatistics() {
         StringBuffer statistics = new StringBuffer();
         statistics.append(nbEvaluations + " evaluations");
@@ -276,7 +637,19 @@ abstract class RevenueCalculator {
         else
             modifier = "new best";
         log.info("Report " + modifier + " result of " +  revenue + " after " + getStatistics());
+        if (finalResult) {
+            statistics = createStatistics(true);
+            log.info("RC: " + statistics);
+        } else {
+            synchronized (improvements) {
+                improvements.add(new RevenueStatistics.Improvement(startTrain, finalTrain, revenue,
+                        System.nanoTime() - calculationStart));
+            }
+        }
         revenueAdapter.notifyRevenueListener(revenue, finalResult);
+        if (finalResult) {
+            revenueAdapter.notifyRevenueProgress(statistics);
+        }
     }
 
     final private int[] bestRevenues(final int[] values, final int length) {
@@ -328,14 +701,156 @@ abstract class RevenueCalculator {
                      + maxBonusRevenues[t][trainMaxBonuses[t]];
             maxCumulatedTrainRevenues[t] = trainRevenues;
         }
+        if (useReachPrediction) {
+            initReachRevenues(startTrain, finalTrain);
+        }
         log.info("maxMajorRevenues = " + Arrays.deepToString(maxMajorRevenues));
         log.info("maxMinorRevenues = " + Arrays.deepToString(maxMinorRevenues));
         log.info("maxBonusRevenues = " + Arrays.deepToString(maxBonusRevenues));
         log.info("maxCumulatedTrainRevenues = " + Arrays.toString(maxCumulatedTrainRevenues));
     }
     
+    /**
+     * Defines the revenue predictions for each start vertex: 
+     * Only vertices within reach of the start vertex are used, which are those that can be visited
+     * by a path with no more stations than the train length (or no longer than the distance 
+     * for H-trains). The predictions before the start vertex is defined are the maximum 
+     * of all start vertices, which replaces the predictions using all vertices.
+     */
+    final private void initReachRevenues(final int startTrain, final int finalTrain) {
+        reachMajorRevenues = new int[nbTrains][][];
+        reachMinorRevenues = new int[nbTrains][][];
+        reachBonusRevenues = new int[nbTrains][][];
+        int[] reach = new int[nbVertexes];
+        int[] bonusVertices = new int[nbBonuses];
+        for (int t=startTrain; t <= finalTrain; t++) {
+            int maxReach = trainMaxMajors[t];
+            if (!isDistanceLimited(t) && !trainIgnoreMinors[t]) {
+                maxReach += trainMaxMinors[t];
+            }
+            reachMajorRevenues[t] = new int[startVertexes.length][];
+            reachMinorRevenues[t] = new int[startVertexes.length][];
+            reachBonusRevenues[t] = new int[startVertexes.length][];
+            int[] maxMajors = new int[trainMaxMajors[t] + 1];
+            int[] maxMinors = new int[trainMaxMinors[t] + 1];
+            int[] maxBonuses = new int[trainMaxBonuses[t] + 1];
+            for (int s=0; s < startVertexes.length; s++) {
+                defineReach(t, startVertexes[s], maxReach, reach);
+                int[] majorValues = new int[nbVertexes];
+                int[] minorValues = new int[nbVertexes];
+                int[] bonusValues = new int[nbVertexes + nbBonuses];
+                int major = 0, minor = 0, bonus = 0;
+                Arrays.fill(bonusVertices, 0);
+                for (int v=0; v < nbVertexes; v++) {
+                    if (reach[v] > maxReach) continue;
+                    for (int j=0; j < vertexNbBonusSets[v]; j++) {
+                        bonusVertices[vertexBonusSets[v][j]]++;
+                    }
+                    if (vertexValueByTrain[v][t] == 0) continue;
+                    if (vertexMajor[v]) {
+                        majorValues[major++] = vertexValueByTrain[v][t];
+                    } else if (vertexMinor[v]) {
+                        minorValues[minor++] = vertexValueByTrain[v][t];
+                    } else { // define it as bonus
+                        bonusValues[bonus++] = vertexValueByTrain[v][t];
+                    }
+                }
+                // complex bonuses require that all vertices are within reach
+                for (int b=0; b < nbBonuses; b++) {
+                    if (bonusValue[b] <= 0 || !bonusActiveForTrain[b][t]) continue;
+                    if (bonusVertices[b] < bonusRequiresVertices[b]) continue;
+                    bonusValues[bonus++] = bonusValue[b];
+                }
+                reachMajorRevenues[t][s] = bestRevenues(majorValues, trainMaxMajors[t]);
+                reachMinorRevenues[t][s] = bestRevenues(minorValues, trainMaxMinors[t]);
+                reachBonusRevenues[t][s] = bestRevenues(bonusValues, trainMaxBonuses[t]);
+                for (int k=0; k <= trainMaxMajors[t]; k++) {
+                    maxMajors[k] = Math.max(maxMajors[k], reachMajorRevenues[t][s][k]);
+                }
+                for (int k=0; k <= trainMaxMinors[t]; k++) {
+                    maxMinors[k] = Math.max(maxMinors[k], reachMinorRevenues[t][s][k]);
+                }
+                for (int k=0; k <= trainMaxBonuses[t]; k++) {
+                    maxBonuses[k] = Math.max(maxBonuses[k], reachBonusRevenues[t][s][k]);
+                }
+            }
+            maxMajorRevenues[t] = maxMajors;
+            maxMinorRevenues[t] = maxMinors;
+            maxBonusRevenues[t] = maxBonuses;
+            maxCumulatedTrainRevenues[t] = maxMajorRevenues[t][trainMaxMajors[t]] 
+                    + maxMinorRevenues[t][trainMaxMinors[t]] + maxBonusRevenues[t][trainMaxBonuses[t]];
+        }
+    }
+    
+    /**
+     * Defines the minimum number of stations (or distance for H-trains) required
+     * to reach each vertex from the start vertex (Dijkstra), 
+     * values above maxReach are not followed
+     */
+    final private void defineReach(final int trainId, final int startVertex, final int maxReach, 
+            final int[] reach) {
+        boolean distanceLimited = isDistanceLimited(trainId);
+        boolean[] finished = new boolean[nbVertexes];
+        Arrays.fill(reach, Integer.MAX_VALUE);
+        reach[startVertex] = distanceLimited ? 0 : stationCost(trainId, startVertex);
+        while (true) {
+            // select the nearest open vertex
+            int vertexId = -1;
+            for (int v=0; v < nbVertexes; v++) {
+                if (finished[v] || reach[v] > maxReach) continue;
+                if (vertexId == -1 || reach[v] < reach[vertexId]) vertexId = v;
+            }
+            if (vertexId == -1) break;
+            finished[vertexId] = true;
+            // for startVertices the sink property is ignored
+            if (vertexSink[vertexId] && vertexId != startVertex) continue;
+            for (int j=0; j < vertexNbNeighbors[vertexId]; j++) {
+                int neighborId = vertexNeighbors[vertexId][j];
+                if (finished[neighborId]) continue;
+                int cost;
+                if (distanceLimited) {
+                    cost = edgeDistance[vertexEdges[vertexId][j]];
+                } else {
+                    cost = stationCost(trainId, neighborId);
+                }
+                reach[neighborId] = Math.min(reach[neighborId], reach[vertexId] + cost);
+            }
+        }
+    }
+    
+    private int stationCost(final int trainId, final int vertexId) {
+        if (vertexMajor[vertexId] || vertexMinor[vertexId] && !trainIgnoreMinors[trainId]) {
+            return 1;
+        }
+        return 0;
+    }
+    
     final void initRuns(final int startTrain, final int finalTrain) {
         log.info("RC: init runs from " + startTrain + " to " + finalTrain);
+        
+        // reset statistics
+        nbEvaluations = 0; nbPredictions = 0; nbPrunes = 0; nbEdgesTravelled = 0;
+        calculationStart = System.nanoTime();
+        nextProgress = calculationStart + progressInterval;
+        improvements.clear();
+        trainSetRuns.clear();
+        if (runCache != null) {
+            cacheHitsAtStart = runCache.getHits();
+            cacheMissesAtStart = runCache.getMisses();
+        }
+        
+        // define the limits
+        long deadline = 0;
+        if (timeLimit != 0) {
+            // avoid the value zero, as it stands for no deadline 
+            deadline = (calculationStart + timeLimit) | 1;
+        }
+        limits = new SearchLimits(deadline, maxEvaluations);
+        limits.stopped = cancelled;
+        evaluationsLeft = 0;
+        bestSingleValue = 0;
+        bestSingleRun = null;
+        
         if (startTrain > finalTrain) return;
 
         this.startTrainSet = startTrain;
@@ -361,18 +876,26 @@ abstract class RevenueCalculator {
         }
         
         // start prediction runs
-        nbEvaluations = 0; nbPredictions = 0; nbEdgesTravelled = 0;
-
         log.info("RC: start individual prediction Runs");
         int[] maxSingleTrainRevenues = new int[nbTrains]; 
         for (int j = startTrain; j <= finalTrain; j++) {
             this.startTrain = j;
             this.finalTrain = j;
             currentBestValue = 0;
-            runTrain(j);
+            runTopTrain(j, RevenueStatistics.RunType.PREDICTION_SINGLE);
             log.info("RC: Best prediction run of train number " + j + " value = " + currentBestValue + 
                 " after " + getStatistics());
             maxSingleTrainRevenues[j] = currentBestValue;
+            if (currentBestValue > bestSingleValue) {
+                bestSingleValue = currentBestValue;
+                bestSingleTrain = j;
+                bestSingleRun = currentBestRun[j].clone();
+            }
+            // the remaining runs would be terminated immediately
+            if (limits.stopped) {
+                restoreBestSingleRun();
+                return;
+            }
         }
         int cumulatedRevenues = 0;
         for (int j = finalTrain; j >= startTrain; j--) {
@@ -388,7 +911,7 @@ abstract class RevenueCalculator {
         for (int j=finalTrain - 1; j > startTrain; j--) {
             this.startTrain = j;
 //            currentBestValue = 0;
-            runTrain(j);
+            runTopTrain(j, RevenueStatistics.RunType.PREDICTION_COMBINED);
             log.info("RC: Best prediction run until train nb. " + j + " value = " + currentBestValue +
                 " after " + getStatistics());
             maxCumulatedTrainRevenues[j] = currentBestValue;
@@ -403,7 +926,12 @@ abstract class RevenueCalculator {
         this.startTrain = startTrain;
         this.finalTrain = finalTrain;
        
-        runTrain(startTrain);
+        runTopTrain(startTrain, RevenueStatistics.RunType.CALCULATION);
+        
+        // a combined run might be worse than a single train run, if the search was stopped
+        if (limits.stopped) {
+            restoreBestSingleRun();
+        }
 
         // inform revenue listener via adapter
         notifyRevenueAdapter(currentBestValue, true);
@@ -411,11 +939,228 @@ abstract class RevenueCalculator {
         return currentBestValue;
     }
    
+    /**
+     * Uses the best single train run as best run, if it exceeds the current best run  
+     */
+    private void restoreBestSingleRun() {
+        if (bestSingleRun == null || bestSingleValue <= currentBestValue) return;
+        currentBestValue = bestSingleValue;
+        for (int j = startTrainSet; j <= finalTrainSet; j++) {
+            currentBestRun[j][0] = -1;
+        }
+        System.arraycopy(bestSingleRun, 0, currentBestRun[bestSingleTrain], 0, nbVertexes + 1);
+        log.info("RC: search stopped, best single train run of train " + bestSingleTrain + 
+                " used with value " + bestSingleValue);
+    }
+    
+    /**
+     * Runs the first train of the current train set, either sequential or in parallel
+     */
+    private void runTopTrain(final int trainId, final RevenueStatistics.RunType type) {
+        long start = System.nanoTime();
+        int evaluations = nbEvaluations;
+        int predictions = nbPredictions;
+        
+        // dynamic modifiers evaluate the current run of the master, thus no parallel search
+        if (parallelism > 1 && !callDynamicModifiers) {
+            runTrainParallel(trainId);
+        } else {
+            runTrain(trainId);
+        }
+        
+        synchronized (improvements) {
+            trainSetRuns.add(new RevenueStatistics.TrainSetRun(type, startTrain, finalTrain, 
+                    currentBestValue, System.nanoTime() - start, 
+                    nbEvaluations - evaluations, nbPredictions - predictions));
+        }
+    }
+    
+    /**
+     * Splits the search space of the train into the start vertexes and their start edges
+     * and runs each part by a worker.
+     * All workers share the best value found so far to improve the predictions.
+     */
+    private void runTrainParallel(final int trainId) {
+        log.info("RC: runTrainParallel " + trainId + " with " + parallelism + " threads");
+        
+        sharedBestValue = new AtomicInteger(currentBestValue);
+        
+        // define the tasks, edgeNb = -1 => train does not run at all 
+        List<Callable<RevenueCalculator>> tasks = new ArrayList<Callable<RevenueCalculator>>();
+        for (int i=0; i < startVertexes.length; i++) {
+            int vertexId = startVertexes[i];
+            for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
+                tasks.add(createTask(trainId, i, j));
+            }
+        }
+        tasks.add(createTask(trainId, -1, -1));
+        
+        CompletionService<RevenueCalculator> completion = 
+                new ExecutorCompletionService<RevenueCalculator>(workerThreads);
+        List<Future<RevenueCalculator>> results = new ArrayList<Future<RevenueCalculator>>();
+        List<RevenueCalculator> workers = new ArrayList<RevenueCalculator>();
+        boolean interrupted = false;
+        try {
+            // the next part is started whenever a part is finished
+            while (results.size() < Math.min(parallelism, tasks.size())) {
+                results.add(completion.submit(tasks.get(results.size())));
+            }
+            // wait for the workers and collect their statistics, reports progress in between
+            int finished = 0;
+            while (finished < tasks.size()) {
+                Future<RevenueCalculator> result;
+                try {
+                    if (progressInterval == 0) {
+                        result = completion.take();
+                    } else {
+                        result = completion.poll(progressInterval, TimeUnit.NANOSECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    // stop the workers, but keep their results
+                    log.info("RC: runTrainParallel interrupted");
+                    stopSearch();
+                    interrupted = true;
+                    continue;
+                }
+                if (result != null) {
+                    RevenueCalculator worker = result.get();
+                    nbEvaluations += worker.nbEvaluations;
+                    nbPredictions += worker.nbPredictions;
+                    nbPrunes += worker.nbPrunes;
+                    nbEdgesTravelled += worker.nbEdgesTravelled;
+                    finished++;
+                    if (results.size() < tasks.size()) {
+                        results.add(completion.submit(tasks.get(results.size())));
+                    }
+                }
+                if (progressInterval != 0) checkProgress();
+            }
+            // keep the order of the tasks for the selection of the best run
+            for (Future<RevenueCalculator> result:results) {
+                workers.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            // all results are available at this point
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            } 
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // workers still running after a failure are not waited for
+            for (Future<RevenueCalculator> result:results) {
+                result.cancel(true);
+            }
+            sharedBestValue = null;
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        
+        // collect the results of the workers
+        for (RevenueCalculator worker:workers) {
+            if (worker.currentBestValue > currentBestValue) {
+                currentBestValue = worker.currentBestValue;
+                for (int j = startTrainSet; j <= finalTrainSet; j++) {
+                    System.arraycopy(worker.currentBestRun[j], 0, currentBestRun[j], 0, nbVertexes + 1);
+                }
+            }
+        }
+    }
+    
+    private Callable<RevenueCalculator> createTask(final int trainId, final int startNb, final int edgeNb) {
+        return new Callable<RevenueCalculator>() {
+            public RevenueCalculator call() {
+                RevenueCalculator worker = createWorker();
+                worker.runTrainPart(trainId, startNb, edgeNb);
+                return worker;
+            }
+        };
+    }
+    
+    /**
+     * Runs the part of the search of runTrain that uses the start vertex and start edge
+     * @param startNb index in startVertexes, -1 => train does not run at all
+     * @param edgeNb index of the neighbor of the start vertex used as start edge
+     */
+    private void runTrainPart(final int trainId, final int startNb, final int edgeNb) {
+        initTrain(trainId);
+        
+        // check if the revenue is enough
+        if (useRevenuePrediction && predictRevenues(trainId))
+            return;
+
+        if (startNb == -1) {
+            // allow that the train does not run at all
+            finalizeVertex(trainId, -1);
+            return;
+        }
+        
+        // previous start vertexes are on the visited vertex list to avoid route duplication
+        for (int i=0; i < startNb; i++) {
+            setVisited(trainId, startVertexes[i], true);
+        }
+        runStartEdge(trainId, startVertexes[startNb], edgeNb);
+    }
+
+    /**
+     * initializes the dynamic data of the train before a run
+     */
+    protected final void initTrain(final int trainId) {
+        // initialize value
+        trainCurrentValue[trainId] = 0;
+        trainStartVertex[trainId] = -1;
+
+        // initialize train lengths
+        trainMajors[trainId] = trainMaxMajors[trainId];
+        trainMinors[trainId] = trainMaxMinors[trainId];
+        trainBonuses[trainId] = trainMaxBonuses[trainId];
+        
+        // initialize the positions
+        trainStackPos[trainId] = 0;
+        trainBottomActive[trainId] = false;
+        
+        // initialize bonuses
+        for (int b=0; b < nbBonuses; b++) {
+            bonusTrainVertices[b][trainId] = bonusRequiresVertices[b];
+        }
+    }
+    
+    /**
+     * @return a worker for a parallel search, which shares the static data
+     */
+    abstract protected RevenueCalculator createWorker();
+    
     abstract protected void runTrain(final int trainId);
     
+    /**
+     * Runs the train from the start vertex using only the start edge given
+     * @param edgeNb index of the neighbor of the start vertex
+     */
+    abstract protected void runStartEdge(final int trainId, final int vertexId, final int edgeNb);
+    
     abstract protected void runBottom(final int trainId);
 
     
+    /**
+     * Sets the visited flag of the vertex and of its visit set for the train
+     */
+    protected void visitVertex(final int trainId, final int vertexId, final boolean arrive) {
+        trainVisited[trainId][vertexId] = arrive;
+        
+        // check vertex sets
+        for (int j=0; j < vertexNbVisitSets[vertexId]; j++) {
+            trainVisited[trainId][vertexVisitSets[vertexId][j]] = arrive;
+            log.debug("RC: visited = " + arrive + " for vertex " + vertexVisitSets[vertexId][j] + " due to block rule");
+        }
+    }
+    
+    /**
+     * Sets the visited flag of the vertex only
+     */
+    protected void setVisited(final int trainId, final int vertexId, final boolean visited) {
+        trainVisited[trainId][vertexId] = visited;
+    }
+    
     // next vertex is either:
     // protected void nextVertex(int trainId, int vertexId, boolean previousGreedy);
     // protected void nextVertex(int trainId, int vertexId);
@@ -425,7 +1170,7 @@ abstract class RevenueCalculator {
         log.debug("RC: EncounterVertex, trainId = " + trainId + " vertexId = " + vertexId + " arrive = " + arrive);
         
         // set visit to true if arriving, otherwise you leave
-        trainVisited[trainId][vertexId] = arrive;
+        visitVertex(trainId, vertexId, arrive);
 
         boolean stationVertex = false;
         if (arrive) {
@@ -450,12 +1195,6 @@ abstract class RevenueCalculator {
             countVisits--;
         }   
         
-        // check vertex sets
-        for (int j=0; j < vertexNbVisitSets[vertexId]; j++) {
-            trainVisited[trainId][vertexVisitSets[vertexId][j]] = arrive;
-            log.debug("RC: visited = " + arrive + " for vertex " + vertexVisitSets[vertexId][j] + " due to block rule");
-        }
-        
         // check bonus sets
         for (int j=0; j < vertexNbBonusSets[vertexId]; j++) {
             int bonusId = vertexBonusSets[vertexId][j];
@@ -490,6 +1229,11 @@ abstract class RevenueCalculator {
 
     abstract protected void returnEdge(final int trainId, final int edgeId);
     
+    /**
+     * @param words bitset of the edges that are currently used by any train
+     */
+    abstract protected void defineUsedEdges(final long[] words);
+    
     protected Terminated trainTerminated(final int trainId) {
         Terminated terminated = Terminated.NotYet;
         if (trainIgnoreMinors[trainId]) {
@@ -514,12 +1258,71 @@ abstract class RevenueCalculator {
         
         if (trainId == finalTrain) {
             evaluateResults();
+        } else if (trainId + 1 == finalTrain && runCache != null && !callDynamicModifiers) {
+            runFinalTrainCached();
         } else {
             runTrain(trainId + 1);
         }
     }
+    
+    /**
+     * Runs the final train, unless the cache has the result for the used edges
+     */
+    private void runFinalTrainCached() {
+        int previousValue = 0;
+        for (int j = startTrain; j < finalTrain; j++) {
+            previousValue += trainCurrentValue[j];
+        }
+        
+        defineUsedEdges(usedEdges);
+        RevenueRunCache.Entry entry = runCache.get(finalTrain, usedEdges);
+        if (entry != null) {
+            if (entry.isExact()) {
+                runCache.countHit();
+                if (previousValue + entry.getValue() > currentBestValue) {
+                    storeBestRun(previousValue + entry.getValue(), entry.getRun());
+                }
+                return;
+            } else if (previousValue + entry.getValue() <= getBestValue()) {
+                runCache.countHit();
+                return;
+            }
+        }
+        runCache.countMiss();
+        
+        int bestValue = currentBestValue;
+        runTrain(finalTrain);
+        // results of a stopped search are incomplete
+        if (limits.stopped) return;
+        
+        // runs are only terminated, if they cannot exceed the best value
+        int bound = getBestValue() - previousValue;
+        if (currentBestValue > bestValue && currentBestValue - previousValue >= bound) {
+            runCache.put(finalTrain, usedEdges, currentBestValue - previousValue, true, 
+                    currentBestRun[finalTrain]);
+        } else {
+            runCache.put(finalTrain, usedEdges, bound, false, null);
+        }
+    }
+    
+    /**
+     * @return best value, including the best value of all workers of a parallel search
+     */
+    private int getBestValue() {
+        if (sharedBestValue == null) {
+            return currentBestValue;
+        } 
+        return Math.max(currentBestValue, sharedBestValue.get());
+    }
 
     protected final void evaluateResults() {
+        // check the evaluations budget
+        if (evaluationsLeft == 0 && !takeEvaluations()) {
+            stopSearch();
+            return;
+        }
+        evaluationsLeft--;
+        
         // sum to total value
         int totalValue = 0;
         for (int j = startTrain; j <= finalTrain; j++) {
@@ -537,55 +1340,91 @@ abstract class RevenueCalculator {
         if (callDynamicModifiers) totalValue += revenueAdapter.dynamicEvaluation();
         
         nbEvaluations++;
+        if ((nbEvaluations & PROGRESS_CHECK_MASK) == 0) checkTime();
         log.debug("RC: current total value " + totalValue);
         
         // compare to current best result
         if (totalValue > currentBestValue) {
-            currentBestValue = totalValue;
-            // exceed thus deep copy of vertex stack
-            for (int j = startTrainSet; j <= finalTrainSet; j++) {
-                for (int v = 0; v < nbVertexes + 1; v++) {
-                    if (v < trainStackPos[j]) {
-                        currentBestRun[j][v] = trainStack[j][v];
-                    } else {
-                        currentBestRun[j][v] = -1; // terminator
-                        break;
-                    }
+            storeBestRun(totalValue, null);
+        }
+    }
+    
+    /**
+     * Stores the current run as new best run
+     * @param finalTrainRun run of the final train (from the cache), null => use the current run 
+     */
+    private void storeBestRun(final int totalValue, final int[] finalTrainRun) {
+        // for parallel search the new result is only reported if it is the best of all workers
+        boolean reportResult = (sharedBestValue == null || updateSharedBestValue(totalValue));
+        currentBestValue = totalValue;
+        // exceed thus deep copy of vertex stack
+        for (int j = startTrainSet; j <= finalTrainSet; j++) {
+            if (j == finalTrain && finalTrainRun != null) {
+                System.arraycopy(finalTrainRun, 0, currentBestRun[j], 0, finalTrainRun.length);
+                continue;
+            }
+            for (int v = 0; v < nbVertexes + 1; v++) {
+                if (v < trainStackPos[j]) {
+                    currentBestRun[j][v] = trainStack[j][v];
+                } else {
+                    currentBestRun[j][v] = -1; // terminator
+                    break;
                 }
             }
-            log.info("RC: Found better run with " + totalValue);
-            // inform revenue listener via adapter
-            notifyRevenueAdapter(currentBestValue, false);
         }
+        log.info("RC: Found better run with " + totalValue);
+        // inform revenue listener via adapter
+        if (reportResult) notifyRevenueAdapter(currentBestValue, false);
+    }
+    
+    private boolean updateSharedBestValue(final int value) {
+        int sharedValue;
+        do {
+            sharedValue = sharedBestValue.get();
+            if (value <= sharedValue) return false;
+        } while (!sharedBestValue.compareAndSet(sharedValue, value));
+        return true;
     }
     
-    // predict revenues and returns true if best value can still be exceeded
+    // predict revenues and returns true if best value cannot be exceeded
+    // (or the search has been stopped)
     protected final boolean predictRevenues(final int trainId){
+        if (limits.stopped) return true;
+        
         // the potential revenues of the future trains
         int totalValue = 0;
         if (trainId < finalTrain)
              totalValue = maxCumulatedTrainRevenues[trainId + 1];
         
         // predict the current train
+        int[] majorRevenues = maxMajorRevenues[trainId];
+        int[] minorRevenues = maxMinorRevenues[trainId];
+        int[] bonusRevenues = maxBonusRevenues[trainId];
+        if (useReachPrediction && trainStartVertex[trainId] != -1) {
+            int startNb = vertexStartNb[trainStartVertex[trainId]];
+            majorRevenues = reachMajorRevenues[trainId][startNb];
+            minorRevenues = reachMinorRevenues[trainId][startNb];
+            bonusRevenues = reachBonusRevenues[trainId][startNb];
+        }
         int trainValue = trainCurrentValue[trainId];
         if (trainIgnoreMinors[trainId]) {
             // express train
-            trainValue += maxMajorRevenues[trainId][trainMajors[trainId]];
+            trainValue += majorRevenues[trainMajors[trainId]];
         } else {
             if (trainMinors[trainId] > 0){
-                trainValue += maxMajorRevenues[trainId][trainMajors[trainId]];
-                trainValue += maxMinorRevenues[trainId][trainMinors[trainId]];
+                trainValue += majorRevenues[trainMajors[trainId]];
+                trainValue += minorRevenues[trainMinors[trainId]];
             } else { // <= 0
                 int trainStations = trainMajors[trainId] + trainMinors[trainId];
                 // trainStations can be zero or negative (for H trains)
                 if (trainStations > 0) {
-                    trainValue += maxMajorRevenues[trainId][trainStations]; 
+                    trainValue += majorRevenues[trainStations]; 
                 }
             }
         }
         // add potential bonuses
         if (trainBonuses[trainId] != 0) {
-            trainValue += maxBonusRevenues[trainId][trainBonuses[trainId]];
+            trainValue += bonusRevenues[trainBonuses[trainId]];
         }
         log.debug("RC: Current train has predicted  value of " + trainValue);
 
@@ -610,7 +1449,15 @@ abstract class RevenueCalculator {
         nbPredictions++;
         
         boolean terminate = (totalValue <= currentBestValue);
-        if (terminate) log.debug("Run terminated due to predicted value of " +  totalValue);
+        // parallel search: use the best value of all workers
+        if (!terminate && sharedBestValue != null) {
+            terminate = (totalValue <= sharedBestValue.get());
+        }
+        if (terminate) {
+            nbPrunes++;
+            log.debug("Run terminated due to predicted value of " +  totalValue);
+        }
+        if ((nbPredictions & PROGRESS_CHECK_MASK) == 0) checkTime();
 
         return terminate;
     }
@@ -1,5 +1,7 @@
 package net.sf.rails.algorithms;
 
+import java.util.Arrays;
+
 class RevenueCalculatorMulti extends RevenueCalculator {
 
     protected final int[] edgeNbTravelSets;
@@ -29,6 +31,21 @@ class RevenueCalculatorMulti extends RevenueCalculator {
 
     }
     
+    protected RevenueCalculatorMulti (RevenueCalculatorMulti master) {
+        super(master);
+        
+        edgeNbTravelSets = master.edgeNbTravelSets;
+        edgeTravelSets = master.edgeTravelSets;
+        
+        edgeUsed = new int[nbEdges];
+        startVertexActive = new int[nbTrains];
+    }
+    
+    @Override
+    protected RevenueCalculator createWorker() {
+        return new RevenueCalculatorMulti(this);
+    }
+    
     @Override
     final void setEdge(int edgeId, boolean greedy, int distance) {
         super.setEdge(edgeId, greedy, distance);
@@ -47,22 +64,7 @@ class RevenueCalculatorMulti extends RevenueCalculator {
     protected void runTrain(final int trainId) {
         log.debug("RC: runTrain " + trainId);
         
-        // initialize value
-        trainCurrentValue[trainId] = 0;
-
-        // initialize train lengths
-        trainMajors[trainId] = trainMaxMajors[trainId];
-        trainMinors[trainId] = trainMaxMinors[trainId];
-        trainBonuses[trainId] = trainMaxBonuses[trainId];
-        
-        // initialize the positions
-        trainStackPos[trainId] = 0;
-        trainBottomActive[trainId] = false;
-        
-        // initialize bonuses
-        for (int b=0; b < nbBonuses; b++) {
-            bonusTrainVertices[b][trainId] = bonusRequiresVertices[b];
-        }
+        initTrain(trainId);
         
         // check if the revenue is enough
         if (useRevenuePrediction && predictRevenues(trainId))
@@ -72,6 +74,7 @@ class RevenueCalculatorMulti extends RevenueCalculator {
         for (int i=0; i < startVertexes.length; i++) {
             int vertexId = startVertexes[i];
             log.debug("RC: Using startVertex nr. " + i + " for train " + trainId);
+            trainStartVertex[trainId] = vertexId;
             boolean stationVertex = encounterVertex(trainId, vertexId, true);
             if (stationVertex) {
                 // train cannot terminate at start vertex
@@ -111,6 +114,8 @@ class RevenueCalculatorMulti extends RevenueCalculator {
             log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
         }
 
+        trainStartVertex[trainId] = -1;
+
         // finished all tries
         for (int i=0; i < startVertexes.length; i++) {
             // remove all of them from the visited vertex list
@@ -124,6 +129,29 @@ class RevenueCalculatorMulti extends RevenueCalculator {
 
     }
 
+    @Override
+    protected void runStartEdge(final int trainId, final int vertexId, final int edgeNb) {
+        log.debug("RC: runStartEdge " + edgeNb + " of startVertex " + vertexId + " for train " + trainId);
+        
+        trainStartVertex[trainId] = vertexId;
+        
+        boolean stationVertex = encounterVertex(trainId, vertexId, true);
+        // train cannot terminate at start vertex
+        if (!stationVertex || !useRevenuePrediction || !predictRevenues(trainId)) {
+            startVertexActive[trainId] = vertexId;
+            int edgeId = vertexEdges[vertexId][edgeNb];
+            int neighborId = vertexNeighbors[vertexId][edgeNb];
+            if (!trainVisited[trainId][neighborId]) {
+                travelEdge(trainId, edgeId);
+                trainStartEdge[trainId] = edgeNb; // store start edge
+                nextVertex(trainId, neighborId);
+                returnEdge(trainId, edgeId);
+                trainStackPos[trainId]--; // pull from stack
+            }
+        }
+        encounterVertex(trainId, vertexId, false);
+    }
+
     @Override
     final protected void runBottom(final int trainId) {
         log.debug("RC: runBottom " + trainId);
@@ -225,6 +253,14 @@ class RevenueCalculatorMulti extends RevenueCalculator {
     }
     
     
+    @Override
+    protected final void defineUsedEdges(final long[] words) {
+        Arrays.fill(words, 0);
+        for (int e = 0; e < nbEdges; e++) {
+            if (edgeUsed[e] != 0) words[e >> 6] |= 1L << e;
+        }
+    }
+    
     @Override
     protected void returnEdge(final int trainId, final int edgeId) {
           if (edgeUsed[edgeId] != 0) {
@@ -0,0 +1,409 @@
+package net.sf.rails.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * RevenueCalculatorMultiBits is an alternative to RevenueCalculatorMulti and RevenueCalculatorMultiHex.
+ *
+ * It stores the visited vertices of each train and the travelled edges as bitsets of long words.
+ * An edge cannot be travelled, if the edge itself or an edge with the edge in its travel set
+ * has been travelled already. This is checked by a word-parallel test of the travelled edges
+ * against the (sparse) conflict mask of the edge. Visit sets are (sparse) masks of vertices, too.
+ */
+final class RevenueCalculatorMultiBits extends RevenueCalculator {
+
+    // static edge data: the edge itself and all edges that have the edge in their travel set
+    private final long[][] edgeConflicts; // dimensions: nbEdges x edge words
+
+    // sparse masks, defined before the first run: indices of the non-zero words and their values
+    private int[][] edgeConflictWords;
+    private long[][] edgeConflictMasks;
+    private int[][] vertexVisitWords; // the vertex and its visit set
+    private long[][] vertexVisitMasks;
+
+    // dynamic data
+    private final long[][] trainVisitedBits; // dimensions: nbTrains x vertex words
+    private final long[] edgeTravelled;
+    private final int[] startVertexActive;
+
+    private final RevenueCalculatorMultiBits master;
+
+    public RevenueCalculatorMultiBits (RevenueAdapter revenueAdapter, int nbVertexes, int nbEdges,
+            int maxNeighbors, int maxVertexSets, int maxEdgeSets, int nbTrains, int nbBonuses) {
+
+        super(revenueAdapter, nbVertexes, nbEdges,
+                maxNeighbors, maxVertexSets, maxEdgeSets, nbTrains, nbBonuses, false);
+
+        edgeConflicts = new long[nbEdges][words(nbEdges)];
+
+        trainVisitedBits = new long[nbTrains][words(nbVertexes)];
+        edgeTravelled = new long[words(nbEdges)];
+        startVertexActive = new int[nbTrains];
+
+        master = this;
+    }
+
+    private RevenueCalculatorMultiBits (RevenueCalculatorMultiBits master) {
+        super(master);
+
+        master.defineMasks();
+        edgeConflicts = master.edgeConflicts;
+        edgeConflictWords = master.edgeConflictWords;
+        edgeConflictMasks = master.edgeConflictMasks;
+        vertexVisitWords = master.vertexVisitWords;
+        vertexVisitMasks = master.vertexVisitMasks;
+
+        trainVisitedBits = new long[nbTrains][words(nbVertexes)];
+        edgeTravelled = new long[words(nbEdges)];
+        startVertexActive = new int[nbTrains];
+
+        this.master = master;
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >> 6;
+    }
+
+    @Override
+    protected RevenueCalculator createWorker() {
+        return new RevenueCalculatorMultiBits(this);
+    }
+
+    @Override
+    final void setEdge(int edgeId, boolean greedy, int distance) {
+        super.setEdge(edgeId, greedy, distance);
+        edgeConflicts[edgeId][edgeId >> 6] |= 1L << edgeId;
+    }
+
+    // define the conflicts of the travel set
+    final void setTravelSet(int edgeId, int[] edges) {
+        for (int j=0; j < edges.length; j++) {
+            edgeConflicts[edges[j]][edgeId >> 6] |= 1L << edgeId;
+        }
+    }
+
+    /**
+     * defines the sparse masks from the static data, workers use the masks of the master
+     */
+    private synchronized void defineMasks() {
+        if (edgeConflictWords != null) return;
+
+        int[][] conflictWords = new int[nbEdges][];
+        long[][] conflictMasks = new long[nbEdges][];
+        for (int e=0; e < nbEdges; e++) {
+            conflictWords[e] = nonZeroWords(edgeConflicts[e]);
+            conflictMasks[e] = nonZeroMasks(edgeConflicts[e], conflictWords[e]);
+        }
+
+        vertexVisitWords = new int[nbVertexes][];
+        vertexVisitMasks = new long[nbVertexes][];
+        long[] visitSet = new long[words(nbVertexes)];
+        for (int v=0; v < nbVertexes; v++) {
+            Arrays.fill(visitSet, 0);
+            visitSet[v >> 6] |= 1L << v;
+            for (int j=0; j < vertexNbVisitSets[v]; j++) {
+                int vertexId = vertexVisitSets[v][j];
+                visitSet[vertexId >> 6] |= 1L << vertexId;
+            }
+            vertexVisitWords[v] = nonZeroWords(visitSet);
+            vertexVisitMasks[v] = nonZeroMasks(visitSet, vertexVisitWords[v]);
+        }
+
+        edgeConflictMasks = conflictMasks;
+        edgeConflictWords = conflictWords;
+    }
+
+    private static int[] nonZeroWords(long[] bits) {
+        int nb = 0;
+        for (int k=0; k < bits.length; k++) {
+            if (bits[k] != 0) nb++;
+        }
+        int[] words = new int[nb];
+        nb = 0;
+        for (int k=0; k < bits.length; k++) {
+            if (bits[k] != 0) words[nb++] = k;
+        }
+        return words;
+    }
+
+    private static long[] nonZeroMasks(long[] bits, int[] words) {
+        long[] masks = new long[words.length];
+        for (int k=0; k < words.length; k++) {
+            masks[k] = bits[words[k]];
+        }
+        return masks;
+    }
+
+    private boolean isVisited(final int trainId, final int vertexId) {
+        return (trainVisitedBits[trainId][vertexId >> 6] & (1L << vertexId)) != 0;
+    }
+
+    /**
+     * @return true if the edge or an edge with the edge in its travel set has been travelled
+     */
+    private boolean isEdgeBlocked(final int edgeId) {
+        final int[] words = edgeConflictWords[edgeId];
+        final long[] masks = edgeConflictMasks[edgeId];
+        for (int k=0; k < words.length; k++) {
+            if ((edgeTravelled[words[k]] & masks[k]) != 0) return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected final void visitVertex(final int trainId, final int vertexId, final boolean arrive) {
+        final long[] visited = trainVisitedBits[trainId];
+        final int[] words = vertexVisitWords[vertexId];
+        final long[] masks = vertexVisitMasks[vertexId];
+        if (arrive) {
+            for (int k=0; k < words.length; k++) {
+                visited[words[k]] |= masks[k];
+            }
+        } else {
+            for (int k=0; k < words.length; k++) {
+                visited[words[k]] &= ~masks[k];
+            }
+        }
+    }
+
+    @Override
+    protected final void setVisited(final int trainId, final int vertexId, final boolean visited) {
+        if (visited) {
+            trainVisitedBits[trainId][vertexId >> 6] |= 1L << vertexId;
+        } else {
+            trainVisitedBits[trainId][vertexId >> 6] &= ~(1L << vertexId);
+        }
+    }
+
+    @Override
+    protected final boolean isDistanceLimited(final int trainId) {
+        return trainIsH[trainId];
+    }
+
+    @Override
+    protected final void runTrain(final int trainId) {
+        log.debug("RC: runTrain " + trainId);
+
+        if (edgeConflictWords == null) master.defineMasks();
+        initTrain(trainId);
+        // init train distance
+        if (trainIsH[trainId]) {
+            trainDistance[trainId] = trainMaxMajors[trainId];
+        }
+
+        // check if the revenue is enough
+        if (useRevenuePrediction && predictRevenues(trainId))
+            return;
+
+        // try all startVertexes
+        for (int i=0; i < startVertexes.length; i++) {
+            int vertexId = startVertexes[i];
+            log.debug("RC: Using startVertex nr. " + i + " for train " + trainId);
+            trainStartVertex[trainId] = vertexId;
+            boolean stationVertex = encounterVertex(trainId, vertexId, true);
+            if (stationVertex) {
+                // train cannot terminate at start vertex
+                if (useRevenuePrediction && predictRevenues(trainId)) {
+                    // cannot beat current best value => leave immediately
+                    encounterVertex(trainId, vertexId, false);
+                    // but keep them on the visited vertex list to avoid route duplication
+                    setVisited(trainId, vertexId, true);
+                    log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
+                    continue;
+                }
+            }
+
+            // then try all edges of it
+            startVertexActive[trainId] = vertexId;
+            // for startVertices the sink property is ignored
+            for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
+                int edgeId = vertexEdges[vertexId][j];
+                if (isEdgeBlocked(edgeId)) continue;
+                log.debug("RC: Testing Neighbor Nr. " + j + " of startVertex");
+                int neighborId = vertexNeighbors[vertexId][j];
+                if (isVisited(trainId, neighborId)) {
+                    log.debug("RC: Hex already visited");
+                    continue;
+                }
+                travelEdge(trainId, edgeId);
+                trainStartEdge[trainId] = j; // store start edge
+                nextVertex(trainId, neighborId);
+                returnEdge(trainId, edgeId);
+                trainStackPos[trainId]--; // pull from stack
+            }
+
+            // no more edges to find
+            encounterVertex(trainId, vertexId, false);
+            // keep them on the visited vertex list to avoid route duplication
+            setVisited(trainId, vertexId, true);
+            log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
+        }
+
+        trainStartVertex[trainId] = -1;
+
+        // finished all tries
+        for (int i=0; i < startVertexes.length; i++) {
+            // remove all of them from the visited vertex list
+            setVisited(trainId, startVertexes[i], false);
+        }
+
+        // allow that the train does not run at all
+        finalizeVertex(trainId, -1);
+
+        log.debug("RC: finishTrain " + trainId);
+    }
+
+    @Override
+    protected final void runStartEdge(final int trainId, final int vertexId, final int edgeNb) {
+        log.debug("RC: runStartEdge " + edgeNb + " of startVertex " + vertexId + " for train " + trainId);
+
+        if (edgeConflictWords == null) master.defineMasks();
+        // init train distance
+        if (trainIsH[trainId]) {
+            trainDistance[trainId] = trainMaxMajors[trainId];
+        }
+        trainStartVertex[trainId] = vertexId;
+
+        boolean stationVertex = encounterVertex(trainId, vertexId, true);
+        // train cannot terminate at start vertex
+        if (!stationVertex || !useRevenuePrediction || !predictRevenues(trainId)) {
+            startVertexActive[trainId] = vertexId;
+            int edgeId = vertexEdges[vertexId][edgeNb];
+            int neighborId = vertexNeighbors[vertexId][edgeNb];
+            if (!isVisited(trainId, neighborId)) {
+                travelEdge(trainId, edgeId);
+                trainStartEdge[trainId] = edgeNb; // store start edge
+                nextVertex(trainId, neighborId);
+                returnEdge(trainId, edgeId);
+                trainStackPos[trainId]--; // pull from stack
+            }
+        }
+        encounterVertex(trainId, vertexId, false);
+    }
+
+    @Override
+    protected final void runBottom(final int trainId) {
+        log.debug("RC: runBottom " + trainId);
+
+        // use startvertex, check if it is a sink
+        int vertexId = startVertexActive[trainId];
+        if (vertexSink[vertexId]) {
+            log.debug("RC: startvertex is sink, finished bottom of " + trainId);
+            return;
+        }
+
+        trainBottomActive[trainId] = true;
+        log.debug("RC: Restart at bottom at stack position " + trainStackPos[trainId]);
+
+        for (int j = trainStartEdge[trainId] + 1; j < vertexNbNeighbors[vertexId]; j++) {
+            int edgeId = vertexEdges[vertexId][j];
+            if (isEdgeBlocked(edgeId)) continue;
+            int neighborId = vertexNeighbors[vertexId][j];
+            log.debug("RC: Testing Neighbor Nr. " + j + " of bottomVertex is " + neighborId);
+            if (isVisited(trainId, neighborId)) {
+                log.debug(" RC: Hex already visited");
+                continue;
+            }
+            travelEdge(trainId, edgeId);
+            nextVertex(trainId, neighborId);
+            returnEdge(trainId, edgeId);
+            trainStackPos[trainId]--; // pull from stack
+        }
+
+        trainBottomActive[trainId] = false;
+        log.debug("RC: finished bottom of " + trainId);
+    }
+
+    private void nextVertex(final int trainId, final int vertexId) {
+
+        // 1. encounterVertex adds value and returns true if value vertex
+        Terminated trainTerminated = Terminated.NotYet;
+        boolean stationVertex = encounterVertex(trainId, vertexId, true);
+        if (stationVertex) {
+            // check usual train termination
+            trainTerminated = trainTerminated(trainId);
+            if (trainTerminated == Terminated.WithoutEvaluation ||
+                    useRevenuePrediction && predictRevenues(trainId)) {
+                // cannot beat current best value => leave immediately
+                encounterVertex(trainId, vertexId, false);
+                return;
+            }
+        }
+
+        // 2a. visit neighbors, if train has not terminated and vertex is not a sink
+        if (trainTerminated == Terminated.NotYet) {
+            if (!vertexSink[vertexId]) {
+                for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
+                    int edgeId = vertexEdges[vertexId][j];
+                    if (isEdgeBlocked(edgeId)) continue;
+                    int neighborId = vertexNeighbors[vertexId][j];
+                    log.debug("RC: Testing Neighbor Nr. " + j + " of " + vertexId + " is " + neighborId);
+                    if (isVisited(trainId, neighborId)) {
+                        log.debug("RC: Hex already visited");
+                        continue;
+                    }
+                    travelEdge(trainId, edgeId);
+                    nextVertex(trainId, neighborId);
+                    returnEdge(trainId, edgeId);
+                    trainStackPos[trainId]--; // pull from stack
+                }
+            }
+            // 2b. restart at startVertex for bottom part
+            if (stationVertex && !trainBottomActive[trainId]){
+                runBottom(trainId);
+            }
+        }
+
+        // 3. no more edges to visit from here => evaluate or start new train
+        if (stationVertex)
+            finalizeVertex(trainId, vertexId);
+
+        // 4. then leave that vertex
+        encounterVertex(trainId, vertexId, false);
+    }
+
+    private void travelEdge(final int trainId, final int edgeId) {
+        log.debug("RC: Travel edge id " + edgeId);
+        edgeTravelled[edgeId >> 6] |= 1L << edgeId;
+        trainStack[trainId][trainStackPos[trainId]++] = edgeId; // push to stack
+        countEdges++; nbEdgesTravelled++;
+        trainDistance[trainId] -= edgeDistance[edgeId];
+        log.debug("RC: Count Edges = " + countEdges);
+    }
+
+    @Override
+    protected final void returnEdge(final int trainId, final int edgeId) {
+        long bit = 1L << edgeId;
+        if ((edgeTravelled[edgeId >> 6] & bit) != 0) {
+            edgeTravelled[edgeId >> 6] &= ~bit;
+            countEdges--;
+            trainDistance[trainId] += edgeDistance[edgeId];
+            log.debug("RC: Cleared edge id " + edgeId);
+            log.debug("RC: Count Edges = " + countEdges);
+        } else {
+            log.debug("RC: Error return edge id used: " + edgeId);
+        }
+    }
+
+    @Override
+    protected final void defineUsedEdges(final long[] words) {
+        System.arraycopy(edgeTravelled, 0, words, 0, words.length);
+    }
+
+    @Override
+    protected final Terminated trainTerminated(final int trainId) {
+        if (!trainIsH[trainId]) { // other trains use standard termination method
+            return super.trainTerminated(trainId);
+        } else {
+            // H-train can always travel a zero distance to a next node
+            // thus always check until negative distance
+            if (trainDistance[trainId] < 0){
+                log.debug ("RC: H-Train " + trainId + " has terminated: " +
+                        "distance = " + trainDistance[trainId]);
+                return Terminated.WithoutEvaluation;
+            } else {
+                return Terminated.NotYet;
+            }
+        }
+    }
+}
@@ -10,6 +10,29 @@ class RevenueCalculatorMultiHex extends RevenueCalculatorMulti {
 
     }
 
+    private RevenueCalculatorMultiHex (RevenueCalculatorMultiHex master) {
+        super(master);
+    }
+
+    @Override
+    protected RevenueCalculator createWorker() {
+        return new RevenueCalculatorMultiHex(this);
+    }
+
+    @Override
+    protected boolean isDistanceLimited(int trainId) {
+        return trainIsH[trainId];
+    }
+
+    @Override
+    protected void runStartEdge(int trainId, int vertexId, int edgeNb) {
+        // init train distance
+        if (trainIsH[trainId]) {
+            trainDistance[trainId] = trainMaxMajors[trainId];
+        }
+        super.runStartEdge(trainId, vertexId, edgeNb);
+    }
+
     @Override
     protected void runTrain(int trainId) {
         // init train distance
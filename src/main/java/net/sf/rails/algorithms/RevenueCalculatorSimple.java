@@ -1,5 +1,7 @@
 package net.sf.rails.algorithms;
 
+import java.util.Arrays;
+
 final class RevenueCalculatorSimple extends RevenueCalculator {
 
     // dynamic edge data
@@ -17,26 +19,21 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
 
     }
     
+    private RevenueCalculatorSimple (RevenueCalculatorSimple master) {
+        super(master);
+        edgeUsed = new boolean[nbEdges];
+    }
+    
+    @Override
+    protected RevenueCalculator createWorker() {
+        return new RevenueCalculatorSimple(this);
+    }
+    
    @Override
    protected final void runTrain(final int trainId) {
         log.debug("RC: runTrain " + trainId);
         
-        // initialize value
-        trainCurrentValue[trainId] = 0;
-
-        // initialize train lengths
-        trainMajors[trainId] = trainMaxMajors[trainId];
-        trainMinors[trainId] = trainMaxMinors[trainId];
-        trainBonuses[trainId] = trainMaxBonuses[trainId];
-        
-        // initialize the positions
-        trainStackPos[trainId] = 0;
-        trainBottomActive[trainId] = false;
-        
-        // initialize bonuses
-        for (int b=0; b < nbBonuses; b++) {
-            bonusTrainVertices[b][trainId] = bonusRequiresVertices[b];
-        }
+        initTrain(trainId);
         
         // check if the revenue is enough
         if (useRevenuePrediction && predictRevenues(trainId))
@@ -46,6 +43,7 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
         for (int i=0; i < startVertexes.length; i++) {
             int vertexId = startVertexes[i];
             log.debug("RC: Using startVertex nr. " + i + " for train " + trainId);
+            trainStartVertex[trainId] = vertexId;
             boolean stationVertex = encounterVertex(trainId, vertexId, true);
             trainStack[trainId][trainStackPos[trainId]++] = vertexId; // push to stack
             if (stationVertex) {
@@ -87,6 +85,8 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
             log.debug("RC: finished startVertex " + vertexId + " for train " +trainId);
         }
 
+        trainStartVertex[trainId] = -1;
+
         // finished all tries
         for (int i=0; i < startVertexes.length; i++) {
             // remove all of them from the visited vertex list
@@ -99,6 +99,28 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
         log.debug("RC: finishTrain " + trainId);
     }
 
+   @Override
+   protected final void runStartEdge(final int trainId, final int vertexId, final int edgeNb) {
+       log.debug("RC: runStartEdge " + edgeNb + " of startVertex " + vertexId + " for train " + trainId);
+
+       trainStartVertex[trainId] = vertexId;
+
+       boolean stationVertex = encounterVertex(trainId, vertexId, true);
+       trainStack[trainId][trainStackPos[trainId]++] = vertexId; // push to stack
+       // train cannot terminate at start vertex
+       if (!stationVertex || !useRevenuePrediction || !predictRevenues(trainId)) {
+           int edgeId = vertexEdges[vertexId][edgeNb];
+           int neighborId = vertexNeighbors[vertexId][edgeNb];
+           if (!trainVisited[trainId][neighborId] && travelEdge(trainId, edgeId, true)) {
+               trainStartEdge[trainId] = edgeNb; // store start edge
+               nextVertex(trainId, neighborId, edgeGreedy[edgeId]);
+               returnEdge(trainId, edgeId);
+           }
+       }
+       encounterVertex(trainId, vertexId, false);
+       trainStackPos[trainId]--; // pull from stack
+   }
+
    @Override
    protected final void runBottom(final int trainId) {
        log.debug("RC: runBottom " +trainId);
@@ -209,6 +231,14 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
        }
    }
    
+   @Override
+   protected final void defineUsedEdges(final long[] words) {
+       Arrays.fill(words, 0);
+       for (int e = 0; e < nbEdges; e++) {
+           if (edgeUsed[e]) words[e >> 6] |= 1L << e;
+       }
+   }
+   
    @Override
    protected final void returnEdge(final int trainId, final int edgeId) {
        if (edgeUsed[edgeId]) {
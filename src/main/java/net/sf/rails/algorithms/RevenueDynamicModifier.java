@@ -25,14 +25,22 @@ public interface RevenueDynamicModifier {
     /** 
      * Allows to change the value for the prediction
      * If several dynamic modifiers are active simultaneously, their prediction values are added up.  
-     * @param runs Current run of the revenue calculator
+     * @param run View on the current run of the revenue calculator
      * @return value used to change the prediction
      */
-    public int predictionValue(List<RevenueTrainRun> runs);
+    public int predictionValue(RevenueRunView run);
+    
+    /** 
+     * Allows to change the value for the current run of the revenue calculator
+     * This is called for each evaluation during the optimization, thus it should not create objects. 
+     * @param run View on the current run of the revenue calculator
+     * @return value used to change the run results
+     */
+    public int evaluationValue(RevenueRunView run);
     
     /** 
      * Allows to change the value for the supplied runs from the revenue calculator
-     * @param runs Current run of the revenue calculator
+     * @param runs Converted runs (e.g. the optimal run) of the revenue calculator
      * @param optimalRuns true => after optimization, false => during optimization
      * @return value used to change the run results
      */
@@ -2,4 +2,10 @@ package net.sf.rails.algorithms;
 
 public interface RevenueListener {
     public void revenueUpdate(int revenue, boolean finalResult);
+    
+    /**
+     * Called periodically during the calculation, if a progress interval is set 
+     * at the RevenueAdapter, and after the calculation has finished
+     */
+    public void revenueProgress(RevenueStatistics statistics);
 }
@@ -161,6 +161,10 @@ public final class RevenueManager extends RailsManager implements Configurable {
         return result;
     }
 
+    List<RevenueDynamicModifier> getDynamicModifiers() {
+        return dynamicModifiers.view();
+    }
+
     void activateMapGraphModifiers(NetworkGraph graph) {
         for (NetworkGraphModifier modifier:graphModifiers.view()) {
             modifier.modifyMapGraph(graph);
@@ -233,16 +237,29 @@ public final class RevenueManager extends RailsManager implements Configurable {
      }
 
     /**
+     * @param run view on the current run of the revenue calculator
+     * @return total value of dynamic modifiers
+     */
+    int evaluationValue(RevenueRunView run) {
+        int value = 0;
+        // index loop avoids the iterator, as this is called in the inner loop of the calculator
+        for (int i=0; i < activeDynamicModifiers.size(); i++) {
+            value += activeDynamicModifiers.get(i).evaluationValue(run);
+        }
+        return value;
+    }
+
+    /**
+     * @param run view on the current run of the revenue calculator
      * @return total prediction value of dynamic modifiers
      */
-    int predictionValue(List<RevenueTrainRun> run) {
-        // do not change the optimal run!
-         int value = 0;
-         for (RevenueDynamicModifier modifier:activeDynamicModifiers) {
-             value += modifier.predictionValue(run);
-         }
-         return value;
-     }
+    int predictionValue(RevenueRunView run) {
+        int value = 0;
+        for (int i=0; i < activeDynamicModifiers.size(); i++) {
+            value += activeDynamicModifiers.get(i).predictionValue(run);
+        }
+        return value;
+    }
     
     /**
      * 
@@ -0,0 +1,143 @@
+package net.sf.rails.algorithms;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RevenueRunCache stores the results of the runs of a single train
+ * for the edges used by the other trains.
+ *
+ * The revenue calculator runs the final train of a train set again for each run
+ * of the previous trains. The result only depends on the edges that are already used,
+ * thus identical searches are answered from the cache.
+ * This applies to the prediction runs and the final calculation and to repeated calculations.
+ *
+ * An entry is either exact (the best value and its run) or an upper bound of the best value.
+ * The number of entries is limited, the least recently used entries are removed first.
+ *
+ * All methods are synchronized, as the workers of a parallel search share the cache.
+ */
+final class RevenueRunCache {
+
+    /**
+     * Result of the runs of a train
+     */
+    static final class Entry {
+        private final int value;
+        private final boolean exact;
+        private final int[] run;
+
+        private Entry(int value, boolean exact, int[] run) {
+            this.value = value;
+            this.exact = exact;
+            this.run = run;
+        }
+
+        /**
+         * @return best value if exact, otherwise upper bound of the best value
+         */
+        int getValue() {
+            return value;
+        }
+
+        boolean isExact() {
+            return exact;
+        }
+
+        /**
+         * @return stack of the best run (terminated by -1), null if not exact
+         */
+        int[] getRun() {
+            return run;
+        }
+    }
+
+    private static final class Key {
+        private final int trainId;
+        private final long[] usedEdges;
+        private final int hash;
+
+        private Key(int trainId, long[] usedEdges) {
+            this.trainId = trainId;
+            this.usedEdges = usedEdges;
+            this.hash = 31 * trainId + Arrays.hashCode(usedEdges);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Key)) return false;
+            Key key = (Key)other;
+            return trainId == key.trainId && Arrays.equals(usedEdges, key.usedEdges);
+        }
+    }
+
+    private final Map<Key, RevenueRunCache.Entry> entries;
+
+    private long hits;
+    private long misses;
+
+    RevenueRunCache(final int maxEntries) {
+        entries = new LinkedHashMap<Key, RevenueRunCache.Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, RevenueRunCache.Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param usedEdges bitset of the used edges, is not stored
+     * @return entry for the train and the used edges, null if there is none
+     */
+    synchronized Entry get(int trainId, long[] usedEdges) {
+        return entries.get(new Key(trainId, usedEdges));
+    }
+
+    /**
+     * @param usedEdges bitset of the used edges, a copy is stored
+     * @param run stack of the best run (terminated by -1) if exact, a copy is stored
+     */
+    synchronized void put(int trainId, long[] usedEdges, int value, boolean exact, int[] run) {
+        int[] runCopy = null;
+        if (exact) {
+            int length = 0;
+            while (run[length] != -1) length++;
+            runCopy = Arrays.copyOf(run, length + 1);
+        }
+        entries.put(new Key(trainId, usedEdges.clone()), new Entry(value, exact, runCopy));
+    }
+
+    synchronized void countHit() {
+        hits++;
+    }
+
+    synchronized void countMiss() {
+        misses++;
+    }
+
+    /**
+     * @return number of searches answered by the cache
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of searches that were not answered by the cache
+     */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,318 @@
+package net.sf.rails.algorithms;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * RevenueRunView is a reusable view on the current run of the revenue calculator.
+ *
+ * It allows dynamic modifiers to evaluate runs during the calculation
+ * without the conversion into {@link RevenueTrainRun} objects.
+ * Vertices are identified by the ids of the revenue calculator,
+ * which are ordered by {@link NetworkVertex.ValueOrder}.
+ * Trains are identified by their index in the list of trains of the RevenueAdapter.
+ *
+ * The view is only valid during the call of the dynamic modifier.
+ */
+public final class RevenueRunView {
+
+    protected static Logger log =
+            LoggerFactory.getLogger(RevenueRunView.class);
+
+    private final RevenueCalculator rc;
+    private final List<NetworkTrain> trains;
+    private final List<NetworkVertex> vertices;
+    private final Map<NetworkVertex, Integer> vertexIds;
+
+    // multigraph: the calculator stores edges, which are converted to vertices
+    private final boolean useEdges;
+    private final int[] edgeSource;
+    private final int[] edgeTarget;
+
+    // run data
+    private final int[][] runVertices;
+    private final int[] runLength;
+    private final boolean[] runConverted;
+
+    // buffer for bonus evaluation
+    private final int[] bonusCount;
+
+    RevenueRunView(RevenueCalculator rc, List<NetworkTrain> trains, List<NetworkVertex> vertices,
+            List<NetworkEdge> edges, boolean useEdges) {
+        this.rc = rc;
+        this.trains = trains;
+        this.vertices = vertices;
+        this.useEdges = useEdges;
+
+        vertexIds = new HashMap<NetworkVertex, Integer>();
+        for (int id=0; id < vertices.size(); id++) {
+            vertexIds.put(vertices.get(id), id);
+        }
+
+        runVertices = new int[rc.nbTrains][];
+        if (useEdges) {
+            edgeSource = new int[edges.size()];
+            edgeTarget = new int[edges.size()];
+            for (int id=0; id < edges.size(); id++) {
+                edgeSource[id] = vertexIds.get(edges.get(id).getSource());
+                edgeTarget[id] = vertexIds.get(edges.get(id).getTarget());
+            }
+
+            // a bottom run adds the start vertex twice
+            for (int j=0; j < rc.nbTrains; j++) {
+                runVertices[j] = new int[rc.nbVertexes + 3];
+            }
+        } else {
+            edgeSource = null;
+            edgeTarget = null;
+            // the calculator stack contains the vertices already
+            for (int j=0; j < rc.nbTrains; j++) {
+                runVertices[j] = rc.trainStack[j];
+            }
+        }
+        runLength = new int[rc.nbTrains];
+        runConverted = new boolean[rc.nbTrains];
+
+        bonusCount = new int[rc.nbBonuses];
+    }
+
+    /**
+     * invalidates the run data, called before each use by the dynamic modifiers
+     */
+    void reset() {
+        Arrays.fill(runConverted, false);
+    }
+
+    public int getNbTrains() {
+        return rc.nbTrains;
+    }
+
+    public NetworkTrain getTrain(int trainId) {
+        return trains.get(trainId);
+    }
+
+    public int getNbVertices() {
+        return rc.nbVertexes;
+    }
+
+    public NetworkVertex getVertex(int vertexId) {
+        return vertices.get(vertexId);
+    }
+
+    /**
+     * @return vertex id, -1 if the vertex is not part of the calculator graph
+     */
+    public int getVertexId(NetworkVertex vertex) {
+        Integer id = vertexIds.get(vertex);
+        if (id == null) return -1;
+        return id;
+    }
+
+    public boolean isMajor(int vertexId) {
+        return rc.vertexMajor[vertexId];
+    }
+
+    public boolean isMinor(int vertexId) {
+        return rc.vertexMinor[vertexId];
+    }
+
+    /**
+     * @return number of vertices in the run of the train (the start vertex is repeated for bottom runs)
+     */
+    public int getRunLength(int trainId) {
+        convertRun(trainId);
+        return runLength[trainId];
+    }
+
+    /**
+     * @return vertex id at the position of the run
+     */
+    public int getRunVertex(int trainId, int index) {
+        convertRun(trainId);
+        return runVertices[trainId][index];
+    }
+
+    /**
+     * returns true if train has a valid run (at least two vertices)
+     */
+    public boolean hasAValidRun(int trainId) {
+        return getRunLength(trainId) >= 2;
+    }
+
+    /**
+     * returns the vertex id of the initial base token of the train run
+     */
+    public int getBaseVertex(int trainId) {
+        return getRunVertex(trainId, 0);
+    }
+
+    /**
+     * returns the vertex id of the first vertex of a train run
+     */
+    public int getFirstVertex(int trainId) {
+        int length = getRunLength(trainId);
+        int[] run = runVertices[trainId];
+        int startVertex = run[0];
+        for (int v=1; v < length; v++) {
+            if (run[v] == startVertex) return run[v-1];
+        }
+        return startVertex;
+    }
+
+    /**
+     * returns the vertex id of the last vertex of a train run
+     */
+    public int getLastVertex(int trainId) {
+        return getRunVertex(trainId, getRunLength(trainId) - 1);
+    }
+
+    public boolean containsVertex(int trainId, int vertexId) {
+        int length = getRunLength(trainId);
+        int[] run = runVertices[trainId];
+        for (int v=0; v < length; v++) {
+            if (run[v] == vertexId) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param buffer receives the vertex ids, requires at least the run length
+     * @return number of unique vertices, those are sorted by value order
+     */
+    public int getUniqueVertices(int trainId, int[] buffer) {
+        int length = getRunLength(trainId);
+        if (length == 0) return 0;
+        System.arraycopy(runVertices[trainId], 0, buffer, 0, length);
+        Arrays.sort(buffer, 0, length);
+        int unique = 1;
+        for (int v=1; v < length; v++) {
+            if (buffer[v] != buffer[unique-1]) {
+                buffer[unique++] = buffer[v];
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * @return value of the run, including all revenue bonuses defined in the calculator
+     */
+    public int getRunValue(int trainId) {
+        if (getRunLength(trainId) == 0) return 0;
+        return rc.trainCurrentValue[trainId];
+    }
+
+    /**
+     * @param vertexIds defines a set of vertices (without duplicates) that are used to calculate the run value
+     * @param length number of vertices used from vertexIds
+     * @return total value of the vertices in the list
+     * This includes all revenue bonuses defined in the calculator
+     */
+    public int getRunValueForVertices(int trainId, int[] vertexIds, int length) {
+        int value = 0;
+        Arrays.fill(bonusCount, 0);
+        for (int v=0; v < length; v++) {
+            int vertexId = vertexIds[v];
+            value += rc.vertexValueByTrain[vertexId][trainId];
+            // check revenueBonuses (complex)
+            for (int j=0; j < rc.vertexNbBonusSets[vertexId]; j++) {
+                int bonusId = rc.vertexBonusSets[vertexId][j];
+                if (!rc.bonusActiveForTrain[bonusId][trainId]) continue;
+                if (++bonusCount[bonusId] == rc.bonusRequiresVertices[bonusId]) {
+                    value += rc.bonusValue[bonusId];
+                }
+            }
+        }
+        return value;
+    }
+
+    private void convertRun(int trainId) {
+        if (runConverted[trainId]) return;
+        runConverted[trainId] = true;
+
+        // trains outside the current train set do not run
+        if (trainId < rc.startTrainSet || trainId > rc.finalTrainSet) {
+            runLength[trainId] = 0;
+            return;
+        }
+
+        if (!useEdges) {
+            runLength[trainId] = rc.trainStackPos[trainId];
+            return;
+        }
+
+        // defines the vertices from the list of edges, see RevenueTrainRun.convertEdgesToVertices
+        int[] edges = rc.trainStack[trainId];
+        int nbEdges = rc.trainStackPos[trainId];
+        int[] run = runVertices[trainId];
+        int length = 0;
+
+        if (nbEdges == 0) {
+            runLength[trainId] = 0;
+            return;
+        }
+
+        int previousEdge = edges[0];
+        int startVertex = -1;
+        for (int e=1; e < nbEdges; e++) {
+            int edge = edges[e];
+            // check if the current edge has a common vertex with the previous one
+            int commonVertex = getCommonVertex(edge, previousEdge);
+            if (startVertex == -1) {
+                if (commonVertex != -1) {
+                    startVertex = getOtherVertex(previousEdge, commonVertex);
+                    run[length++] = startVertex;
+                    run[length++] = commonVertex;
+                } else {
+                    log.error("Error in revenue run view: cannot identify startVertex");
+                    runLength[trainId] = 0;
+                    return;
+                }
+            } else {
+                if (commonVertex != -1) {
+                    run[length++] = commonVertex;
+                } else {
+                    // otherwise it is bottom run
+                    run[length] = getOtherVertex(previousEdge, run[length-1]);
+                    length++;
+                    run[length++] = startVertex;
+                }
+            }
+            previousEdge = edge;
+        }
+        if (length == 0) {
+            // 1-edge routes
+            run[length++] = edgeSource[previousEdge];
+            run[length++] = edgeTarget[previousEdge];
+        } else {
+            // add the last vertex of the route
+            run[length] = getOtherVertex(previousEdge, run[length-1]);
+            length++;
+        }
+        runLength[trainId] = length;
+    }
+
+    private int getOtherVertex(int edgeId, int vertexId) {
+        if (edgeSource[edgeId] == vertexId) {
+            return edgeTarget[edgeId];
+        } else if (edgeTarget[edgeId] == vertexId) {
+            return edgeSource[edgeId];
+        }
+        return -1;
+    }
+
+    /** gets common vertex, if both source and target are common, returns source of the edge */
+    private int getCommonVertex(int edgeId, int otherEdgeId) {
+        if (edgeSource[edgeId] == edgeSource[otherEdgeId] || edgeSource[edgeId] == edgeTarget[otherEdgeId]) {
+            return edgeSource[edgeId];
+        } else if (edgeTarget[edgeId] == edgeSource[otherEdgeId] || edgeTarget[edgeId] == edgeTarget[otherEdgeId]) {
+            return edgeTarget[edgeId];
+        }
+        return -1;
+    }
+
+}
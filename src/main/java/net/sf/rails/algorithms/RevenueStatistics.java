@@ -0,0 +1,272 @@
+package net.sf.rails.algorithms;
+
+import java.util.List;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * RevenueStatistics is an immutable snapshot of the statistics of a revenue calculation.
+ *
+ * It is created by the revenue calculator for progress reports and after the calculation,
+ * counters include all runs of the calculation (prediction runs and the final run).
+ */
+public final class RevenueStatistics {
+
+    /**
+     * Type of a run of the calculator
+     */
+    public static enum RunType {
+        PREDICTION_SINGLE,
+        PREDICTION_COMBINED,
+        CALCULATION
+    }
+
+    /**
+     * A new best value found by the calculator
+     */
+    public static final class Improvement {
+        private final int startTrain;
+        private final int finalTrain;
+        private final int value;
+        private final long nanos;
+
+        Improvement(int startTrain, int finalTrain, int value, long nanos) {
+            this.startTrain = startTrain;
+            this.finalTrain = finalTrain;
+            this.value = value;
+            this.nanos = nanos;
+        }
+
+        public int getStartTrain() {
+            return startTrain;
+        }
+
+        public int getFinalTrain() {
+            return finalTrain;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        /**
+         * @return time since start of the calculation in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("trains", startTrain + "-" + finalTrain)
+                    .add("value", value).add("ms", nanos / 1000000).toString();
+        }
+    }
+
+    /**
+     * A completed run of the calculator for a set of trains
+     */
+    public static final class TrainSetRun {
+        private final RunType type;
+        private final int startTrain;
+        private final int finalTrain;
+        private final int bestValue;
+        private final long nanos;
+        private final long evaluations;
+        private final long predictions;
+
+        TrainSetRun(RunType type, int startTrain, int finalTrain, int bestValue, long nanos,
+                long evaluations, long predictions) {
+            this.type = type;
+            this.startTrain = startTrain;
+            this.finalTrain = finalTrain;
+            this.bestValue = bestValue;
+            this.nanos = nanos;
+            this.evaluations = evaluations;
+            this.predictions = predictions;
+        }
+
+        public RunType getType() {
+            return type;
+        }
+
+        public int getStartTrain() {
+            return startTrain;
+        }
+
+        public int getFinalTrain() {
+            return finalTrain;
+        }
+
+        public int getBestValue() {
+            return bestValue;
+        }
+
+        /**
+         * @return elapsed time of the run in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getEvaluations() {
+            return evaluations;
+        }
+
+        public long getPredictions() {
+            return predictions;
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("type", type)
+                    .add("trains", startTrain + "-" + finalTrain).add("best", bestValue)
+                    .add("ms", nanos / 1000000).add("evaluations", evaluations)
+                    .add("predictions", predictions).toString();
+        }
+    }
+
+    // graph size
+    private final int nbVertices;
+    private final int nbEdges;
+    private final int nbTrains;
+
+    // counters
+    private final long evaluations;
+    private final long predictions;
+    private final long prunes;
+    private final long edgesTravelled;
+    private final long cacheHits;
+    private final long cacheMisses;
+
+    // results
+    private final int bestValue;
+    private final long elapsedNanos;
+    private final boolean finalResult;
+    private final boolean optimal;
+    private final ImmutableList<Improvement> improvements;
+    private final ImmutableList<TrainSetRun> trainSetRuns;
+
+    RevenueStatistics(int nbVertices, int nbEdges, int nbTrains,
+            long evaluations, long predictions, long prunes, long edgesTravelled,
+            long cacheHits, long cacheMisses,
+            int bestValue, long elapsedNanos, boolean finalResult, boolean optimal,
+            List<Improvement> improvements, List<TrainSetRun> trainSetRuns) {
+        this.nbVertices = nbVertices;
+        this.nbEdges = nbEdges;
+        this.nbTrains = nbTrains;
+        this.evaluations = evaluations;
+        this.predictions = predictions;
+        this.prunes = prunes;
+        this.edgesTravelled = edgesTravelled;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.bestValue = bestValue;
+        this.elapsedNanos = elapsedNanos;
+        this.finalResult = finalResult;
+        this.optimal = optimal;
+        this.improvements = ImmutableList.copyOf(improvements);
+        this.trainSetRuns = ImmutableList.copyOf(trainSetRuns);
+    }
+
+    public int getNbVertices() {
+        return nbVertices;
+    }
+
+    public int getNbEdges() {
+        return nbEdges;
+    }
+
+    public int getNbTrains() {
+        return nbTrains;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    public long getPredictions() {
+        return predictions;
+    }
+
+    /**
+     * @return number of predictions that terminated a run
+     */
+    public long getPrunes() {
+        return prunes;
+    }
+
+    public long getEdgesTravelled() {
+        return edgesTravelled;
+    }
+
+    /**
+     * @return number of runs of the final train answered by the run cache
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * @return number of runs of the final train not answered by the run cache
+     */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * @return best value of the current (or latest) run
+     */
+    public int getBestValue() {
+        return bestValue;
+    }
+
+    /**
+     * @return time since start of the calculation in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return true if the calculation has finished
+     */
+    public boolean isFinalResult() {
+        return finalResult;
+    }
+
+    /**
+     * @return true if the calculation has finished without reaching a limit and without cancellation,
+     * thus the best value is proven to be optimal
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /**
+     * @return all new best values reported by the calculator
+     */
+    public ImmutableList<Improvement> getImprovements() {
+        return improvements;
+    }
+
+    /**
+     * @return all completed runs (prediction runs and final run)
+     */
+    public ImmutableList<TrainSetRun> getTrainSetRuns() {
+        return trainSetRuns;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("vertices", nbVertices).add("edges", nbEdges)
+                .add("trains", nbTrains).add("evaluations", evaluations)
+                .add("predictions", predictions).add("prunes", prunes)
+                .add("edgesTravelled", edgesTravelled).add("cacheHits", cacheHits)
+                .add("cacheMisses", cacheMisses).add("best", bestValue)
+                .add("ms", elapsedNanos / 1000000).add("final", finalResult)
+                .add("optimal", optimal).toString();
+    }
+
+}
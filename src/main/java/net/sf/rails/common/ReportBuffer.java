@@ -127,6 +127,14 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
     
     @Override
     public void updateOnClose() {
+        informOnClose();
+ 
+        // update observer (ReportWindow)
+        updateObserver();
+    }
+
+    @Override
+    public void informOnClose() {
         ChangeSet current = changeStack.getClosedChangeSet();
         ReportSet currentSet = currentReportBuilder.build(current);
         pastReports.addLast(currentSet);
@@ -134,9 +142,6 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
         
         // a new builder
         currentReportBuilder = ReportSet.builder();
- 
-        // update observer (ReportWindow)
-        updateObserver();
     }
 
     @Override
@@ -24,7 +24,10 @@ import net.sf.rails.game.special.SpecialBonusTokenLay;
 import net.sf.rails.game.special.SpecialProperty;
 import net.sf.rails.game.state.*;
 import net.sf.rails.util.GameLoader;
+import net.sf.rails.util.ActionJournal;
 import net.sf.rails.util.GameSaver;
+import net.sf.rails.util.ReloadCursor;
+import net.sf.rails.util.SystemOS;
 import net.sf.rails.util.Util;
 
 import org.slf4j.Logger;
@@ -135,6 +138,14 @@ public class GameManager extends RailsManager implements Configurable, Owner {
     /** indicates that the recoverySave already issued a warning, avoids displaying several warnings */
     protected boolean recoverySaveWarning = true;
 
+    /** journal of the recovery save, created on first recoverySave */
+    protected ActionJournal recoveryJournal = null;
+
+    /** cursor after the actions of the last reloaded file, allows to read only the new actions on reload */
+    protected ReloadCursor reloadCursor = null;
+    /** executed action before the reloadCursor, to check that the actions before the cursor are unchanged */
+    protected PossibleAction reloadCursorAction = null;
+
     /** Flag to skip a subsequent Done action (if present) during reloading.
      * <br>This is a fix to maintain backwards compatibility when redundant
      * actions are skipped in new code versions (such as the bypassing of
@@ -768,6 +779,10 @@ public class GameManager extends RailsManager implements Configurable, Owner {
                     + pa.toString());
         }
 
+        if (result && !startGameAction) {
+            recoverySave();
+        }
+
         return result;
 
     }
@@ -924,14 +939,19 @@ public class GameManager extends RailsManager implements Configurable, Owner {
     }
 
     /** recoverySave method
-     * Uses filePath defined in save.recovery.filepath
+     * Appends the new actions to the journal of the autosave file,
+     * which is compacted periodically.
+     * Each action is synced to disk, thus it is only active if selected (e.g. by the hotseat profile)
      *  */
     protected void recoverySave() {
-        if (Config.get("save.recovery.active", "yes").equalsIgnoreCase("no")) return;
+        if (!Config.get("save.recovery.active", "no").equalsIgnoreCase("yes")) return;
 
-        GameSaver gameSaver = new GameSaver(getRoot().getGameData(), executedActions.view());
+        if (recoveryJournal == null) {
+            File directory = SystemOS.get().getConfigurationFolder(GameSaver.autosaveFolder, true);
+            recoveryJournal = new ActionJournal(new File(directory, GameSaver.autosaveFile));
+        }
         try {
-            gameSaver.autoSave();
+            recoveryJournal.update(getRoot().getGameData(), executedActions.view());
             recoverySaveWarning = false;
         } catch (IOException e) {
             // suppress warning after first occurrence
@@ -958,39 +978,52 @@ public class GameManager extends RailsManager implements Configurable, Owner {
     /**
      * tries to reload the current game
      * executes the additional action(s)
+     * 
+     * If the file continues the actions of the previously reloaded file (see {@link ReloadCursor}),
+     * only the actions after those are read and compared
      */
     protected boolean reload(GameAction reloadAction) {
         log.info("Reloading started");
 
         /* Use gameLoader to load the game data */
-        GameLoader gameLoader = new GameLoader();
-        String filepath = reloadAction.getFilepath();
+        GameLoader gameLoader = new GameLoader(getRoot());
+        File file = new File(reloadAction.getFilepath());
 
         /* followed by actions and comments */
         try{
-            gameLoader.loadGameData(new File(filepath));
-            gameLoader.convertGameData();
+            boolean useCursor = hasValidReloadCursor();
+            gameLoader.loadGameData(file);
+            if (!useCursor || !gameLoader.convertNewGameData(reloadCursor)) {
+                if (useCursor) {
+                    log.debug("Reloaded file does not continue after the cursor, read all actions");
+                    gameLoader = new GameLoader(getRoot());
+                    gameLoader.loadGameData(file);
+                }
+                gameLoader.convertGameData();
+            }
         } catch (Exception e)  {
             log.error("Load failed", e);
             DisplayBuffer.add(this, LocalText.getText("LOAD_FAILED_MESSAGE", e.getMessage()));
         }
+        reloadCursor = null;
 
-        log.debug("Starting to compare loaded actions");
+        log.debug("Starting to compare loaded actions, skipped " + gameLoader.getSkippedActions() + " actions");
 
         /* gameLoader actions get compared to the executed actions of the current game */
         List<PossibleAction> savedActions = gameLoader.getActions();
+        int index = gameLoader.getSkippedActions();
 
         setReloading(true);
 
         // Check size
-        if (savedActions.size() < executedActions.size()) {
+        if (index + savedActions.size() < executedActions.size()) {
             DisplayBuffer.add(this, LocalText.getText("LOAD_FAILED_MESSAGE",
             "loaded file has less actions than current game"));
+            setReloading(false);
             return true;
         }
 
         // Check action identity
-        int index = 0;
         PossibleAction executedAction;
         try {
             for (PossibleAction savedAction : savedActions) {
@@ -1001,6 +1034,7 @@ public class GameManager extends RailsManager implements Configurable, Owner {
                                 "loaded action \""+savedAction.toString()
                                 +"\"<br>   is not same as game action \""+executedAction.toString()
                                 +"\""));
+                        setReloading(false);
                         return true;
                     }
                 } else {
@@ -1020,6 +1054,7 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         } catch (Exception e) {
             log.error("Reload failed", e);
             DisplayBuffer.add(this, LocalText.getText("LoadFailed", e.getMessage()));
+            setReloading(false);
             return true;
         }
 
@@ -1027,6 +1062,14 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         setReloading(false);
         finishLoading();
 
+        // keep the cursor, if all actions of the file were executed
+        ReloadCursor cursor = gameLoader.getReloadCursor();
+        if (cursor != null && cursor.getActionCount() == executedActions.size()) {
+            reloadCursor = cursor;
+            reloadCursorAction = executedActions.isEmpty() ? null
+                    : executedActions.get(executedActions.size() - 1);
+        }
+
         // use new comments (without checks)
         // FIXME (Rails2.0): CommentItems have to be replaced
         // ReportBuffer.setCommentItems(gameLoader.getComments());
@@ -1035,6 +1078,16 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         return true;
     }
 
+    /**
+     * @return true if the executed actions still start with the actions before the reloadCursor
+     */
+    private boolean hasValidReloadCursor() {
+        if (reloadCursor == null) return false;
+        int count = reloadCursor.getActionCount();
+        if (count > executedActions.size()) return false;
+        return count == 0 || executedActions.get(count - 1) == reloadCursorAction;
+    }
+
 
     protected boolean export(GameAction exportAction) {
 
@@ -1385,8 +1438,12 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         return reloading;
     }
 
+    /**
+     * During reloading the observers and the report window are only updated at the end
+     */
     public void setReloading(boolean reloading) {
         this.reloading = reloading;
+        getRoot().getStateManager().getChangeStack().setReplay(reloading);
     }
 
     public void setSkipDone (GameDef.OrStep step) {
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedSet;
 
+import net.sf.rails.algorithms.NetworkMapGraph;
 import net.sf.rails.common.Config;
 import net.sf.rails.common.parser.Configurable;
 import net.sf.rails.common.parser.ConfigurationException;
@@ -41,6 +42,9 @@ public class MapManager extends RailsManager implements Configurable {
     // if required: distance table
     private Table<MapHex, MapHex, Integer> hexDistances;
 
+    // track network of the map, created on first request
+    private NetworkMapGraph networkMapGraph;
+
     // Optional map image (SVG file)
     // FIXME: Move to UI class
     private String mapImageFilename = null;
@@ -176,6 +180,13 @@ public class MapManager extends RailsManager implements Configurable {
     }
     
     
+    public synchronized NetworkMapGraph getNetworkMapGraph() {
+        if (networkMapGraph == null) {
+            networkMapGraph = NetworkMapGraph.create(this);
+        }
+        return networkMapGraph;
+    }
+
     public MapHex getNeighbour(MapHex hex, HexSide side) {
         return hexTable.get(hex, side);
     }
@@ -57,8 +57,8 @@ public class OperatingRound extends Round implements Observer {
 
     // Non-persistent lists (are recreated after each user action)
 
-    protected final HashMapState<String, Integer> tileLaysPerColour =
-            HashMapState.create(this, "tileLaysPerColour");
+    protected final IntMapState<String> tileLaysPerColour =
+            IntMapState.create(this, "tileLaysPerColour");
 
     protected final List<LayBaseToken> currentNormalTokenLays =
             new ArrayList<LayBaseToken>();
@@ -72,7 +72,7 @@ public class OperatingRound extends Round implements Observer {
     protected final ArrayListState<TrainCertificateType> trainsBoughtThisTurn =
             ArrayListState.create(this, "trainsBoughtThisTurn");
 
-    protected HashMapState<PublicCompany, Integer> loansThisRound = null;
+    protected IntMapState<PublicCompany> loansThisRound = null;
 
     protected String thisOrNumber;
 
@@ -1244,15 +1244,10 @@ public class OperatingRound extends Round implements Observer {
         }
 
         if (operatingCompany.value().getMaxLoansPerRound() > 0) {
-            int oldLoansThisRound = 0;
             if (loansThisRound == null) {
-                loansThisRound = HashMapState.create(this, "loansThisRound");
-            } else if (loansThisRound.containsKey(operatingCompany.value())) {
-                oldLoansThisRound =
-                        loansThisRound.get(operatingCompany.value());
+                loansThisRound = IntMapState.create(this, "loansThisRound");
             }
-            loansThisRound.put(operatingCompany.value(), new Integer(
-                    oldLoansThisRound + number));
+            loansThisRound.add(operatingCompany.value(), number);
         }
     }
 
@@ -1635,11 +1630,9 @@ public class OperatingRound extends Round implements Observer {
         }
 
         String colour = tile.getColourText();
-        Integer oldAllowedNumberObject = tileLaysPerColour.get(colour);
+        if (!tileLaysPerColour.containsKey(colour)) return false;
 
-        if (oldAllowedNumberObject == null) return false;
-
-        int oldAllowedNumber = oldAllowedNumberObject.intValue();
+        int oldAllowedNumber = tileLaysPerColour.get(colour);
         if (oldAllowedNumber <= 0) return false;
 
         if (update) updateAllowedTileColours(colour, oldAllowedNumber);
@@ -16,7 +16,7 @@ import net.sf.rails.common.parser.Tag;
 import net.sf.rails.game.financial.Bank;
 import net.sf.rails.game.financial.BankPortfolio;
 import net.sf.rails.game.state.BooleanState;
-import net.sf.rails.game.state.HashMapState;
+import net.sf.rails.game.state.IntMapState;
 import net.sf.rails.game.state.IntegerState;
 import net.sf.rails.game.state.Owner;
 import net.sf.rails.util.Util;
@@ -56,8 +56,8 @@ public class TrainManager extends RailsManager implements Configurable {
     // Dynamic attributes
     protected final IntegerState newTypeIndex = IntegerState.create(this, "newTypeIndex", 0);
     
-    protected final HashMapState<String, Integer> lastIndexPerType = 
-            HashMapState.create(this, "lastIndexPerType");
+    protected final IntMapState<String> lastIndexPerType = 
+            IntMapState.create(this, "lastIndexPerType");
 
     protected final BooleanState phaseHasChanged = BooleanState.create(this, "phaseHasChanged");
 
@@ -27,6 +27,11 @@ public final class ShareModel extends RailsModel {
         return (CertificatesModel)super.getParent();
     }
     
+    @Override
+    protected boolean isTextCached() {
+        return true;
+    }
+
     @Override
     public String toText() {
         return getParent().toText(company);
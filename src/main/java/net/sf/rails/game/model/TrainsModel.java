@@ -44,6 +44,7 @@ public class TrainsModel extends RailsModel {
     
     public void setAbbrList(boolean abbrList) {
         this.abbrList = abbrList;
+        invalidateText();
     }
     
     public ImmutableSet<Train> getTrains() {
@@ -104,6 +105,11 @@ public class TrainsModel extends RailsModel {
         return b.toString();
     }
     
+    @Override
+    protected boolean isTextCached() {
+        return true;
+    }
+
     @Override
     public String toText() {
         if (!abbrList) {
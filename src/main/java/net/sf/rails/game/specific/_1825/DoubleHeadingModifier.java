@@ -1,12 +1,14 @@
 package net.sf.rails.game.specific._1825;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 
@@ -19,6 +21,9 @@ public class DoubleHeadingModifier implements RevenueDynamicModifier {
     private final static String TRAIN_SINGLE = "2";
     private final static String DOUBLEHEAD_NAME = "2&2";
     private final static String TRAIN_DOUBLE = "3";
+    
+    // buffer for the revenues of the 2-trains
+    private int[] train2Revenues;
    
     public boolean prepareModifier(RevenueAdapter revenueAdapter) {
         int nbTrain2 = 0;
@@ -45,7 +50,7 @@ public class DoubleHeadingModifier implements RevenueDynamicModifier {
     /** 
      * the prediction value itself is zero, as the add value stems from the train above
      */
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
         return 0;
     }
 
@@ -72,10 +77,39 @@ public class DoubleHeadingModifier implements RevenueDynamicModifier {
                 index2Runs += 2;
             }
         }
-        return train2Runs.subList(0, index2Runs);
+        // double heading trains without enough 2-trains remove the available ones only
+        return train2Runs.subList(0, Math.min(index2Runs, train2Runs.size()));
     }
     
     
+    /**
+     * allows doubleheading: the revenues of the lowest 2-trains are removed
+     */
+    public int evaluationValue(RevenueRunView run) {
+        if (train2Revenues == null || train2Revenues.length < run.getNbTrains()) {
+            train2Revenues = new int[run.getNbTrains()];
+        }
+        
+        int nbTrain2 = 0, index2Runs = 0;
+        for (int trainId=0; trainId < run.getNbTrains(); trainId++) {
+            String trainName = run.getTrain(trainId).getTrainName();
+            if (trainName.equals(TRAIN_SINGLE)) {
+                train2Revenues[nbTrain2++] = run.getRunValue(trainId);
+            } else if (trainName.equals(DOUBLEHEAD_NAME) && run.getRunValue(trainId) != 0) {
+                // two trains get removed
+                index2Runs += 2;
+            }
+        }
+        Arrays.sort(train2Revenues, 0, nbTrain2);
+        
+        // entries after nbTrain2 are left from previous evaluations
+        int changeRevenues = 0;
+        for (int j=0; j < Math.min(index2Runs, nbTrain2); j++) {
+            changeRevenues -= train2Revenues[j];
+        }
+        return changeRevenues;
+    }
+
     /**
      * - checks if runs start and end at major stations
      * - allows doubleheading
@@ -5,6 +5,7 @@ import java.util.List;
 
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 
 
@@ -15,7 +16,7 @@ public class TerminateAtMajorModifier implements RevenueDynamicModifier {
         return true;
     }
 
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
         // cannot be predicted
         return 0;
     }
@@ -32,6 +33,18 @@ public class TerminateAtMajorModifier implements RevenueDynamicModifier {
         return invalidRuns;
     }
     
+    public int evaluationValue(RevenueRunView run) {
+        // check if runs end and start at major stations
+        int changeRevenues = 0;
+        for (int trainId=0; trainId < run.getNbTrains(); trainId++) {
+            if (!run.hasAValidRun(trainId)) continue;
+            if (!run.isMajor(run.getFirstVertex(trainId)) || !run.isMajor(run.getLastVertex(trainId))) {
+                changeRevenues -= run.getRunValue(trainId);
+            }
+        }
+        return changeRevenues;
+    }
+
     public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
         // optimal runs is already adjusted
         if (optimalRuns) return 0;
@@ -6,6 +6,7 @@ import java.util.List;
 import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 
@@ -48,7 +49,12 @@ public class TGVModifier implements RevenueDynamicModifier {
         }
     }
 
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
+        // nothing to do here
+        return 0;
+    }
+
+    public int evaluationValue(RevenueRunView run) {
         // nothing to do here
         return 0;
     }
@@ -20,7 +20,7 @@ import net.sf.rails.game.special.ExchangeForShare;
 import net.sf.rails.game.special.SpecialProperty;
 import net.sf.rails.game.state.BooleanState;
 import net.sf.rails.game.state.Currency;
-import net.sf.rails.game.state.HashMapState;
+import net.sf.rails.game.state.IntMapState;
 import net.sf.rails.game.state.MoneyOwner;
 import net.sf.rails.game.state.Owner;
 
@@ -36,7 +36,7 @@ public class OperatingRound_1835 extends OperatingRound {
      * Registry of percentage of PR revenue to be denied per player
      * because of having produced revenue in the same OR.
      */
-    private final HashMapState<Player, Integer> deniedIncomeShare = HashMapState.create(this, "deniedIncomeShare");
+    private final IntMapState<Player> deniedIncomeShare = IntMapState.create(this, "deniedIncomeShare");
 
     /**
      * Constructed via Configure
@@ -102,11 +102,7 @@ public class OperatingRound_1835 extends OperatingRound {
 
     private void addIncomeDenialShare (Player player, int share) {
 
-        if (!deniedIncomeShare.containsKey(player)) {
-            deniedIncomeShare.put(player, share);
-        } else {
-            deniedIncomeShare.put(player, share + deniedIncomeShare.get(player));
-        }
+        deniedIncomeShare.add(player, share);
         //log.debug("+++ Denied "+share+"% share of PR income to "+player.getName());
     }
 
@@ -13,6 +13,7 @@ import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 
     public class ExpressTrainModifier implements RevenueDynamicModifier {
@@ -24,6 +25,10 @@ import net.sf.rails.algorithms.RevenueTrainRun;
                 LoggerFactory.getLogger(ExpressTrainModifier.class);
 
         private boolean hasExpress;
+        
+        // buffers for the evaluation of the run view
+        private int[] runVertices;
+        private int[] expressVertices;
 
         public boolean prepareModifier(RevenueAdapter revenueAdapter) {
             // 1. check if there is a Express Train in the train set
@@ -69,6 +74,64 @@ import net.sf.rails.algorithms.RevenueTrainRun;
             return expressVertices.build();
         }
      
+        /**
+         * @return the length of the express run defined in expressVertices
+         */
+        private int extractExpressRun(RevenueRunView run, int trainId, int length) {
+            
+            // check for valid run first
+            if (!run.hasAValidRun(trainId)) return 0;
+            
+            // vertex ids are sorted by value order
+            int nbVertices = run.getUniqueVertices(trainId, runVertices);
+            
+            int baseVertex = run.getBaseVertex(trainId);
+            int nbExpress = 0;
+            expressVertices[nbExpress++] = baseVertex;
+            
+            int inRunNumber = 1;
+            for (int v=0; v < nbVertices; v++) {
+                int vertex = runVertices[v];
+                if (vertex != baseVertex) {
+                    if (!run.getVertex(vertex).isStation()) {
+                        // keep ferry malus vertices
+                        expressVertices[nbExpress++] = vertex;
+                    } else if (inRunNumber < length) { 
+                        // add vertices until length is reached
+                        expressVertices[nbExpress++] = vertex;
+                        inRunNumber ++;
+                    }
+                }
+            }
+            return nbExpress;
+        }
+        
+        private int valueChange(RevenueRunView run) {
+            int size = run.getNbVertices() + 3;
+            if (runVertices == null || runVertices.length < size) {
+                runVertices = new int[size];
+                expressVertices = new int[size];
+            }
+            
+            int value = 0;
+            //Find out which Express Train is involved
+            for (int trainId=0; trainId < run.getNbTrains(); trainId++) {
+                String trainName = run.getTrain(trainId).getTrainName();
+                int length;
+                if (TRAIN_6E.equals(trainName)) {
+                    length = 6;
+                } else if (TRAIN_8E.equals(trainName)) {
+                    length = 8;
+                } else {
+                    continue;
+                }
+                int nbExpress = extractExpressRun(run, trainId, length);
+                int expressRunValue = run.getRunValueForVertices(trainId, expressVertices, nbExpress);
+                value += expressRunValue - run.getRunValue(trainId);
+            }
+            return value;
+        }
+     
         private int valueChange(List<RevenueTrainRun> runs, boolean optimalRuns) {
             int value = 0;
             //Find out which Express Train is involved
@@ -90,8 +153,12 @@ import net.sf.rails.algorithms.RevenueTrainRun;
             return value;
         }
         
-        public int predictionValue(List<RevenueTrainRun> runs) {
-            return valueChange(runs, false);
+        public int predictionValue(RevenueRunView run) {
+            return valueChange(run);
+        }
+       
+        public int evaluationValue(RevenueRunView run) {
+            return valueChange(run);
         }
        
         public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
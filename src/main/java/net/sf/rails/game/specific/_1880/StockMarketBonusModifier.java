@@ -4,6 +4,7 @@ import java.util.List;
 
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 import net.sf.rails.game.PublicCompany;
@@ -27,7 +28,11 @@ public class StockMarketBonusModifier implements RevenueDynamicModifier {
         return false;
     }
 
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
+        return bonusValue;
+    }
+
+    public int evaluationValue(RevenueRunView run) {
         return bonusValue;
     }
 
@@ -8,6 +8,7 @@ import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueBonus;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueStaticModifier;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.GameOption;
@@ -25,6 +26,10 @@ public class NamedTrainRevenueModifier implements RevenueStaticModifier, Revenue
     private List<RevenueBonus> bonuses;
     private int bonusMaximum;
     
+    // vertex ids of the bonuses for the run view
+    private RevenueRunView bonusView;
+    private int[][] bonusVertexIds;
+    
     public void configureFromXML(Tag tag) throws ConfigurationException {
         // do nothing
     }
@@ -91,6 +96,7 @@ public class NamedTrainRevenueModifier implements RevenueStaticModifier, Revenue
         // 2. prepare by defining the vertices
         bonuses = new ArrayList<RevenueBonus>();
         bonusMaximum = 0;
+        bonusView = null;
         // 3. there is only one special property in 18AL, thus get tokens from it
         for (NamedTrainToken token:sp.get(0).getTokens()) {
             RevenueBonus bonus = defineBonus(revenueAdapter, token, true);
@@ -101,10 +107,46 @@ public class NamedTrainRevenueModifier implements RevenueStaticModifier, Revenue
         return true;
     }
 
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
         return bonusMaximum;
     }
 
+    private void defineBonusVertexIds(RevenueRunView run) {
+        bonusVertexIds = new int[bonuses.size()][];
+        for (int b=0; b < bonuses.size(); b++) {
+            List<NetworkVertex> vertices = bonuses.get(b).getVertices();
+            bonusVertexIds[b] = new int[vertices.size()];
+            for (int v=0; v < vertices.size(); v++) {
+                bonusVertexIds[b][v] = run.getVertexId(vertices.get(v));
+            }
+        }
+        bonusView = run;
+    }
+    
+    public int evaluationValue(RevenueRunView run) {
+        // vertex ids are defined once for each revenue calculation
+        if (run != bonusView) {
+            defineBonusVertexIds(run);
+        }
+        int bonusValue = 0;
+        // due to the geography (off-map areas!) each train can only score one bonus
+        for (int b=0; b < bonusVertexIds.length; b++) {
+            for (int trainId=0; trainId < run.getNbTrains(); trainId++) {
+                boolean containsAll = true;
+                for (int vertexId:bonusVertexIds[b]) {
+                    if (vertexId == -1 || !run.containsVertex(trainId, vertexId)) {
+                        containsAll = false;
+                        break;
+                    }
+                }
+                if (containsAll) {
+                    bonusValue += bonuses.get(b).getValue();
+                }
+            }
+        }
+        return bonusValue;
+    }
+
     public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
         int bonusValue = 0;
         // due to the geography (off-map areas!) each train can only score one bonus
@@ -7,6 +7,7 @@ import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 
@@ -34,6 +35,19 @@ public class PullmanRevenueModifier implements RevenueDynamicModifier {
         return true;
     }
 
+    public int evaluationValue(RevenueRunView run) {
+        int maximum = 0;
+        for (int trainId=0; trainId < run.getNbTrains(); trainId++) {
+            for (int v=0; v < run.getRunLength(trainId); v++) {
+                int vertexId = run.getRunVertex(trainId, v);
+                if (!run.isMajor(vertexId)) continue;
+                maximum = Math.max(maximum, run.getVertex(vertexId).getValue());
+            }
+            if (maximum == maxValue) break;
+        }
+        return maximum;
+    }
+
     public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
         return pullmanValue(runs);
     }
@@ -47,7 +61,7 @@ public class PullmanRevenueModifier implements RevenueDynamicModifier {
         return maximum; 
     }
     
-    public int predictionValue(List<RevenueTrainRun> runs) {
+    public int predictionValue(RevenueRunView run) {
         return maxValue;
     }
 
@@ -3,6 +3,7 @@ package net.sf.rails.game.state;
 import java.util.List;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
 
 public final class ArrayListMultimapState<K,V> extends State {
 
@@ -66,5 +67,17 @@ public final class ArrayListMultimapState<K,V> extends State {
         }
     }
 
+    @Override
+    Object createSnapshot() {
+        return ArrayListMultimap.create(map);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void restoreSnapshot(Object snapshot) {
+        map.clear();
+        map.putAll((Multimap<K,V>)snapshot);
+    }
+
     
 }
@@ -15,6 +15,9 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
 
     private final ArrayList<E> list;
 
+    // cached view, reset by each change
+    private ImmutableList<E> view;
+
     private ArrayListState(Item parent, String id, Collection<E> collection) {
         super(parent, id);
         if (collection == null) list = new ArrayList<E>();
@@ -103,7 +106,7 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
      * removes all elements 
      */
     public void clear() {
-        for (E element:ImmutableList.copyOf(list)) {
+        for (E element:view()) {
             remove(element);
         }
     }
@@ -113,7 +116,7 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
      */
     public void setTo(List<E> newList) {
         int index = 0;
-        List<E> copyList = ImmutableList.copyOf(list);
+        List<E> copyList = view();
         for (E element:newList) {
             if (index < copyList.size()) {
                 if (element.equals(copyList.get(index))) {
@@ -135,10 +138,14 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
     
     /**
      * creates an immutable view of the list
+     * The view is cached until the next change of the list
      * @return immutable copy
      */
     public ImmutableList<E> view() {
-        return ImmutableList.copyOf(list);
+        if (view == null) {
+            view = ImmutableList.copyOf(list);
+        }
+        return view;
     }
 
     public int size() {
@@ -162,7 +169,7 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
      * @return a suitable iterator for ArrayListState
      */
     public Iterator<E> iterator() {
-        return ImmutableList.copyOf(list).iterator();
+        return view().iterator();
     }
     
     @Override
@@ -171,6 +178,7 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
     }
 
     void change(E object, int index, boolean addToList) {
+        view = null;
         if (addToList) {
             list.add(index, object);
         } else {
@@ -178,5 +186,18 @@ public final class ArrayListState<E> extends State implements Iterable<E>  {
         }
     }
 
+    @Override
+    Object createSnapshot() {
+        return new ArrayList<E>(list);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void restoreSnapshot(Object snapshot) {
+        view = null;
+        list.clear();
+        list.addAll((List<E>)snapshot);
+    }
+
     
 }
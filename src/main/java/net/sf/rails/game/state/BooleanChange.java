@@ -17,6 +17,12 @@ public final class BooleanChange extends Change {
         super.init(state);
     }
 
+    private BooleanChange(BooleanChange first, BooleanChange last) {
+        this.state = first.state;
+        this.newValue = last.newValue;
+        this.oldValue = first.oldValue;
+    }
+
     @Override void execute() {
         state.change(newValue);
     }
@@ -25,6 +31,17 @@ public final class BooleanChange extends Change {
         state.change(oldValue);
     }
 
+    @Override
+    Change combine(Change later) {
+        if (!(later instanceof BooleanChange) || ((BooleanChange)later).state != state) return null;
+        return new BooleanChange(this, (BooleanChange)later);
+    }
+
+    @Override
+    boolean isEmpty() {
+        return newValue == oldValue;
+    }
+
     @Override
     public BooleanState getState() {
         return state;
@@ -41,6 +41,11 @@ public final class BooleanState extends State {
         return value;
     }
     
+    @Override
+    protected boolean isTextCached() {
+        return true;
+    }
+
     @Override
     public String toText() {
         return Boolean.toString(value);
@@ -49,5 +54,15 @@ public final class BooleanState extends State {
     void change(boolean value) {
         this.value = value;
     }
+
+    @Override
+    Object createSnapshot() {
+        return value;
+    }
+
+    @Override
+    void restoreSnapshot(Object snapshot) {
+        value = (Boolean)snapshot;
+    }
  
 }
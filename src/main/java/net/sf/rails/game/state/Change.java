@@ -14,4 +14,22 @@ public abstract class Change {
     abstract void undo();  
     public abstract State getState();
 
+    /**
+     * Combines this change with a later change of the same state into one change
+     * Used for the compaction of ChangeSets, by default changes are not combined
+     * @param later change of the same state executed after this change
+     * @return combined change (not executed again), null if the changes cannot be combined
+     * (e.g. the later change is of another type or changes another state)
+     */
+    Change combine(Change later) {
+        return null;
+    }
+
+    /**
+     * @return true if the change does not alter the state (e.g. after combination)
+     */
+    boolean isEmpty() {
+        return false;
+    }
+
 }
@@ -6,6 +6,11 @@ public interface ChangeReporter {
     
     public void updateOnClose();
     
+    /**
+     * Like updateOnClose, but without update of the observers (used during replay)
+     */
+    public void informOnClose();
+    
     public void informOnUndo();
 
     public void informOnRedo();
@@ -3,13 +3,16 @@ package net.sf.rails.game.state;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 /**
  * A ChangeSet object represents the collection of all changes
@@ -33,6 +36,43 @@ public class ChangeSet {
         this.index = index;
     }
     
+   /**
+    * Compacts changes by combining later changes of a state with its previous change
+    * (if supported by the change type) and removing changes without effect.
+    * As each change only alters its own state, the sequence of changes of different
+    * states does not matter.
+    * @param changes in the sequence of execution
+    * @return compacted list of changes
+    */
+   static List<Change> compact(List<Change> changes) {
+       List<Change> compacted = Lists.newArrayListWithCapacity(changes.size());
+       // position of the last change of each state in the compacted list
+       Map<State, Integer> positions = Maps.newHashMap();
+       boolean combined = false;
+       for (Change change:changes) {
+           Integer position = positions.get(change.getState());
+           if (position != null) {
+               Change combinedChange = compacted.get(position).combine(change);
+               if (combinedChange != null) {
+                   compacted.set(position, combinedChange);
+                   combined = true;
+                   continue;
+               }
+           }
+           positions.put(change.getState(), compacted.size());
+           compacted.add(change);
+       }
+       if (!combined) return changes;
+
+       ImmutableList.Builder<Change> result = ImmutableList.builder();
+       for (Change change:compacted) {
+           if (!change.isEmpty()) {
+               result.add(change);
+           }
+       }
+       return result.build();
+   }
+
    /**
     * retrieves all states that are changed by Changes in the ChangeSet
     * @return set of all states affected by Changes
@@ -71,6 +111,38 @@ public class ChangeSet {
         }
     }
 
+   /**
+    * re-execute the Changes of states that are (not) stored in the snapshot
+    * @param included true: only states stored in the snapshot, false: only states not stored
+    */
+   void reexecute(StateSnapshot snapshot, boolean included) {
+       for (Change change:changes) {
+           if (snapshot.contains(change.getState()) == included) {
+               change.execute();
+           }
+       }
+   }
+
+   /**
+    * un-execute the Changes of states that are (not) stored in the snapshot
+    * @param included true: only states stored in the snapshot, false: only states not stored
+    */
+   void unexecute(StateSnapshot snapshot, boolean included) {
+       checkState(index != -1, "ChangeSet is initial - cannot be undone");
+       for (Change change:Lists.reverse(changes)) {
+           if (snapshot.contains(change.getState()) == included) {
+               change.undo();
+           }
+       }
+   }
+
+   /**
+    * @return number of Changes in the ChangeSet
+    */
+   int size() {
+       return changes.size();
+   }
+
     /**
      * returns the ChangeAction associated with the ChangeSet
      * @return the associated ChangeAction
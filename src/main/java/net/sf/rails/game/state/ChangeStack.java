@@ -1,8 +1,13 @@
 package net.sf.rails.game.state;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -11,12 +16,19 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 public class ChangeStack {
 
     private static final Logger log =
         LoggerFactory.getLogger(ChangeStack.class);
 
+    /**
+     * Default number of ChangeSets between two snapshots
+     */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 50;
+
     // static fields
     private final StateManager stateManager;
 
@@ -25,9 +37,21 @@ public class ChangeStack {
     
     private ChangeReporter reporter; // assigned once
 
+    // snapshots of all states, stored by the index of the ChangeStack
+    private final NavigableMap<Integer, StateSnapshot> snapshots = Maps.newTreeMap();
+    private int snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+
+    // if true observers and reporter are updated at the end of the replay
+    private boolean replay = false;
+    private final Set<State> replayStates = Sets.newHashSet();
+
     // dynamic fields
     private ImmutableList.Builder<Change> changeBuilder;
 
+    // statistics of the compaction of ChangeSets
+    private long storedChanges = 0;
+    private long removedChanges = 0;
+
     private ChangeStack(StateManager stateManager) {
         this.stateManager = stateManager;
         reporter = null;
@@ -52,6 +76,43 @@ public class ChangeStack {
         log.debug("Added ChangeReporter " + reporter);
     }
 
+    /**
+     * Defines how often snapshots of all states are taken.
+     * Undo/redo to a distant index restores the nearest snapshot and 
+     * executes only the ChangeSets after it.
+     * @param interval number of ChangeSets between snapshots, zero disables snapshots
+     */
+    public void setSnapshotInterval(int interval) {
+        checkArgument(interval >= 0, "Snapshot interval cannot be negative");
+        snapshotInterval = interval;
+        if (interval == 0) {
+            snapshots.clear();
+        }
+    }
+
+    /**
+     * Activates the replay mode (e.g. during loading of a game):
+     * Observers and ChangeReporter are not updated until the replay is finished.
+     * Deactivation updates all observers of the states changed in between
+     * and the ChangeReporter once.
+     */
+    public void setReplay(boolean replay) {
+        if (this.replay == replay) return;
+        this.replay = replay;
+        if (!replay) {
+            log.debug("ChangeStack: finished replay");
+            updateObservers(ImmutableSet.copyOf(replayStates));
+            replayStates.clear();
+            if (reporter != null) {
+                reporter.updateAfterUndoRedo();
+            }
+        }
+    }
+
+    public boolean isReplay() {
+        return replay;
+    }
+
     /**
      * @return the previous (closed) changeSet, null if empty
      */
@@ -67,11 +128,13 @@ public class ChangeStack {
         changeBuilder.add(change);
         // immediate execution and information of models
         change.execute();
+        stateManager.invalidateTexts(change.getState());
         change.getState().informTriggers(change);
     }
     
+    // the initial ChangeSet is closed even if it is empty, as this ends the construction
     private boolean checkRequirementsForClose(ChangeAction action) {
-        if (changeBuilder.build().isEmpty() || action == null) {
+        if (changeBuilder.build().isEmpty() && !undoStack.isEmpty() || action == null) {
             return false;
         } else {
             return true;
@@ -82,28 +145,72 @@ public class ChangeStack {
         if (checkRequirementsForClose(action)) {
             // this has to be done before the changeBuilder closes
             int index = undoStack.size() + 1;
-            ChangeSet closeSet = new ChangeSet(changeBuilder.build(), action, index);
-            log.debug("<<< Closed changeSet " + closeSet);
+            ImmutableList<Change> changes = changeBuilder.build();
+            ImmutableSet.Builder<State> states = ImmutableSet.builder();
+            for (Change change:changes) {
+                states.add(change.getState());
+            }
+            List<Change> compacted = ChangeSet.compact(changes);
+            storedChanges += compacted.size();
+            removedChanges += changes.size() - compacted.size();
+            ChangeSet closeSet = new ChangeSet(compacted, action, index);
+            log.debug("<<< Closed changeSet " + closeSet + ", compacted " + changes.size() 
+                    + " to " + compacted.size() + " changes");
             undoStack.addLast(closeSet);
             redoStack.clear();
 
+            // snapshots of the removed redo ChangeSets are invalid
+            snapshots.tailMap(index, true).clear();
+            if (snapshotInterval != 0 && index % snapshotInterval == 0) {
+                createSnapshot(index);
+            }
+
             if (reporter != null) {
-                reporter.updateOnClose();
+                if (replay) {
+                    reporter.informOnClose();
+                } else {
+                    reporter.updateOnClose();
+                }
             }
             
             // restart builders
             restart();
-            // inform direct and indirect observers
-            updateObservers(closeSet.getStates());
+            // inform direct and indirect observers (including states that were changed back)
+            updateObservers(states.build());
         }
     }
 
     private void restart() {
         changeBuilder = ImmutableList.builder();
     }
+
+    private void createSnapshot(int index) {
+        Map.Entry<Integer, StateSnapshot> previous = snapshots.lastEntry();
+        StateSnapshot snapshot;
+        if (previous == null) {
+            snapshot = StateSnapshot.create(stateManager.getAllStates(), null, null);
+        } else {
+            // states changed by the ChangeSets after the previous snapshot
+            Set<State> changed = Sets.newHashSet();
+            Iterator<ChangeSet> changeSets = undoStack.descendingIterator();
+            for (int i = previous.getKey(); i < index; i++) {
+                changed.addAll(changeSets.next().getStates());
+            }
+            snapshot = StateSnapshot.create(stateManager.getAllStates(), previous.getValue(), changed);
+        }
+        snapshots.put(index, snapshot);
+        log.debug("Created snapshot at index " + index + " for " + snapshot.size() + " states");
+    }
     
     
     public void updateObservers(Set<State> states) {
+        // texts of states changed by undo/redo
+        stateManager.invalidateTexts(states);
+        if (replay) {
+            // delayed until the end of the replay
+            replayStates.addAll(states);
+            return;
+        }
         // update the observers of states and models
         log.debug("ChangeStack: update Observers");
         stateManager.updateObservers(states);
@@ -128,7 +235,7 @@ public class ChangeStack {
         restart();
         updateObservers(undoSet.getStates());
 
-        if (reporter != null) {
+        if (reporter != null && !replay) {
             reporter.updateAfterUndoRedo();
         }
     }
@@ -139,14 +246,16 @@ public class ChangeStack {
      */
     
     public void undo(int index) {
-        checkState(isUndoPossible() && index < undoStack.size() , "Undo not possible");
+        checkState(isUndoPossible() && index > 0 && index < undoStack.size() , "Undo not possible");
         ImmutableSet.Builder<State> states = ImmutableSet.builder();
-        while (undoStack.size() > index) {
-            states.addAll(executeUndo().getStates());
+        if (!executeSnapshot(index, states)) {
+            while (undoStack.size() > index) {
+                states.addAll(executeUndo().getStates());
+            }
         }
         restart();
         updateObservers(states.build());
-        if (reporter != null) {
+        if (reporter != null && !replay) {
             reporter.updateAfterUndoRedo();
         }
     }
@@ -184,7 +293,7 @@ public class ChangeStack {
         ChangeSet redoSet = executeRedo();
         restart();
         updateObservers(redoSet.getStates());
-        if (reporter != null) {
+        if (reporter != null && !replay) {
             reporter.updateAfterUndoRedo();
         }
     }
@@ -194,12 +303,14 @@ public class ChangeStack {
                 "Redo not possible");
 
         ImmutableSet.Builder<State> states = ImmutableSet.builder();
-        while (undoStack.size() < index) {
-            states.addAll(executeRedo().getStates());
+        if (!executeSnapshot(index, states)) {
+            while (undoStack.size() < index) {
+                states.addAll(executeRedo().getStates());
+            }
         }
         restart();
         updateObservers(states.build());
-        if (reporter != null) {
+        if (reporter != null && !replay) {
             reporter.updateAfterUndoRedo();
         }
     }
@@ -217,6 +328,91 @@ public class ChangeStack {
         return redoSet;
     }
 
+    /**
+     * Moves to the index by restoring the nearest snapshot before it
+     * and executing the remaining ChangeSets only.
+     * This is done only if it requires less changes than executing all ChangeSets in between.
+     * @param states builder to add the states changed between current index and index
+     * @return true if the snapshot was used
+     */
+    private boolean executeSnapshot(int index, ImmutableSet.Builder<State> states) {
+        Map.Entry<Integer, StateSnapshot> entry = snapshots.floorEntry(index);
+        if (entry == null) return false;
+        int snapshotIndex = entry.getKey();
+        StateSnapshot snapshot = entry.getValue();
+
+        int current = undoStack.size();
+        // the ChangeSet with index i is at position i-1
+        List<ChangeSet> changeSets = Lists.newArrayList(undoStack);
+        changeSets.addAll(redoStack);
+
+        // changes required to move step by step
+        int stepChanges = 0;
+        for (int i = Math.min(index, current); i < Math.max(index, current); i++) {
+            stepChanges += changeSets.get(i).size();
+        }
+        // changes required using the snapshot
+        Set<State> restore = Sets.newHashSet();
+        for (int i = Math.min(snapshotIndex, current); i < Math.max(snapshotIndex, current); i++) {
+            restore.addAll(changeSets.get(i).getStates());
+        }
+        int snapshotChanges = restore.size();
+        for (int i = snapshotIndex; i < index; i++) {
+            snapshotChanges += changeSets.get(i).size();
+        }
+        if (snapshotChanges >= stepChanges) return false;
+        log.debug("Move from index " + current + " to " + index + " using snapshot at " + snapshotIndex);
+
+        // states not stored in the snapshot are moved by their changes
+        if (index < current) {
+            for (int i = current - 1; i >= index; i--) {
+                changeSets.get(i).unexecute(snapshot, false);
+            }
+        } else {
+            for (int i = current; i < index; i++) {
+                changeSets.get(i).reexecute(snapshot, false);
+            }
+        }
+        // states stored in the snapshot are restored and then moved by the remaining changes
+        snapshot.restore(restore);
+        for (int i = snapshotIndex; i < index; i++) {
+            changeSets.get(i).reexecute(snapshot, true);
+        }
+
+        // update stacks
+        while (undoStack.size() > index) {
+            ChangeSet undoSet = undoStack.pollLast();
+            states.addAll(undoSet.getStates());
+            redoStack.addFirst(undoSet);
+            if (reporter != null) {
+                reporter.informOnUndo();
+            }
+        }
+        while (undoStack.size() < index) {
+            ChangeSet redoSet = redoStack.pollFirst();
+            states.addAll(redoSet.getStates());
+            undoStack.addLast(redoSet);
+            if (reporter != null) {
+                reporter.informOnRedo();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of changes stored in the closed ChangeSets (after compaction)
+     */
+    public long getStoredChanges() {
+        return storedChanges;
+    }
+
+    /**
+     * @return number of changes removed by the compaction of ChangeSets
+     */
+    public long getRemovedChanges() {
+        return removedChanges;
+    }
+
     /**
      * @return current index of the ChangeStack (equal to size of undo stack)
      */
@@ -63,4 +63,15 @@ public final class GenericState<E> extends State {
         this.object = object; 
     }
 
+    @Override
+    Object createSnapshot() {
+        return object;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void restoreSnapshot(Object snapshot) {
+        object = (E)snapshot;
+    }
+
 }
@@ -12,6 +12,12 @@ public final class GenericStateChange<E> extends Change {
         super.init(state);
     }
 
+    private GenericStateChange(GenericStateChange<E> first, GenericStateChange<E> last) {
+        state = first.state;
+        previous = first.previous;
+        next = last.next;
+    }
+
     @Override void execute() {
         state.change(next);
     }
@@ -20,6 +26,19 @@ public final class GenericStateChange<E> extends Change {
         state.change(previous);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    Change combine(Change later) {
+        if (!(later instanceof GenericStateChange) || ((GenericStateChange<?>)later).state != state) return null;
+        return new GenericStateChange<E>(this, (GenericStateChange<E>)later);
+    }
+
+    @Override
+    boolean isEmpty() {
+        // GenericState compares by identity
+        return previous == next;
+    }
+
     @Override
     public GenericState<E> getState() {
         return state;
@@ -53,6 +53,11 @@ public final class HashBiMapState<K,V> extends MapState<K,V> {
      */
     @Override
     public ImmutableBiMap<K,V> view() {
+        return (ImmutableBiMap<K,V>)super.view();
+    }
+
+    @Override
+    protected ImmutableBiMap<K,V> createView() {
         return ImmutableBiMap.copyOf(map);
     }
 
@@ -62,6 +67,11 @@ public final class HashBiMapState<K,V> extends MapState<K,V> {
      */
     @Override
     public ImmutableSet<V> viewValues() {
+        return (ImmutableSet<V>)super.viewValues();
+    }
+
+    @Override
+    protected ImmutableSet<V> createViewValues() {
         return ImmutableSet.copyOf(map.values());
     }
     
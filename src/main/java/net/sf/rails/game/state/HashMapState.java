@@ -52,6 +52,11 @@ public final class HashMapState<K,V> extends MapState<K,V> {
      */
     @Override
     public ImmutableList<V> viewValues() {
+        return (ImmutableList<V>)super.viewValues();
+    }
+
+    @Override
+    protected ImmutableList<V> createViewValues() {
         return ImmutableList.copyOf(map.values());
     }
 }
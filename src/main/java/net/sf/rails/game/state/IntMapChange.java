@@ -0,0 +1,94 @@
+package net.sf.rails.game.state;
+
+/**
+ * Change associated with IntMapState
+ */
+public final class IntMapChange<K> extends Change {
+
+    private final IntMapState<K> state;
+    private final K key;
+    private final int newValue;
+    private final boolean remove;
+    private final int oldValue;
+    private final boolean existed;
+
+    /**
+     * Put value into map
+     */
+    IntMapChange(IntMapState<K> state, K key, int value) {
+        this.state = state;
+        this.key = key;
+        newValue = value;
+        remove = false;
+        oldValue = state.get(key);
+        existed = state.containsKey(key);
+        super.init(state);
+    }
+
+    /**
+     * Remove key from map
+     */
+    IntMapChange(IntMapState<K> state, K key) {
+        this.state = state;
+        this.key = key;
+        newValue = 0;
+        remove = true;
+        oldValue = state.get(key);
+        existed = true;
+        super.init(state);
+    }
+
+    private IntMapChange(IntMapChange<K> first, IntMapChange<K> last) {
+        this.state = first.state;
+        this.key = first.key;
+        newValue = last.newValue;
+        remove = last.remove;
+        oldValue = first.oldValue;
+        existed = first.existed;
+    }
+
+    @Override void execute() {
+        state.change(key, newValue, remove);
+    }
+
+    @Override void undo() {
+        state.change(key, oldValue, !existed);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Change combine(Change later) {
+        if (!(later instanceof IntMapChange) || ((IntMapChange<?>)later).state != state) return null;
+        IntMapChange<K> laterChange = (IntMapChange<K>)later;
+        if (!laterChange.key.equals(key)) return null;
+        return new IntMapChange<K>(this, laterChange);
+    }
+
+    @Override
+    boolean isEmpty() {
+        if (remove) {
+            return !existed;
+        } else {
+            return existed && newValue == oldValue;
+        }
+    }
+
+    @Override
+    public IntMapState<K> getState() {
+        return state;
+    }
+
+    @Override
+    public String toString() {
+        if (!remove) {
+            if (existed) {
+                return "Change for " + state + ": For key=" + key + " replace value " + oldValue + " by " + newValue;
+            } else {
+                return "Change for " + state + ": Add key=" + key + " with value " + newValue;
+            }
+        } else {
+            return "Change for " + state + ": Remove key=" + key + " with value " + oldValue;
+        }
+    }
+
+}
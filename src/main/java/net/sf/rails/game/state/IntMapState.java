@@ -0,0 +1,184 @@
+package net.sf.rails.game.state;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * A stateful version of a HashMap with int values
+ * 
+ * The values are stored as primitives, thus neither updates nor changes box them.
+ * Keys that are not contained have a value of Zero.
+ *
+ * Use IntMapState for int arrays as well: the counters of the engine are keyed by items
+ * or colour names (which are not fixed, e.g. "gray" in 1826), and player indices change
+ * with the player order, thus there is no stable int index for an array state.
+ */
+public final class IntMapState<K> extends State {
+
+    // values are stored in single element arrays, which are updated in place
+    private final HashMap<K, int[]> map = Maps.newHashMap();
+
+    private IntMapState(Item parent, String id, Map<K, Integer> map) {
+        super(parent, id);
+        if (map != null) {
+            for (Map.Entry<K, Integer> entry:map.entrySet()) {
+                this.map.put(entry.getKey(), new int[] {entry.getValue()});
+            }
+        }
+    }
+
+    /**
+     * creates an empty IntMapState
+     */
+    public static <K> IntMapState<K> create(Item parent, String id){
+        return new IntMapState<K>(parent, id, null);
+    }
+
+    /**
+     * creates an initialized (filled) IntMapState
+     * @param map used for initialization
+     */
+    public static <K> IntMapState<K> create(Item parent, String id, Map<K, Integer> map){
+        return new IntMapState<K>(parent, id, map);
+    }
+
+    /**
+     * Add key,value pair to the map
+     * @param key for mapping
+     * @param value associated with key
+     */
+    public void put(K key, int value) {
+        int[] current = map.get(key);
+        if (current == null || current[0] != value) {
+            new IntMapChange<K>(this, key, value);
+        }
+    }
+
+    /**
+     * Adds value to the value associated with key
+     * If the key is not contained, the key is added with the value
+     * @return the new value associated with key
+     */
+    public int add(K key, int value) {
+        int newValue = get(key) + value;
+        put(key, newValue);
+        return newValue;
+    }
+
+    /**
+     * @return value associated with the key, Zero if the map does not contain the key
+     */
+    public int get(K key) {
+        int[] current = map.get(key);
+        if (current == null) {
+            return 0;
+        } else {
+            return current[0];
+        }
+    }
+
+    /**
+     * removes key from mapping
+     * @return true if the map contained the key
+     */
+    public boolean remove(K key) {
+        if (!map.containsKey(key)) return false;
+        new IntMapChange<K>(this, key);
+        return true;
+    }
+
+    public boolean containsKey(K key) {
+        return map.containsKey(key);
+    }
+
+    /**
+     * removes all mappings from the map
+     */
+    public void clear() {
+        for (K key:ImmutableSet.copyOf(map.keySet())) {
+            remove(key);
+        }
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * (re)initializes the state from another map
+     * @param initMap used for initialization
+     */
+    public void initFromMap(Map<K, Integer> initMap) {
+        checkNotNull(initMap);
+        // all from initMap get added
+        for (Map.Entry<K, Integer> entry:initMap.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+        // remove those only in current map
+        for (K key:ImmutableSet.copyOf(Sets.difference(map.keySet(), initMap.keySet()))) {
+            remove(key);
+        }
+    }
+
+    /**
+     * creates an immutable copy of the map
+     */
+    public ImmutableMap<K, Integer> view() {
+        ImmutableMap.Builder<K, Integer> view = ImmutableMap.builder();
+        for (Map.Entry<K, int[]> entry:map.entrySet()) {
+            view.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return view.build();
+    }
+
+    /**
+     * creates an immutable copy of the keyset
+     */
+    public ImmutableSet<K> viewKeySet() {
+        return ImmutableSet.copyOf(map.keySet());
+    }
+
+    @Override
+    public String toText() {
+        return view().toString();
+    }
+
+    void change(K key, int value, boolean remove) {
+        if (remove) {
+            map.remove(key);
+        } else {
+            int[] current = map.get(key);
+            if (current == null) {
+                map.put(key, new int[] {value});
+            } else {
+                current[0] = value;
+            }
+        }
+    }
+
+    @Override
+    Object createSnapshot() {
+        return view();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void restoreSnapshot(Object snapshot) {
+        map.clear();
+        for (Map.Entry<K, Integer> entry:((Map<K, Integer>)snapshot).entrySet()) {
+            map.put(entry.getKey(), new int[] {entry.getValue()});
+        }
+    }
+
+}
@@ -16,6 +16,12 @@ public final class IntegerChange extends Change {
         super.init(state);
     }
 
+    private IntegerChange(IntegerChange first, IntegerChange last) {
+        this.state = first.state;
+        this.newValue = last.newValue;
+        this.oldValue = first.oldValue;
+    }
+
     @Override void execute() {
         state.change(newValue);
     }
@@ -24,6 +30,17 @@ public final class IntegerChange extends Change {
         state.change(oldValue);
     }
 
+    @Override
+    Change combine(Change later) {
+        if (!(later instanceof IntegerChange) || ((IntegerChange)later).state != state) return null;
+        return new IntegerChange(this, (IntegerChange)later);
+    }
+
+    @Override
+    boolean isEmpty() {
+        return newValue == oldValue;
+    }
+
     @Override
     public IntegerState getState() {
         return state;
@@ -40,6 +40,11 @@ public final class IntegerState extends State {
         return value;
     }
 
+    @Override
+    protected boolean isTextCached() {
+        return true;
+    }
+
     @Override
     public String toText() {
         return Integer.toString(value);
@@ -48,5 +53,15 @@ public final class IntegerState extends State {
     void change(int value) {
         this.value = value;
     }
+
+    @Override
+    Object createSnapshot() {
+        return value;
+    }
+
+    @Override
+    void restoreSnapshot(Object snapshot) {
+        value = (Integer)snapshot;
+    }
     
 }
@@ -2,6 +2,7 @@ package net.sf.rails.game.state;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -16,6 +17,11 @@ import com.google.common.collect.Sets;
 
 public abstract class MapState<K,V> extends State implements Iterable<V> {
 
+    // cached views, reset by each change
+    private ImmutableMap<K,V> view;
+    private ImmutableSet<K> keySetView;
+    private ImmutableCollection<V> valuesView;
+
     protected MapState(Item parent, String id) {
         super(parent, id);
     }
@@ -91,7 +97,7 @@ public abstract class MapState<K,V> extends State implements Iterable<V> {
      * removes all mappings from the getMap()
      */
     public void clear() {
-        for (K key : ImmutableSet.copyOf(getMap().keySet())) {
+        for (K key : viewKeySet()) {
             remove (key);
         }
     }
@@ -126,9 +132,17 @@ public abstract class MapState<K,V> extends State implements Iterable<V> {
     
     /**
      * creates an immutable copy of the getMap()
+     * The views are cached until the next change of the map
      * @return immutable version of the getMap()
      */
     public ImmutableMap<K,V> view() {
+        if (view == null) {
+            view = createView();
+        }
+        return view;
+    }
+    
+    protected ImmutableMap<K,V> createView() {
         return ImmutableMap.copyOf(getMap());
     }
     
@@ -137,22 +151,56 @@ public abstract class MapState<K,V> extends State implements Iterable<V> {
      * @return immutable keyset of the getMap()
      */
     public ImmutableSet<K> viewKeySet() {
-        return ImmutableSet.copyOf(getMap().keySet());
+        if (keySetView == null) {
+            keySetView = ImmutableSet.copyOf(getMap().keySet());
+        }
+        return keySetView;
+    }
+    
+    /**
+     * creates an immutable copy of the values
+     * @return immutable values of the getMap()
+     */
+    public ImmutableCollection<V> viewValues() {
+        if (valuesView == null) {
+            valuesView = createViewValues();
+        }
+        return valuesView;
     }
     
-    public abstract ImmutableCollection<V> viewValues();
+    protected abstract ImmutableCollection<V> createViewValues();
 
     public Iterator<V> iterator() {
         return viewValues().iterator();
     }
     
+    private void resetViews() {
+        view = null;
+        keySetView = null;
+        valuesView = null;
+    }
+    
     void change(K key, V value, boolean remove) {
+        resetViews();
         if (remove) {
             getMap().remove(key);
         } else {
             getMap().put(key, value);
         }
     }
+
+    @Override
+    Object createSnapshot() {
+        return new HashMap<K,V>(getMap());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void restoreSnapshot(Object snapshot) {
+        resetViews();
+        getMap().clear();
+        getMap().putAll((Map<K,V>)snapshot);
+    }
     
     @Override
     public String toText() {
@@ -1,12 +1,15 @@
 package net.sf.rails.game.state;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 
 /**
@@ -14,6 +17,12 @@ import com.google.common.collect.Multimap;
  */
 public abstract class MultimapState<K,V> extends State implements Iterable<V> {
     
+    // cached views, reset by each change
+    private ImmutableMultimap<K,V> view;
+    private ImmutableSet<K> keySetView;
+    private ImmutableCollection<V> valuesView;
+    private final Map<K, ImmutableSet<V>> keyViews = Maps.newHashMap();
+
     protected MultimapState(Item parent, String id) {
         super(parent, id);
     }
@@ -33,9 +42,23 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
         return true;
     }
 
+    /**
+     * The views are cached until the next change of the multimap
+     * @return all values stored for the key
+     */
     public ImmutableSet<V> get(K key) {
+        ImmutableSet<V> values = keyViews.get(key);
+        if (values == null) {
+            values = createView(key);
+            keyViews.put(key, values);
+        }
+        return values;
+    }
+
+    protected ImmutableSet<V> createView(K key) {
         return ImmutableSet.copyOf(getMap().get(key));
     }
+
     public boolean remove(K key, V value) {
         if (!getMap().containsEntry(key, value)) return false;
         new MultimapChange<K,V>(this, key, value, false);
@@ -71,6 +94,13 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
     }
     
     public ImmutableSet<K> keySet() {
+        if (keySetView == null) {
+            keySetView = createKeySetView();
+        }
+        return keySetView;
+    }
+
+    protected ImmutableSet<K> createKeySetView() {
         return ImmutableSet.copyOf(getMap().keySet());
     }
 
@@ -78,6 +108,13 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
      * @return all values of the multimap
      */
     public ImmutableCollection<V> values() {
+        if (valuesView == null) {
+            valuesView = createValuesView();
+        }
+        return valuesView;
+    }
+
+    protected ImmutableCollection<V> createValuesView() {
         // ImmutableCollection.copyOf does not exist, uses List instead
         return ImmutableList.copyOf(getMap().values());
     }
@@ -87,6 +124,13 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
      * @return immutable version of the Multimap
      */
     public ImmutableMultimap<K,V> view() {
+        if (view == null) {
+            view = createView();
+        }
+        return view;
+    }
+
+    protected ImmutableMultimap<K,V> createView() {
         return ImmutableMultimap.copyOf(getMap());
     }
     
@@ -94,7 +138,7 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
      * @return an iterator over all values
      */
     public Iterator<V> iterator() {
-        return ImmutableList.copyOf(getMap().values()).iterator();
+        return view().values().iterator();
     }
     
     @Override
@@ -102,11 +146,32 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
         return getMap().toString();
     }
     
+    private void resetViews() {
+        view = null;
+        keySetView = null;
+        valuesView = null;
+        keyViews.clear();
+    }
+    
     void change(K key, V value, boolean addToMap) {
+        resetViews();
         if (addToMap) {
             getMap().put(key, value);
         } else {
             getMap().remove(key, value);
         }
     }
+
+    @Override
+    Object createSnapshot() {
+        return ArrayListMultimap.create(getMap());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void restoreSnapshot(Object snapshot) {
+        resetViews();
+        getMap().clear();
+        getMap().putAll((Multimap<K,V>)snapshot);
+    }
 }
@@ -14,6 +14,11 @@ public abstract class Observable implements Item {
     private final String id;
     private final Item parent;
     private final Context context;
+
+    // text cache, null if invalid (used only if isTextCached() is true)
+    private String cachedText;
+    // text delivered to observers by the last update (used only if isTextCached() is true)
+    private String deliveredText;
     
     /**
      * @param parent parent node in item hierarchy (cannot be null)
@@ -89,6 +94,54 @@ public abstract class Observable implements Item {
     public String toText() {
         return this.toString();
     }
+
+    /**
+     * If true the text is cached until the observable or a state it depends on changes,
+     * and observers are updated only if the text differs from the previously delivered one.
+     * 
+     * Requires that the text contains all information that observers use, and that
+     * the observable is a model of all states its text depends on.
+     * Default is false: text is created on each request and observers are always updated.
+     */
+    protected boolean isTextCached() {
+        return false;
+    }
+
+    /**
+     * @return text for observers, identical to toText(), but cached if isTextCached() is true
+     */
+    public final String getText() {
+        if (!isTextCached()) {
+            return toText();
+        }
+        if (cachedText == null) {
+            cachedText = toText();
+        }
+        return cachedText;
+    }
+
+    /**
+     * Invalidates the cached text, has to be called if the text changes 
+     * without a change of a state the observable depends on
+     */
+    protected void invalidateText() {
+        cachedText = null;
+    }
+
+    /**
+     * Stores the text that is delivered to observers
+     * @return false if the observers already received that text
+     */
+    boolean setDeliveredText(String text) {
+        if (!isTextCached()) return true;
+        if (deliveredText != null && deliveredText.equals(text)) return false;
+        deliveredText = text;
+        return true;
+    }
+
+    void resetDeliveredText() {
+        deliveredText = null;
+    }
     
     // Item methods
     
@@ -46,6 +46,16 @@ public class Purse extends Wallet<Currency> {
         amount += value;
     }
 
+    @Override
+    Object createSnapshot() {
+        return amount;
+    }
+
+    @Override
+    void restoreSnapshot(Object snapshot) {
+        amount = (Integer)snapshot;
+    }
+
     @Override
     public String toText() {
         return currency.format(amount);
@@ -44,7 +44,7 @@ public class Root extends Context{
    private void initDelayedItems() {
        items = HashMapState.create(this, "items");
        for (Item item: delayedItems) {
-           items.put(item.getFullURI(), item);
+           items.change(item.getFullURI(), item, false);
        }
        delayItems = false;
    }
@@ -118,8 +118,12 @@ public class Root extends Context{
        checkArgument(!items.containsKey(item.getFullURI()), 
                "Root already contains item with identical fullURI = " + item.getFullURI());
        
-       // all preconditions ok => add
-       items.put(item.getFullURI(), item);
+       // all preconditions ok => add (not recorded during construction)
+       if (stateManager.isConstruction()) {
+           items.change(item.getFullURI(), item, false);
+       } else {
+           items.put(item.getFullURI(), item);
+       }
    }
 
    void removeItem(Item item) {
@@ -127,8 +131,12 @@ public class Root extends Context{
        checkArgument(items.containsKey(item.getFullURI()), 
                "Root does not contain item with that fullURI = " + item.getFullURI());
        
-       // all preconditions ok => remove
-       items.remove(item.getFullURI());
+       // all preconditions ok => remove (not recorded during construction)
+       if (stateManager.isConstruction()) {
+           items.change(item.getFullURI(), null, true);
+       } else {
+           items.remove(item.getFullURI());
+       }
    }
    
    @Override
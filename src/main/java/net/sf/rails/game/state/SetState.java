@@ -1,5 +1,7 @@
 package net.sf.rails.game.state;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -7,6 +9,9 @@ import com.google.common.collect.ImmutableSet;
 
 public abstract class SetState<E> extends State implements Iterable<E>  {
     
+    // cached view, reset by each change
+    private ImmutableSet<E> view;
+
     protected SetState(Item parent, String id) {
         super(parent, id);
     }
@@ -48,15 +53,23 @@ public abstract class SetState<E> extends State implements Iterable<E>  {
      * removes all elements
      */
     public void clear() {
-        for (E element:ImmutableSet.copyOf(getSet())) {
+        for (E element:view()) {
             remove(element);
         }
     }
 
     /**
+     * The view is cached until the next change of the set
      * @return immutable view of getSet()
      */
     public ImmutableSet<E> view() {
+        if (view == null) {
+            view = createView();
+        }
+        return view;
+    }
+
+    protected ImmutableSet<E> createView() {
         return ImmutableSet.copyOf(getSet());
     }
 
@@ -84,6 +97,7 @@ public abstract class SetState<E> extends State implements Iterable<E>  {
     }
     
     void change(E element, boolean addToSet) {
+        view = null;
         if (addToSet) {
             getSet().add(element);
         } else {
@@ -91,4 +105,17 @@ public abstract class SetState<E> extends State implements Iterable<E>  {
         }
     }
 
+    @Override
+    Object createSnapshot() {
+        return new ArrayList<E>(getSet());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void restoreSnapshot(Object snapshot) {
+        view = null;
+        getSet().clear();
+        getSet().addAll((Collection<E>)snapshot);
+    }
+
 }
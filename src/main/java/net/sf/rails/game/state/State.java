@@ -29,5 +29,16 @@ public abstract class State extends Observable {
     void informTriggers(Change change) {
         this.getStateManager().informTriggers(this, change);
     }
+
+    /**
+     * @return a copy of the current value, stored in the snapshots of the ChangeStack
+     */
+    abstract Object createSnapshot();
+
+    /**
+     * Sets the value back to a snapshot created by createSnapshot()
+     * Does not create a Change, as it is only used by the ChangeStack
+     */
+    abstract void restoreSnapshot(Object snapshot);
    
 }
\ No newline at end of file
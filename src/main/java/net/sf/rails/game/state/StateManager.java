@@ -4,17 +4,20 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.HashMultimap;
+import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
 
 public final class StateManager extends Manager{
     
@@ -33,8 +36,16 @@ public final class StateManager extends Manager{
 
     // observers is not a state variable (as the have to register and de-register themselves)
     // gui eleemnts do not have a state of their own (with respect to the game engine)
-    private final HashMultimap<Observable, Observer> observers = 
-            HashMultimap.create();
+    // the observer sets are immutable (copy on write), thus notification does not copy them
+    // and observers can (de-)register themselves during notification
+    private final Map<Observable, ImmutableSet<Observer>> observers = Maps.newHashMap();
+    // reverse index to check the registration of observers
+    private final Map<Observer, Observable> observables = Maps.newHashMap();
+
+    // cached dependency order of the Observable->Model graph
+    // is reset if models are added or removed (including undo/redo)
+    private final Map<Observable, ImmutableList<Model>> modelsToUpdate = Maps.newHashMap();
+    private Ordering<Model> modelOrdering = null;
     
     // initialized later in init()
     private PortfolioManager portfolioManager;
@@ -58,11 +69,25 @@ public final class StateManager extends Manager{
         walletManager = WalletManager.create(this, "walletManager");
     }
     
+    /**
+     * Structural wiring (registration of states and items, models and triggers) 
+     * is not recorded as changes during the construction of the game,
+     * as the initial ChangeSet cannot be undone.
+     * @return true until the initial ChangeSet is closed
+     */
+    boolean isConstruction() {
+        return changeStack.getCurrentIndex() == 0;
+    }
+
     /**
      * Register states (usually called automatically at state creation)
      */
     void registerState(State state) {
-        allStates.add(state);
+        if (isConstruction()) {
+            allStates.change(state, true);
+        } else {
+            allStates.add(state);
+        }
     }
     
 //    /**
@@ -86,22 +111,44 @@ public final class StateManager extends Manager{
      * @throws an IllegalArgumentException - if observer is already assigned to an observable
      */
     void addObserver(Observer observer, Observable observable) {
-        checkArgument(!observers.containsValue(observer), "Observer can only be assigned to one Observable");
-        observers.put(observable, observer);
+        checkArgument(!observables.containsKey(observer), "Observer can only be assigned to one Observable");
+        observables.put(observer, observable);
+        // the new observer has to receive the next update
+        observable.resetDeliveredText();
+        ImmutableSet<Observer> current = observers.get(observable);
+        if (current == null) {
+            observers.put(observable, ImmutableSet.of(observer));
+        } else {
+            observers.put(observable, ImmutableSet.<Observer>builder().addAll(current).add(observer).build());
+        }
     }
     
     /** 
      * Remove combination of observer to observable 
      */
     boolean removeObserver(Observer observer, Observable observable) {
-        return observers.remove(observable, observer);
+        if (observables.get(observer) != observable) return false;
+        observables.remove(observer);
+        ImmutableSet<Observer> current = observers.get(observable);
+        if (current.size() == 1) {
+            observers.remove(observable);
+        } else {
+            ImmutableSet.Builder<Observer> remaining = ImmutableSet.builder();
+            for (Observer o:current) {
+                if (!o.equals(observer)) remaining.add(o);
+            }
+            observers.put(observable, remaining.build());
+        }
+        return true;
     }
     
     /**
      * Set of all observers that observe the observable
      */
     ImmutableSet<Observer> getObservers(Observable observable) {
-        return ImmutableSet.copyOf(observers.get(observable));
+        ImmutableSet<Observer> current = observers.get(observable);
+        if (current == null) return ImmutableSet.of();
+        return current;
     }
     
     /**
@@ -110,11 +157,13 @@ public final class StateManager extends Manager{
      * @param Observable the observable to monitor
      */
     void addModel(Model model, Observable observable) {
-        models.put(observable, model);
+        put(models, observable, model);
+        resetModelOrder();
     }
 
     boolean removeModel(Model model, Observable observable) {
-        return models.remove(observable, model);
+        resetModelOrder();
+        return remove(models, observable, model);
     }
     
     ImmutableSet<Model> getModels(Observable observable) {
@@ -127,11 +176,30 @@ public final class StateManager extends Manager{
      * @param Observable the observable to monitor
      */
     void addTrigger(Triggerable trigger, Observable observable) {
-        triggers.put(observable, trigger);
+        put(triggers, observable, trigger);
     }
     
     boolean removeTrigger(Triggerable trigger, Observable observable) {
-        return triggers.remove(observable, trigger);
+        return remove(triggers, observable, trigger);
+    }
+
+    // wiring during construction is not recorded
+    private <V> boolean put(MultimapState<Observable, V> wiring, Observable observable, V value) {
+        if (!isConstruction()) {
+            return wiring.put(observable, value);
+        }
+        if (wiring.containsEntry(observable, value)) return false;
+        wiring.change(observable, value, true);
+        return true;
+    }
+
+    private <V> boolean remove(MultimapState<Observable, V> wiring, Observable observable, V value) {
+        if (!isConstruction()) {
+            return wiring.remove(observable, value);
+        }
+        if (!wiring.containsEntry(observable, value)) return false;
+        wiring.change(observable, value, false);
+        return true;
     }
     
     ImmutableSet<Triggerable> getTriggers(Observable observable) {
@@ -146,49 +214,102 @@ public final class StateManager extends Manager{
             log.debug("State " + state + " sends change to Trigger " + t);
         }
         
-        // check if there are models
-        ImmutableSet<Model> initModels = getModels(state);
-        if (initModels.isEmpty()) return;
-        ImmutableList<Model> allModels = getModelsToUpdate(initModels);
-
         // Inform indirect triggers
-        for (Model m:allModels) {
+        for (Model m:getModelsToUpdate(state)) {
             for (Triggerable t:getTriggers(m)) {
                 t.triggered(m, change);
                 log.debug("Model " + m + " sends change to Trigger " + t);
             }
         }
     }
-    
+
     /**
      * A set of observables is given as input
      * and then calculates all observer to update in the correct sequence
      * 
-     * It uses a topological sort based on DFS
+     * The models to update of each observable are cached, 
+     * for several observables they are merged using the cached order of all models
      * 
      * @param observables that have been updated
      * @return sorted list of all models to be updated
      */
     ImmutableList<Model> getModelsToUpdate(Collection<? extends Observable> observables) {
-        // Topological sort
+        if (observables.size() == 1) {
+            return getModelsToUpdate(observables.iterator().next());
+        }
+        
+        Set<Model> allModels = Sets.newHashSet();
+        for (Observable s: observables) {
+            allModels.addAll(getModelsToUpdate(s));
+        }
+        if (allModels.isEmpty()) return ImmutableList.of();
+        return getModelOrdering().immutableSortedCopy(allModels);
+    }
+    
+    /**
+     * @param observable that has been updated
+     * @return sorted list of all models to be updated (cached)
+     */
+    ImmutableList<Model> getModelsToUpdate(Observable observable) {
+        ImmutableList<Model> cached = modelsToUpdate.get(observable);
+        if (cached == null) {
+            if (getModels(observable).isEmpty() && !(observable instanceof Model)) {
+                cached = ImmutableList.of();
+            } else {
+                cached = topoSort(ImmutableList.of(observable), true);
+            }
+            modelsToUpdate.put(observable, cached);
+        }
+        return cached;
+    }
+    
+    /**
+     * @return ordering of all models compatible with the dependencies between them
+     */
+    private Ordering<Model> getModelOrdering() {
+        if (modelOrdering == null) {
+            // cycles are ignored here, as they are detected for the models to update
+            Map<Model, Integer> ranks = Maps.newHashMap();
+            for (Model m:topoSort(models.keySet(), false)) {
+                ranks.put(m, ranks.size());
+            }
+            // models without any dependencies can be updated at any time
+            modelOrdering = Ordering.natural().onResultOf(Functions.forMap(ranks, -1));
+        }
+        return modelOrdering;
+    }
+    
+    private void resetModelOrder() {
+        modelsToUpdate.clear();
+        modelOrdering = null;
+    }
+    
+    /**
+     * Topological sort based on DFS
+     * @param strict if true throws an IllegalStateException if there is a cycle
+     */
+    private ImmutableList<Model> topoSort(Collection<? extends Observable> observables, boolean strict) {
         // Initialize (we do not use WHITE explicitly, but implicit)
         final Map<Observable, Color> colors = Maps.newHashMap();
         final LinkedList<Model> topoList = Lists.newLinkedList();
         
         // For all states
         for (Observable s: observables) {
-            topoSort(s, colors, topoList);
+            if (!colors.containsKey(s)) {
+                topoSort(s, colors, topoList, strict);
+            }
         }
         return ImmutableList.copyOf(topoList);
     }
     
     private static enum Color {WHITE, GREY, BLACK};
-    private void topoSort(final Observable v, final Map<Observable, Color> colors, final LinkedList<Model> topoList) {
+    private void topoSort(final Observable v, final Map<Observable, Color> colors, final LinkedList<Model> topoList,
+            final boolean strict) {
         colors.put(v, Color.GREY);
         for (Model m:getModels(v)) {
             if (!colors.containsKey(m)) {
-                topoSort(m, colors, topoList);
-            } else if (colors.get(m) == Color.GREY) {
+                topoSort(m, colors, topoList, strict);
+            } else if (strict && colors.get(m) == Color.GREY) {
                 throw new IllegalStateException("Graph of Observables contains Cycle");
             }
         }
@@ -198,12 +319,17 @@ public final class StateManager extends Manager{
     
     
     void updateObservers(Set<State> states) {
+        // undo/redo of models changes the dependencies
+        if (states.contains(models)) {
+            resetModelOrder();
+        }
+
         // all direct observers
         for (State s:states){
             Set<Observer> observers = getObservers(s);
             if (observers.isEmpty()) continue;
-            // cache StateText
-            String stateText = s.toText();
+            String stateText = s.getText();
+            if (!s.setDeliveredText(stateText)) continue;
             for (Observer o:observers) {
                 o.update(stateText);
                 log.debug("State " + s + " updates observer " + o);
@@ -214,8 +340,8 @@ public final class StateManager extends Manager{
         for (Model m:getModelsToUpdate(states)) {
             Set<Observer> observers = getObservers(m);
             if (observers.isEmpty()) continue;
-            // cache ModelText
-            String modelText = m.toText();
+            String modelText = m.getText();
+            if (!m.setDeliveredText(modelText)) continue;
             for (Observer o:observers) {
                 o.update(modelText);
                 log.debug("Model " + m + " updates observer " + o);
@@ -223,6 +349,25 @@ public final class StateManager extends Manager{
         }
     }
     
+    /**
+     * Invalidates the cached texts of the state and the models that depend on it
+     */
+    void invalidateTexts(State state) {
+        state.invalidateText();
+        for (Model m:getModelsToUpdate(state)) {
+            m.invalidateText();
+        }
+    }
+
+    /**
+     * Invalidates the cached texts of the states and the models that depend on them
+     */
+    void invalidateTexts(Set<State> states) {
+        for (State s:states) {
+            invalidateTexts(s);
+        }
+    }
+    
     // StateManager getters for sub-components
     //////////////////////////////////////////
     
@@ -0,0 +1,70 @@
+package net.sf.rails.game.state;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A StateSnapshot stores the values of all registered states
+ * after a ChangeSet was closed.
+ *
+ * StateSnapshot objects are stored in the ChangeStack to allow
+ * undo/redo to a distant index without executing all ChangeSets in between.
+ *
+ * Values of states that did not change since the previous snapshot are shared with it.
+ */
+final class StateSnapshot {
+
+    private final Map<State, Object> values;
+
+    private StateSnapshot(Map<State, Object> values) {
+        this.values = values;
+    }
+
+    /**
+     * @param states all registered states
+     * @param previous snapshot to share values with, null creates a full snapshot
+     * @param changed states that changed since the previous snapshot
+     */
+    static StateSnapshot create(Collection<State> states,
+            StateSnapshot previous, Set<State> changed) {
+        Map<State, Object> values = Maps.newHashMapWithExpectedSize(states.size());
+        for (State state:states) {
+            if (previous != null && !changed.contains(state) && previous.contains(state)) {
+                values.put(state, previous.values.get(state));
+            } else {
+                values.put(state, state.createSnapshot());
+            }
+        }
+        return new StateSnapshot(values);
+    }
+
+    /**
+     * @return true if the value of the state is stored in the snapshot
+     */
+    boolean contains(State state) {
+        return values.containsKey(state);
+    }
+
+    /**
+     * @return number of states stored in the snapshot
+     */
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * sets the states back to their values stored in the snapshot
+     * @param states to restore, states not stored in the snapshot are ignored
+     */
+    void restore(Collection<State> states) {
+        for (State state:states) {
+            if (values.containsKey(state)) {
+                state.restoreSnapshot(values.get(state));
+            }
+        }
+    }
+
+}
@@ -1,5 +1,7 @@
 package net.sf.rails.game.state;
 
+import com.google.common.base.Objects;
+
 /**
  * Change associated with StringState
  * @author freystef
@@ -17,6 +19,12 @@ public final class StringChange extends Change {
         this.oldValue = state.value();
         super.init(state);
     }
+
+    private StringChange(StringChange first, StringChange last) {
+        this.state = first.state;
+        this.newValue = last.newValue;
+        this.oldValue = first.oldValue;
+    }
     
     @Override void execute() {
         state.change(newValue);
@@ -26,6 +34,17 @@ public final class StringChange extends Change {
         state.change(oldValue);
     }
 
+    @Override
+    Change combine(Change later) {
+        if (!(later instanceof StringChange) || ((StringChange)later).state != state) return null;
+        return new StringChange(this, (StringChange)later);
+    }
+
+    @Override
+    boolean isEmpty() {
+        return Objects.equal(newValue, oldValue);
+    }
+
     @Override
     public StringState getState() {
         return state;
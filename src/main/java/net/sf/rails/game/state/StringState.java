@@ -68,6 +68,11 @@ public final class StringState extends State {
         return value;
     }
 
+    @Override
+    protected boolean isTextCached() {
+        return true;
+    }
+
     @Override 
     public String toText() {
         return value;
@@ -76,4 +81,14 @@ public final class StringState extends State {
     void change(String value) {
         this.value = value;
     }
+
+    @Override
+    Object createSnapshot() {
+        return value;
+    }
+
+    @Override
+    void restoreSnapshot(Object snapshot) {
+        value = (String)snapshot;
+    }
 }
@@ -32,21 +32,41 @@ public final class TreeMultimapState<K extends Comparable<?>, V extends Comparab
     
     @Override
     public ImmutableSortedSet<V> get(K key) {
+        return (ImmutableSortedSet<V>)super.get(key);
+    }
+
+    @Override
+    protected ImmutableSortedSet<V> createView(K key) {
         return ImmutableSortedSet.copyOf(map.get(key));
     }
     
     @Override
     public ImmutableSortedSet<K> keySet() {
+        return (ImmutableSortedSet<K>)super.keySet();
+    }
+
+    @Override
+    protected ImmutableSortedSet<K> createKeySetView() {
         return ImmutableSortedSet.copyOf(map.keySet());
     }
     
     @Override
     public ImmutableSortedSet<V> values() {
+        return (ImmutableSortedSet<V>)super.values();
+    }
+
+    @Override
+    protected ImmutableSortedSet<V> createValuesView() {
         return ImmutableSortedSet.copyOf(map.values());
     }
     
     @Override
     public ImmutableSetMultimap<K,V> view() {
+        return (ImmutableSetMultimap<K,V>)super.view();
+    }
+
+    @Override
+    protected ImmutableSetMultimap<K,V> createView() {
         return ImmutableSetMultimap.copyOf(map);
     }
 
@@ -4,6 +4,9 @@ import java.util.Collection;
 import java.util.TreeSet;
 import java.util.Set;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+
 public final class TreeSetState<E extends Comparable<?>> extends SetState<E> {
 
     private final TreeSet<E> set;
@@ -36,4 +39,17 @@ public final class TreeSetState<E extends Comparable<?>> extends SetState<E> {
         return set;
     }
 
+    /**
+     * @return immutable sorted view of the set (cached until the next change)
+     */
+    @Override
+    public ImmutableSortedSet<E> view() {
+        return (ImmutableSortedSet<E>)super.view();
+    }
+
+    @Override
+    protected ImmutableSet<E> createView() {
+        return ImmutableSortedSet.copyOfSorted(set);
+    }
+
 }
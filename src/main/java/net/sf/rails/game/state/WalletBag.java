@@ -43,6 +43,16 @@ public class WalletBag<T extends Countable> extends Wallet<T> {
         amount += value;
     }
 
+    @Override
+    Object createSnapshot() {
+        return amount;
+    }
+
+    @Override
+    void restoreSnapshot(Object snapshot) {
+        amount = (Integer)snapshot;
+    }
+
     @Override
     public String toText() {
         return Integer.toString(amount);
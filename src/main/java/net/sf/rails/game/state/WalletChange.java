@@ -12,6 +12,12 @@ public final class WalletChange<T extends Countable> extends Change {
         this.amount = amount;
         super.init(wallet);
     }
+
+    private WalletChange(WalletChange<T> first, WalletChange<T> last) {
+        this.wallet = first.wallet;
+        this.item = first.item;
+        this.amount = first.amount + last.amount;
+    }
     
     @Override 
     void execute() {
@@ -23,6 +29,21 @@ public final class WalletChange<T extends Countable> extends Change {
         wallet.change(item, -amount);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    Change combine(Change later) {
+        if (!(later instanceof WalletChange) || ((WalletChange<?>)later).wallet != wallet) return null;
+        WalletChange<T> laterChange = (WalletChange<T>)later;
+        // only moves of the same item can be netted
+        if (laterChange.item != item) return null;
+        return new WalletChange<T>(this, laterChange);
+    }
+
+    @Override
+    boolean isEmpty() {
+        return amount == 0;
+    }
+
     @Override
     public 
     Wallet<T> getState() {
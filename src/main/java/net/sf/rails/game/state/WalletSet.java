@@ -1,5 +1,6 @@
 package net.sf.rails.game.state;
 
+import java.util.Map;
 import java.util.TreeMap;
 
 import com.google.common.collect.ImmutableSortedMap;
@@ -58,6 +59,18 @@ public class WalletSet<T extends Countable> extends Wallet<T> {
         wallet.put(item, value(item) + value);
     }
     
+    @Override
+    Object createSnapshot() {
+        return ImmutableSortedMap.copyOf(wallet);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void restoreSnapshot(Object snapshot) {
+        wallet.clear();
+        wallet.putAll((Map<T, Integer>)snapshot);
+    }
+
     @Override
     public String toText() {
         return wallet.toString();
@@ -0,0 +1,88 @@
+package net.sf.rails.tools;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+import net.sf.rails.util.GameSaver;
+import net.sf.rails.util.RailsReplayException;
+
+/**
+ * Converts saved files to the binary (or serialized) save format.
+ *
+ * Arguments: [-serialized] files or directories (default is the save directory)
+ * The converted files replace the originals, which are kept as backup files (.bak).
+ */
+public class ConvertSavedFiles {
+
+    private final GameSaver.Format format;
+    private final String extension;
+
+    private int converted = 0;
+    private int failed = 0;
+
+    private ConvertSavedFiles(GameSaver.Format format) {
+        this.format = format;
+        this.extension = "." + Config.get("save.filename.extension", "rails");
+    }
+
+    public static void main(String[] args) {
+
+        // intialize configuration
+        ConfigManager.initConfiguration(false);
+
+        GameSaver.Format format = GameSaver.Format.BINARY;
+        int start = 0;
+        if (args.length > 0 && args[0].equalsIgnoreCase("-serialized")) {
+            format = GameSaver.Format.SERIALIZED;
+            start = 1;
+        }
+
+        ConvertSavedFiles converter = new ConvertSavedFiles(format);
+        if (args.length > start) {
+            for (int i = start; i < args.length; i++) {
+                converter.convert(new File(args[i]));
+            }
+        } else {
+            converter.convert(new File(Config.get("save.directory")));
+        }
+        System.out.println("Converted " + converter.converted + " files to " + format
+                + ", " + converter.failed + " failed");
+    }
+
+    private void convert(File file) {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files == null) return;
+            for (File f:files) {
+                if (f.isDirectory() || f.getName().endsWith(extension)) {
+                    convert(f);
+                }
+            }
+            return;
+        }
+
+        RailsRoot.clearInstance();
+        GameLoader gameLoader = new GameLoader();
+        if (!gameLoader.createFromFile(file) && !(gameLoader.getException() instanceof RailsReplayException)) {
+            // only the replay failure still has all actions available
+            System.out.println("Cannot load " + file.getPath() + ": " + gameLoader.getException());
+            failed++;
+            return;
+        }
+        try {
+            GameSaver gameSaver = new GameSaver(gameLoader);
+            gameSaver.setFormat(format);
+            gameSaver.saveGameSafely(file);
+            System.out.println("Converted " + file.getPath());
+            converted++;
+        } catch (IOException e) {
+            System.out.println("Cannot save " + file.getPath() + ": " + e.getMessage());
+            failed++;
+        }
+    }
+
+}
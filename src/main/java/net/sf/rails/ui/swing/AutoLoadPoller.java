@@ -30,6 +30,19 @@ public class AutoLoadPoller extends Thread {
     public static final int ON = 1;
     public static final int SUSPENDED = 2;
 
+    /** time without further changes before a change of the save directory is processed (ms) */
+    public static final int DEBOUNCE_TIME = 500;
+
+    /**
+     * maximum time between two checks if the save directory is watched (seconds):
+     * only a safety net for lost notifications, changes of the status trigger an immediate check
+     */
+    public static final int WATCH_SAFETY_INTERVAL = 300;
+
+    // watcher of the save directory, null if the file system notifications are not used
+    private SaveDirectoryWatcher watcher = null;
+    private boolean watchingFailed = !SaveDirectoryWatcher.isAvailable();
+
     protected static Logger log =
         LoggerFactory.getLogger(AutoLoadPoller.class);
 
@@ -55,46 +68,24 @@ public class AutoLoadPoller extends Thread {
 
         log.info ("AutoLoadPoller started");
 
-        int secs, sleepTime;
-        String currentFilename;
-
         for (;;) {
 
             log.debug ("Polling cycle, status="+pollingStatus+" active="+pollingActive);
             // Process
             if (pollingActive && pollingStatus == ON) {
-                log.debug("Polling...");
-                try {
-                    BufferedReader in = new BufferedReader (new FileReader (lastSavedFilenameFilepath));
-                    currentFilename = in.readLine();
-                    in.close();
-                    log.debug("Read filename "+currentFilename+"; last saved filename "+lastSavedFilename);
-                    
-                    if (!lastSavedFilename.equals(currentFilename)) {
-                        final GameAction reload = new GameAction(GameAction.Mode.RELOAD);
-                        reload.setFilepath(saveDirectory+"/"+currentFilename);
-                        lastSavedFilename = currentFilename;
-                        
-                        // The GUI must be accessed on the event dispatch thread only.
-                        SwingUtilities.invokeLater (new Runnable() {
-                            public void run() {
-                                guiMgr.processAction(reload);
-                            }
-                        });
-
-                    }
-                    
-                } catch (IOException e) {
-                    log.error("Exception whilst polling "+lastSavedFilenameFilepath, e);
-                }
+                checkLastSavedFilename();
             }
             
-            
-            
-            secs = Calendar.getInstance().get(Calendar.SECOND);
             try {
-                sleepTime = 1000 * (pollingInterval - secs%pollingInterval);
-                sleep (sleepTime);
+                if (isWatching()) {
+                    // changes are notified, only check rarely in case notifications are lost
+                    long timeout = 1000L * Math.max(WATCH_SAFETY_INTERVAL, pollingInterval);
+                    watcher.awaitChange(savePrefix, timeout, DEBOUNCE_TIME);
+                } else {
+                    int secs = Calendar.getInstance().get(Calendar.SECOND);
+                    int sleepTime = 1000 * (pollingInterval - secs%pollingInterval);
+                    sleep (sleepTime);
+                }
             } catch (InterruptedException e) {
                 continue;
             }
@@ -102,12 +93,64 @@ public class AutoLoadPoller extends Thread {
         // This thread never exits
     }
 
+    private void checkLastSavedFilename() {
+        log.debug("Polling...");
+        try {
+            BufferedReader in = new BufferedReader (new FileReader (lastSavedFilenameFilepath));
+            String currentFilename = in.readLine();
+            in.close();
+            log.debug("Read filename "+currentFilename+"; last saved filename "+lastSavedFilename);
+
+            if (currentFilename != null && !lastSavedFilename.equals(currentFilename)) {
+                final GameAction reload = new GameAction(GameAction.Mode.RELOAD);
+                reload.setFilepath(saveDirectory+"/"+currentFilename);
+                lastSavedFilename = currentFilename;
+
+                // The GUI must be accessed on the event dispatch thread only.
+                SwingUtilities.invokeLater (new Runnable() {
+                    public void run() {
+                        guiMgr.processAction(reload);
+                    }
+                });
+
+            }
+
+        } catch (IOException e) {
+            log.error("Exception whilst polling "+lastSavedFilenameFilepath, e);
+        }
+    }
+
+    /**
+     * @return true if the save directory is watched by file system notifications,
+     * otherwise it is polled
+     */
+    private boolean isWatching() {
+        if (watchingFailed) return false;
+        if (watcher != null && (!watcher.isValid() || !watcher.getDirectory().equals(saveDirectory))) {
+            watcher.close();
+            watcher = null;
+        }
+        if (watcher == null) {
+            watcher = SaveDirectoryWatcher.create(saveDirectory);
+            if (watcher == null) {
+                log.info("Save directory " + saveDirectory + " is polled every " + pollingInterval + " seconds");
+                watchingFailed = true;
+                return false;
+            }
+            log.info("Save directory " + saveDirectory + " is watched for changes");
+        }
+        return true;
+    }
+
     public String getSaveDirectory() {
         return saveDirectory;
     }
 
     public void setSaveDirectory(String saveDirectory) {
         this.saveDirectory = saveDirectory;
+        // watch the new directory (if possible)
+        watchingFailed = !SaveDirectoryWatcher.isAvailable();
+        interrupt();
     }
 
     public String getSavePrefix() {
@@ -140,6 +183,10 @@ public class AutoLoadPoller extends Thread {
 
     public void setStatus(int status) {
         this.pollingStatus = status;
+        if (status == ON && pollingActive) {
+            // check immediately, the watcher waits up to WATCH_SAFETY_INTERVAL
+            interrupt();
+        }
     }
 
     public boolean isActive() {
@@ -149,6 +196,10 @@ public class AutoLoadPoller extends Thread {
     public void setActive(boolean pollingActive) {
         this.pollingActive = pollingActive;
         log.debug("AutoLoad polling set to "+pollingActive);
+        if (pollingActive) {
+            // check immediately, changes are only notified after the activation
+            interrupt();
+        }
     }
 
     public String getLastSavedFilename() {
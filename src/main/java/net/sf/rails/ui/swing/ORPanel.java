@@ -1021,6 +1021,18 @@ implements ActionListener, KeyListener, RevenueListener {
         return (orUIManager.gameUIManager.getGameParameterAsBoolean(GuiDef.Parm.REVENUE_SUGGEST));
     }
 
+    /**
+     * 
+     * @return Number of threads used for the revenue calculation (default is 1).
+     */
+    private int getRevenueCalculatorThreads() {
+        try {
+            return Integer.parseInt(Config.get("map.revenueCalculatorThreads", "1"));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
     /**
      * 
      * @return True if the routes of the currently active company should be displayed.
@@ -1046,6 +1058,7 @@ implements ActionListener, KeyListener, RevenueListener {
             revenueThread = null;
         }
         if (revenueAdapter != null) {
+            revenueAdapter.cancel();
             revenueAdapter.removeRevenueListener();
             revenueAdapter = null;
         }
@@ -1063,7 +1076,7 @@ implements ActionListener, KeyListener, RevenueListener {
 
             RailsRoot root = orUIManager.getGameUIManager().getRoot();
             revenueAdapter = RevenueAdapter.createRevenueAdapter(root, orComp, root.getPhaseManager().getCurrentPhase());
-            revenueAdapter.initRevenueCalculator(true);
+            revenueAdapter.initRevenueCalculator(true, getRevenueCalculatorThreads());
             revenueAdapter.addRevenueListener(this);
             revenueThread = new Thread(revenueAdapter);
             revenueThread.start();
@@ -1168,6 +1181,10 @@ implements ActionListener, KeyListener, RevenueListener {
         }
     }
 
+    public void revenueProgress(RevenueStatistics statistics) {
+        log.debug("Revenue calculation: " + statistics);
+    }
+
     public void stopRevenueUpdate() {
         isRevenueValueToBeSet = false;
     }
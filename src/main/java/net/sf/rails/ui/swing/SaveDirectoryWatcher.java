@@ -0,0 +1,221 @@
+package net.sf.rails.ui.swing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SaveDirectoryWatcher waits for files of the save directory to change,
+ * based on the notifications of the file system.
+ *
+ * The notifications require java.nio.file (Java 7), which is used by reflection,
+ * as Rails is still compiled for and runs on Java 6.
+ * On Java 6 {@link #create(String)} returns null, thus the directory is polled
+ * (see {@link AutoLoadPoller}).
+ */
+class SaveDirectoryWatcher {
+
+    protected static Logger log =
+            LoggerFactory.getLogger(SaveDirectoryWatcher.class);
+
+    /**
+     * The classes and methods of java.nio.file used by the watcher
+     */
+    private static final class WatchApi {
+        private final Method getPath; // Paths.get(String, String...)
+        private final Method getDefaultFileSystem; // FileSystems.getDefault()
+        private final Method newWatchService; // FileSystem.newWatchService()
+        private final Method register; // Path.register(WatchService, WatchEvent.Kind...)
+        private final Method poll; // WatchService.poll(long, TimeUnit)
+        private final Method pollEvents; // WatchKey.pollEvents()
+        private final Method reset; // WatchKey.reset()
+        private final Method kind; // WatchEvent.kind()
+        private final Method context; // WatchEvent.context()
+        private final Object[] kinds; // ENTRY_CREATE, ENTRY_MODIFY
+        private final Object overflow;
+
+        private WatchApi() throws Exception {
+            Class<?> paths = Class.forName("java.nio.file.Paths");
+            Class<?> fileSystems = Class.forName("java.nio.file.FileSystems");
+            Class<?> fileSystem = Class.forName("java.nio.file.FileSystem");
+            Class<?> path = Class.forName("java.nio.file.Path");
+            Class<?> watchService = Class.forName("java.nio.file.WatchService");
+            Class<?> watchKey = Class.forName("java.nio.file.WatchKey");
+            Class<?> watchEvent = Class.forName("java.nio.file.WatchEvent");
+            Class<?> kind = Class.forName("java.nio.file.WatchEvent$Kind");
+            Class<?> standardKinds = Class.forName("java.nio.file.StandardWatchEventKinds");
+
+            getPath = paths.getMethod("get", String.class, String[].class);
+            getDefaultFileSystem = fileSystems.getMethod("getDefault");
+            newWatchService = fileSystem.getMethod("newWatchService");
+            Object kindArray = Array.newInstance(kind, 0);
+            register = path.getMethod("register", watchService, kindArray.getClass());
+            poll = watchService.getMethod("poll", long.class, TimeUnit.class);
+            pollEvents = watchKey.getMethod("pollEvents");
+            reset = watchKey.getMethod("reset");
+            this.kind = watchEvent.getMethod("kind");
+            context = watchEvent.getMethod("context");
+
+            kinds = (Object[]) Array.newInstance(kind, 2);
+            kinds[0] = standardKinds.getField("ENTRY_CREATE").get(null);
+            kinds[1] = standardKinds.getField("ENTRY_MODIFY").get(null);
+            overflow = standardKinds.getField("OVERFLOW").get(null);
+        }
+    }
+
+    // null if java.nio.file is not available
+    private static final WatchApi api = createApi();
+
+    private final String directory;
+    private final Closeable watchService;
+    private boolean valid = true;
+
+    private SaveDirectoryWatcher(String directory, Closeable watchService) {
+        this.directory = directory;
+        this.watchService = watchService;
+    }
+
+    private static WatchApi createApi() {
+        try {
+            return new WatchApi();
+        } catch (Exception e) {
+            // Java 6
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the Java runtime supports file system notifications (Java 7 or later)
+     */
+    static boolean isAvailable() {
+        return api != null;
+    }
+
+    /**
+     * @return watcher for the directory, null if the file system (or the Java runtime)
+     * does not support notifications
+     */
+    static SaveDirectoryWatcher create(String directory) {
+        if (api == null) {
+            log.info("Cannot watch save directory " + directory + ": requires Java 7");
+            return null;
+        }
+        Closeable watchService = null;
+        try {
+            Object path = api.getPath.invoke(null, directory, new String[0]);
+            watchService = (Closeable) api.newWatchService.invoke(api.getDefaultFileSystem.invoke(null));
+            api.register.invoke(path, watchService, api.kinds);
+            return new SaveDirectoryWatcher(directory, watchService);
+        } catch (Exception e) {
+            // IOException, UnsupportedOperationException or an invalid path
+            Throwable cause = (e instanceof InvocationTargetException) ? e.getCause() : e;
+            log.info("Cannot watch save directory " + directory + ": " + cause);
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException e1) {
+                    // ignore
+                }
+            }
+            return null;
+        }
+    }
+
+    String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return false if the directory cannot be watched anymore (e.g. it was deleted)
+     */
+    boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Waits until a file starting with the prefix is created or modified.
+     * Further changes that follow within the debounce time are combined with the first one.
+     * @param timeout maximum time to wait (in milliseconds)
+     * @param debounce time without further changes (in milliseconds)
+     * @return true if a file changed, false if the timeout elapsed
+     */
+    boolean awaitChange(String prefix, long timeout, long debounce) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        boolean changed = false;
+        while (!changed) {
+            long remaining = end - System.currentTimeMillis();
+            if (remaining <= 0) return false;
+            Object key = poll(remaining);
+            if (key == null) return false;
+            changed = processEvents(key, prefix);
+        }
+        // wait until the changes have finished (e.g. a file is written in several steps)
+        long debounceEnd = System.currentTimeMillis() + 10 * debounce;
+        Object key;
+        while (valid && System.currentTimeMillis() < debounceEnd
+                && (key = poll(debounce)) != null) {
+            processEvents(key, prefix);
+        }
+        return true;
+    }
+
+    /**
+     * @return watch key with events, null if the timeout elapsed or the watcher is closed
+     */
+    private Object poll(long timeout) throws InterruptedException {
+        try {
+            return api.poll.invoke(watchService, timeout, TimeUnit.MILLISECONDS);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof InterruptedException) {
+                throw (InterruptedException) e.getCause();
+            }
+            // ClosedWatchServiceException
+            log.warn("Cannot watch save directory " + directory, e.getCause());
+            valid = false;
+            return null;
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean processEvents(Object key, String prefix) {
+        boolean changed = false;
+        try {
+            for (Object event:(List<?>) api.pollEvents.invoke(key)) {
+                Object kind = api.kind.invoke(event);
+                if (kind == api.overflow) {
+                    // events were lost
+                    changed = true;
+                } else if (String.valueOf(api.context.invoke(event)).startsWith(prefix)) {
+                    log.debug("Save directory event " + kind + " for " + api.context.invoke(event));
+                    changed = true;
+                }
+            }
+            if (!(Boolean) api.reset.invoke(key)) {
+                valid = false;
+                changed = true;
+            }
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return changed;
+    }
+
+    void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("Cannot close watch service", e);
+        }
+    }
+
+}
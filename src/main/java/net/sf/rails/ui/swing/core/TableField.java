@@ -36,7 +36,7 @@ public class TableField {
         if (builder.text != null) {
             initText = builder.text;
         } else if (textObserver != null) {
-            initText = textObserver.getObservable().toText();
+            initText = textObserver.getObservable().getText();
         }
  
         if (initText != null) {
@@ -50,7 +50,7 @@ public class TableField {
         if (builder.tooltip != null) {
             initTooltip = builder.tooltip;
         } else if (tooltipObserver != null) {
-            initTooltip = tooltipObserver.getObservable().toText();
+            initTooltip = tooltipObserver.getObservable().getText();
         }
         
         if (initTooltip != null) {
@@ -58,7 +58,7 @@ public class Field extends JLabel implements Observer {
         this.observable.addObserver(this);
         this.pull = pull;
         // initialize text
-        this.setText(observable.toText());
+        this.setText(observable.getText());
     }
 
     public Field(Observable observable) {
@@ -83,7 +83,7 @@ public class Field extends JLabel implements Observer {
         };
         toolTipModel.addObserver(toolTipObserver);
         // initialize toolTip
-        setToolTipText(toolTipModel.toText());
+        setToolTipText(toolTipModel.getText());
     }
     
     public void setColorModel(ColorModel colorModel) {
@@ -0,0 +1,241 @@
+package net.sf.rails.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import net.sf.rails.common.GameData;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rails.game.action.PossibleAction;
+
+import com.google.common.collect.Lists;
+
+/**
+ * ActionJournal stores a game as a base file (a normal save file)
+ * and a journal file, to which each newly executed action is appended.
+ *
+ * Journal file format:
+ * Header: magic, version, number of actions in the base file, checksum of the base file
+ * Records: length, checksum, action stored in the configured save format
+ *
+ * Each record is synced to disk after it was written. A record that is incomplete
+ * or has a wrong checksum (e.g. after a crash) ends the journal.
+ *
+ * The journal is compacted into a new base file after {@link #COMPACTION_INTERVAL} actions
+ * or if previously journaled actions were removed (e.g. by undo).
+ */
+public class ActionJournal {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ActionJournal.class);
+
+    public static final String journalExtension = ".journal";
+
+    /** number of journaled actions that triggers a compaction into the base file */
+    public static final int COMPACTION_INTERVAL = 100;
+
+    private static final int MAGIC = 0x52414A4C; // "RAJL"
+    private static final int VERSION = 1;
+
+    private final File baseFile;
+    private final File journalFile;
+
+    private final GameSaver.Format format = GameSaver.Format.fromConfig();
+
+    private FileOutputStream journalOut; // null if no valid journal is open
+    private int baseCount;
+    private int journaledCount;
+    private PossibleAction lastAction;
+
+    /**
+     * Creates a journal for the base file
+     * @param baseFile to store the compacted game to
+     */
+    public ActionJournal(File baseFile) {
+        this.baseFile = baseFile;
+        this.journalFile = getJournalFile(baseFile);
+    }
+
+    public static File getJournalFile(File baseFile) {
+        return new File(baseFile.getPath() + journalExtension);
+    }
+
+    /**
+     * Updates the journal with the actions executed so far.
+     * New actions are appended, otherwise the journal is compacted into the base file.
+     * @param gameData of the game
+     * @param actions all actions executed so far
+     */
+    public void update(GameData gameData, List<PossibleAction> actions) throws IOException {
+        if (requiresCompaction(actions)) {
+            compact(gameData, actions);
+            return;
+        }
+        for (PossibleAction action:actions.subList(journaledCount, actions.size())) {
+            append(action);
+        }
+    }
+
+    private boolean requiresCompaction(List<PossibleAction> actions) {
+        if (journalOut == null || actions.size() < journaledCount) {
+            return true;
+        }
+        if (journaledCount > 0 && actions.get(journaledCount - 1) != lastAction) {
+            // the actions were replaced (e.g. undo followed by a new action)
+            return true;
+        }
+        return actions.size() - baseCount > COMPACTION_INTERVAL;
+    }
+
+    /**
+     * Stores all actions to the base file and starts a new journal
+     */
+    public void compact(GameData gameData, List<PossibleAction> actions) throws IOException {
+        close();
+        new GameSaver(gameData, actions).saveGameSafely(baseFile);
+
+        FileOutputStream out = new FileOutputStream(journalFile, false);
+        try {
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(actions.size());
+            header.writeLong(checksum(baseFile));
+            header.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        journalOut = out;
+        baseCount = actions.size();
+        journaledCount = actions.size();
+        lastAction = actions.isEmpty() ? null : actions.get(actions.size() - 1);
+        log.debug("Compacted " + baseCount + " actions to " + baseFile.getPath());
+    }
+
+    private void append(PossibleAction action) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream oos = GameSaver.createObjectOutputStream(bytes, format);
+        oos.writeObject(action);
+        oos.close();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(bytes.size() + 12);
+        DataOutputStream dos = new DataOutputStream(record);
+        dos.writeInt(bytes.size());
+        dos.writeLong(crc.getValue());
+        bytes.writeTo(dos);
+        dos.close();
+
+        try {
+            record.writeTo(journalOut);
+            journalOut.getFD().sync();
+        } catch (IOException e) {
+            // the journal is in an unknown state, thus compact on next update
+            close();
+            throw e;
+        }
+        journaledCount++;
+        lastAction = action;
+    }
+
+    /**
+     * Closes the journal file, the next update will compact the journal
+     */
+    public void close() {
+        if (journalOut == null) return;
+        try {
+            journalOut.close();
+        } catch (IOException e) {
+            log.warn("Cannot close journal " + journalFile.getPath(), e);
+        }
+        journalOut = null;
+    }
+
+    /**
+     * Reads the actions journaled after the actions of the base file
+     * @param baseFile the game was loaded from
+     * @param baseCount number of actions loaded from the base file
+     * @param loader used to deserialize the actions
+     * @return journaled actions, empty if there is no valid journal for the base file
+     */
+    static List<PossibleAction> read(File baseFile, int baseCount, GameLoader loader) throws IOException {
+        List<PossibleAction> actions = Lists.newArrayList();
+        File journalFile = getJournalFile(baseFile);
+        if (!journalFile.exists()) {
+            return actions;
+        }
+
+        DataInputStream in = new DataInputStream(new FileInputStream(journalFile));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("Ignored journal with unknown format " + journalFile.getPath());
+                return actions;
+            }
+            if (in.readInt() != baseCount || in.readLong() != checksum(baseFile)) {
+                log.warn("Ignored journal that does not match " + baseFile.getPath());
+                return actions;
+            }
+            while (true) {
+                int length = in.readInt();
+                long checksum = in.readLong();
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                if (crc.getValue() != checksum) {
+                    log.warn("Journal record " + actions.size() + " is corrupt, ignored remaining records");
+                    break;
+                }
+                ObjectInputStream ois =
+                        GameLoader.createObjectInputStream(loader, new ByteArrayInputStream(bytes));
+                try {
+                    actions.add((PossibleAction)ois.readObject());
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Cannot read journal record " + actions.size(), e);
+                } finally {
+                    ois.close();
+                }
+            }
+        } catch (EOFException e) {
+            // end of journal, includes an incomplete last record
+        } finally {
+            in.close();
+        }
+        log.info("Read " + actions.size() + " actions from journal " + journalFile.getPath());
+        return actions;
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return crc.getValue();
+    }
+
+}
@@ -0,0 +1,143 @@
+package net.sf.rails.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rails.game.action.PossibleAction;
+
+/**
+ * ActionStream decodes the actions of a saved game (in the binary format) in a separate thread,
+ * while the actions already decoded are replayed.
+ *
+ * The decoding thread only reads the stored values, the actions are restored
+ * (including the resolution of references to the game) by the thread that calls {@link #next()},
+ * as actions may refer to objects created by the replay of previous actions (e.g. trains).
+ * The number of decoded actions waiting for replay is limited by {@link #CAPACITY}.
+ */
+class ActionStream {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ActionStream.class);
+
+    /** maximum number of decoded actions that wait for replay */
+    static final int CAPACITY = 64;
+
+    private final BinaryObjectInputStream ois;
+    private final BlockingQueue<Item> queue = new ArrayBlockingQueue<Item>(CAPACITY);
+    private final Thread decoder;
+
+    private boolean finished = false;
+
+    /**
+     * @param ois stream positioned after the game data (see {@link GameLoader#loadGameData})
+     */
+    ActionStream(BinaryObjectInputStream ois) {
+        this.ois = ois;
+        this.decoder = new Thread(new Runnable() {
+            public void run() {
+                decode();
+            }
+        }, "ActionDecoder");
+        decoder.setDaemon(true);
+    }
+
+    void start() {
+        decoder.start();
+    }
+
+    /**
+     * @return next action, null at the end of the actions
+     * @throws IOException if the stored actions cannot be read (e.g. the decoding thread failed),
+     * then the stream ends. If only the action cannot be restored, the stream continues with the next one.
+     */
+    PossibleAction next() throws IOException, ClassNotFoundException {
+        if (finished) return null;
+        Item item;
+        try {
+            item = queue.take();
+        } catch (InterruptedException e) {
+            close();
+            throw new IOException("Interrupted while waiting for the next action", e);
+        }
+        if (item.exception != null) {
+            finished = true;
+            if (item.exception instanceof IOException) throw (IOException)item.exception;
+            if (item.exception instanceof ClassNotFoundException) throw (ClassNotFoundException)item.exception;
+            if (item.exception instanceof RuntimeException) throw (RuntimeException)item.exception;
+            throw new IOException("Cannot read action", item.exception);
+        }
+        if (item.deferred == null) {
+            finished = true;
+            return null;
+        }
+        return (PossibleAction)item.deferred.resolve();
+    }
+
+    /**
+     * Stops the decoding thread
+     */
+    void close() {
+        finished = true;
+        decoder.interrupt();
+    }
+
+    private void decode() {
+        int count = 0;
+        // end of actions, unless decoding fails or is stopped
+        Item last = new Item(null, null);
+        try {
+            while (true) {
+                BinaryObjectInputStream.Deferred deferred = ois.readDeferred();
+                Class<?> cls = deferred.getObjectClass();
+                if (cls == null || !PossibleAction.class.isAssignableFrom(cls)) {
+                    // end of actions, user comments are not used (see GameLoader.convertGameData)
+                    break;
+                }
+                queue.put(new Item(deferred, null));
+                count++;
+            }
+            log.debug("Decoded " + count + " actions");
+        } catch (EOFException e) {
+            // allow saved files without any actions
+            log.debug("Decoded " + count + " actions");
+        } catch (InterruptedException e) {
+            log.debug("Decoding of actions stopped after " + count + " actions");
+            last = null;
+        } catch (Throwable e) {
+            last = new Item(null, e);
+        } finally {
+            try {
+                ois.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            // the replay waits for the end of the actions or the failure
+            if (last != null) {
+                try {
+                    queue.put(last);
+                } catch (InterruptedException e) {
+                    log.debug("Decoding of actions stopped after " + count + " actions");
+                }
+            }
+        }
+    }
+
+    /**
+     * Decoded action, failure (exception) or end of actions (both null)
+     */
+    private static final class Item {
+        private final BinaryObjectInputStream.Deferred deferred;
+        private final Throwable exception;
+
+        private Item(BinaryObjectInputStream.Deferred deferred, Throwable exception) {
+            this.deferred = deferred;
+            this.exception = exception;
+        }
+    }
+
+}
@@ -0,0 +1,298 @@
+package net.sf.rails.util;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Definitions of the binary save format, that is shared by
+ * {@link BinaryObjectOutputStream} and {@link BinaryObjectInputStream}.
+ * The format is experimental and has to be selected by save.format=binary,
+ * the default remains Java serialization.
+ *
+ * The binary format stores the same sequence of objects as the serialized format
+ * (header values followed by the actions), but does not depend on Java serialization:
+ *
+ * <ul>
+ * <li> Each file starts with {@link #MAGIC} and the {@link #VERSION} of the format.</li>
+ * <li> Each value is preceded by a type tag, numbers are stored as (zig-zag) varints.</li>
+ * <li> Strings (e.g. ids of players, companies, hexes, tiles and trains) and class descriptions
+ * are stored once at their first use and referenced by their index afterwards.</li>
+ * <li> Objects store the values of their serializable fields by field name,
+ * thus fields can be added or removed without breaking old files.</li>
+ * </ul>
+ *
+ * Values that cannot be described that way (e.g. classes with custom writeObject methods)
+ * are embedded as serialized bytes.
+ *
+ * The format uses one generic codec for all actions instead of a codec per action class:
+ * An object stored field by field contains the same information as its serialized form
+ * (the values of the serializable fields of each class), only the class descriptions are shared.
+ * It is restored by Java serialization itself from that information
+ * (see {@link BinaryObjectInputStream}), thus the actions keep a single definition
+ * of their saved state (their fields and readObject methods) for both formats
+ * and the compatibility rules of Java serialization apply to the binary format as well.
+ */
+final class BinaryObjectFormat {
+
+    /** "RAIL", Java serialization streams start with 0xACED instead */
+    static final byte[] MAGIC = {0x52, 0x41, 0x49, 0x4C};
+
+    static final int VERSION = 1;
+
+    // value tags, END is optional: the end of file ends the stored values as well
+    static final int END = 0;
+    static final int NULL = 1;
+    static final int FALSE = 2;
+    static final int TRUE = 3;
+    static final int INT = 4;
+    static final int LONG = 5;
+    static final int SHORT = 6;
+    static final int BYTE = 7;
+    static final int CHAR = 8;
+    static final int FLOAT = 9;
+    static final int DOUBLE = 10;
+    static final int STRING = 11;
+    static final int ENUM = 12;
+    static final int INT_ARRAY = 13;
+    static final int ARRAY = 14;
+    static final int COLLECTION = 15;
+    static final int MAP = 16;
+    static final int OBJECT = 17;
+    static final int SERIALIZED = 18;
+
+    // collections that are stored with their elements
+    private static final Set<Class<?>> COLLECTIONS = ImmutableSet.<Class<?>>of(ArrayList.class,
+            LinkedList.class, HashSet.class, LinkedHashSet.class, TreeSet.class);
+    private static final Set<Class<?>> MAPS = ImmutableSet.<Class<?>>of(HashMap.class,
+            LinkedHashMap.class, TreeMap.class);
+
+    private static final Map<Class<?>, ClassInfo> classInfos = new ConcurrentHashMap<Class<?>, ClassInfo>();
+
+    private BinaryObjectFormat() {}
+
+    /**
+     * @return true if the stream starts with the binary format, the stream is reset afterwards
+     * @param in stream that supports mark
+     */
+    static boolean isBinary(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        try {
+            for (byte b:MAGIC) {
+                if (in.read() != (b & 0xFF)) return false;
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    static boolean isCollectionClass(Class<?> cls) {
+        return COLLECTIONS.contains(cls);
+    }
+
+    static boolean isMapClass(Class<?> cls) {
+        return MAPS.contains(cls);
+    }
+
+    static boolean isStoredCollection(Object obj) {
+        if (!COLLECTIONS.contains(obj.getClass())) return false;
+        return !(obj instanceof TreeSet) || ((TreeSet<?>)obj).comparator() == null;
+    }
+
+    static boolean isStoredMap(Object obj) {
+        if (!MAPS.contains(obj.getClass())) return false;
+        return !(obj instanceof TreeMap) || ((TreeMap<?,?>)obj).comparator() == null;
+    }
+
+    static ClassInfo getClassInfo(Class<?> cls) {
+        ClassInfo info = classInfos.get(cls);
+        if (info == null) {
+            info = new ClassInfo(cls);
+            classInfos.put(cls, info);
+        }
+        return info;
+    }
+
+    /**
+     * ClassInfo describes how objects of a class are stored field by field
+     */
+    static final class ClassInfo {
+
+        private final Class<?> cls;
+        private final ImmutableList<LevelInfo> levels;
+
+        private ClassInfo(Class<?> cls) {
+            this.cls = cls;
+            this.levels = hasBaseConstructor(cls) ? createLevels(cls) : null;
+        }
+
+        /**
+         * @return true if objects of the class can be stored field by field
+         */
+        boolean isStorable() {
+            return levels != null;
+        }
+
+        Class<?> getInfoClass() {
+            return cls;
+        }
+
+        /**
+         * @return serializable classes of the hierarchy, starting with the top-most class
+         */
+        ImmutableList<LevelInfo> getLevels() {
+            return levels;
+        }
+
+        private static ImmutableList<LevelInfo> createLevels(Class<?> cls) {
+            if (!Serializable.class.isAssignableFrom(cls) || Externalizable.class.isAssignableFrom(cls)
+                    || cls.isEnum() || cls.isArray() || Proxy.isProxyClass(cls)) {
+                return null;
+            }
+            if (hasMethod(cls, "writeReplace") || hasMethod(cls, "readResolve")) {
+                return null;
+            }
+            List<LevelInfo> levels = Lists.newArrayList();
+            for (Class<?> c = cls; c != null && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+                LevelInfo level = LevelInfo.create(c);
+                if (level == null) return null;
+                levels.add(level);
+            }
+            Collections.reverse(levels);
+            return ImmutableList.copyOf(levels);
+        }
+
+        private static boolean hasMethod(Class<?> cls, String name) {
+            for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
+                try {
+                    c.getDeclaredMethod(name);
+                    return true;
+                } catch (NoSuchMethodException e) {
+                    // continue with superclass
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return true if the first non-serializable superclass has a constructor
+         * without parameters, as Java serialization requires to create instances
+         */
+        private static boolean hasBaseConstructor(Class<?> cls) {
+            Class<?> base = cls;
+            while (base != null && Serializable.class.isAssignableFrom(base)) {
+                base = base.getSuperclass();
+            }
+            if (base == null) return false;
+            try {
+                return !Modifier.isPrivate(base.getDeclaredConstructor().getModifiers());
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * LevelInfo describes the serializable fields of one class of a class hierarchy
+     */
+    static final class LevelInfo {
+
+        private final Class<?> cls;
+        private final ImmutableList<Field> fields;
+
+        private LevelInfo(Class<?> cls, ImmutableList<Field> fields) {
+            this.cls = cls;
+            this.fields = fields;
+        }
+
+        /**
+         * @return null if the class cannot be stored field by field
+         */
+        private static LevelInfo create(Class<?> cls) {
+            if (getPrivateMethod(cls, "writeObject", ObjectOutputStream.class) != null) {
+                return null;
+            }
+            try {
+                return new LevelInfo(cls, getFields(cls));
+            } catch (NoSuchFieldException e) {
+                return null;
+            } catch (RuntimeException e) {
+                // e.g. classes of modules that do not allow access to their private members
+                return null;
+            }
+        }
+
+        private static ImmutableList<Field> getFields(Class<?> cls) throws NoSuchFieldException {
+            ImmutableList.Builder<Field> fields = ImmutableList.builder();
+            ObjectStreamClass osc = ObjectStreamClass.lookup(cls);
+            if (osc != null) {
+                for (ObjectStreamField osf:osc.getFields()) {
+                    // throws an exception for serialPersistentFields that do not exist
+                    Field field = cls.getDeclaredField(osf.getName());
+                    if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive() != osf.isPrimitive()) {
+                        throw new NoSuchFieldException(osf.getName());
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            return fields.build();
+        }
+
+        private static Method getPrivateMethod(Class<?> cls, String name, Class<?>... parameters) {
+            try {
+                Method method = cls.getDeclaredMethod(name, parameters);
+                if (!Modifier.isPrivate(method.getModifiers()) || Modifier.isStatic(method.getModifiers())) {
+                    return null;
+                }
+                return method;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        Class<?> getLevelClass() {
+            return cls;
+        }
+
+        ImmutableList<Field> getFields() {
+            return fields;
+        }
+
+        Field getField(String name) {
+            for (Field field:fields) {
+                if (field.getName().equals(name)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,774 @@
+package net.sf.rails.util;
+
+import static net.sf.rails.util.BinaryObjectFormat.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import net.sf.rails.util.BinaryObjectFormat.ClassInfo;
+import net.sf.rails.util.BinaryObjectFormat.LevelInfo;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * An ObjectInputStream that reads objects in the binary save format
+ * (see {@link BinaryObjectFormat}).
+ *
+ * Objects stored field by field are restored by Java serialization:
+ * The stored field values are passed to an ObjectInputStream as the class data of the object,
+ * thus the constructors are not called and the readObject methods of the classes are used.
+ * The conversion of (old) field values and the resolution of the transient
+ * references (e.g. by {@link net.sf.rails.util.GameLoader.RailsObjectInputStream#getRoot()})
+ * work in the same way for both formats.
+ *
+ * Only readObject is supported.
+ *
+ * With {@link #readDeferred()} the restore of the objects (including the calls of the
+ * readObject methods) is deferred until {@link Deferred#resolve()} is called.
+ * This allows to decode in one thread and to resolve the objects in another thread
+ * (see {@link ActionStream}).
+ *
+ * A {@link Segment} describes the bytes (and the strings and classes defined by them)
+ * between two positions of the stream. {@link #skipSegment(Segment)} allows to continue
+ * reading after a segment that was read before from another stream with the same content.
+ */
+class BinaryObjectInputStream extends GameLoader.RailsObjectInputStream {
+
+    private final PositionInputStream position;
+    private final DataInputStream in;
+
+    private final List<String> strings = Lists.newArrayList();
+    private final List<ClassEntry> classes = Lists.newArrayList();
+
+    // restore steps of the object read by readDeferred, only used by the decoding thread
+    private List<Step> pending = null;
+
+    BinaryObjectInputStream(GameLoader loader, InputStream in) throws IOException {
+        super(loader);
+        this.position = new PositionInputStream(in);
+        this.in = new DataInputStream(position);
+        for (byte b:MAGIC) {
+            if (this.in.readByte() != b) {
+                throw new StreamCorruptedException("Not a binary Rails file");
+            }
+        }
+        int version = readVarInt();
+        if (version > VERSION) {
+            throw new InvalidClassException("Binary format version " + version
+                    + " is not supported by version " + VERSION);
+        }
+    }
+
+    /**
+     * @throws EOFException at the end of the stored objects
+     */
+    @Override
+    protected Object readObjectOverride() throws IOException, ClassNotFoundException {
+        int tag = in.read();
+        if (tag == -1 || tag == END) {
+            throw new EOFException();
+        }
+        return readValue(tag);
+    }
+
+    /**
+     * Reads the next object, but does not restore the objects stored field by field
+     * @throws EOFException at the end of the stored objects
+     */
+    Deferred readDeferred() throws IOException, ClassNotFoundException {
+        int tag = in.read();
+        if (tag == -1 || tag == END) {
+            throw new EOFException();
+        }
+        pending = Lists.newArrayList();
+        try {
+            Object obj = readValue(tag);
+            return new Deferred(obj, pending);
+        } finally {
+            pending = null;
+        }
+    }
+
+    /**
+     * Starts a segment at the current position, the checksum of segments
+     * ending later is calculated from here
+     */
+    Position startSegment() {
+        position.checksum.reset();
+        return getPosition();
+    }
+
+    Position getPosition() {
+        return new Position(position.offset, position.checksum.getValue(), strings.size(), classes.size());
+    }
+
+    /**
+     * @return segment between two positions read by this stream
+     */
+    Segment getSegment(Position start, Position end) {
+        return new Segment(start, end, ImmutableList.copyOf(strings.subList(start.nbStrings, end.nbStrings)),
+                ImmutableList.copyOf(classes.subList(start.nbClasses, end.nbClasses)));
+    }
+
+    /**
+     * Skips the bytes of a segment that was read before, the strings and classes
+     * defined inside the segment are added, as if the segment was read.
+     * Requires that the segment was started at the same position (see {@link #startSegment()}).
+     * @return false if the content of the stream does not match the segment,
+     * then the stream cannot be used anymore
+     */
+    boolean skipSegment(Segment segment) throws IOException {
+        Position start = segment.start;
+        if (position.offset != start.offset || strings.size() != start.nbStrings
+                || classes.size() != start.nbClasses) {
+            return false;
+        }
+        long remaining = segment.end.offset - start.offset;
+        while (remaining > 0) {
+            if (position.skip(remaining) <= 0) {
+                return false;
+            }
+            remaining = segment.end.offset - position.offset;
+        }
+        if (position.checksum.getValue() != segment.end.checksum) {
+            return false;
+        }
+        strings.addAll(segment.strings);
+        classes.addAll(segment.classes);
+        return true;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Object readValue(int tag) throws IOException, ClassNotFoundException {
+        switch (tag) {
+        case NULL:
+            return null;
+        case FALSE:
+            return Boolean.FALSE;
+        case TRUE:
+            return Boolean.TRUE;
+        case INT:
+            return (int)unZigZag(readVarLong());
+        case LONG:
+            return unZigZag(readVarLong());
+        case SHORT:
+            return (short)unZigZag(readVarLong());
+        case BYTE:
+            return in.readByte();
+        case CHAR:
+            return (char)readVarInt();
+        case FLOAT:
+            return in.readFloat();
+        case DOUBLE:
+            return in.readDouble();
+        case STRING:
+            return readString();
+        case ENUM:
+            return readEnum();
+        case INT_ARRAY:
+            int[] ints = new int[readVarInt()];
+            for (int i = 0; i < ints.length; i++) {
+                ints[i] = (int)unZigZag(readVarLong());
+            }
+            return ints;
+        case ARRAY:
+            return readArray();
+        case COLLECTION:
+            return readCollection();
+        case MAP:
+            return readMap();
+        case OBJECT:
+            return readFieldObject();
+        case SERIALIZED:
+            byte[] bytes = new byte[readVarInt()];
+            in.readFully(bytes);
+            GameLoader.RailsObjectInputStream ois =
+                    new GameLoader.RailsObjectInputStream(getLoader(), new ByteArrayInputStream(bytes));
+            try {
+                return ois.readObject();
+            } finally {
+                ois.close();
+            }
+        default:
+            throw new StreamCorruptedException("Unknown value tag " + tag);
+        }
+    }
+
+    private Object readArray() throws IOException, ClassNotFoundException {
+        Class<?> componentType = readClass().cls;
+        final Object[] array = (Object[]) Array.newInstance(componentType, readVarInt());
+        int nbPending = (pending == null) ? 0 : pending.size();
+        final List<Object> elements = Lists.newArrayListWithCapacity(array.length);
+        for (int i = 0; i < array.length; i++) {
+            elements.add(readValue(in.readUnsignedByte()));
+        }
+        if (pending != null && pending.size() > nbPending) {
+            // the elements are created when they are restored
+            pending.add(new Step() {
+                @Override
+                void run() {
+                    fill(array, elements);
+                }
+            });
+        } else {
+            fill(array, elements);
+        }
+        return array;
+    }
+
+    private static void fill(Object[] array, List<Object> elements) {
+        for (int i = 0; i < array.length; i++) {
+            array[i] = restored(elements.get(i));
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object readEnum() throws IOException, ClassNotFoundException {
+        Class<?> cls = readClass().cls;
+        String name = readString();
+        if (!cls.isEnum()) {
+            throw new InvalidClassException(cls.getName(), "not an enum");
+        }
+        try {
+            return Enum.valueOf((Class<? extends Enum>)cls, name);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidClassException(cls.getName(), "unknown enum constant " + name);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readCollection() throws IOException, ClassNotFoundException {
+        Class<?> cls = readClass().cls;
+        if (!isCollectionClass(cls)) {
+            throw new InvalidClassException(cls.getName(), "not a supported collection");
+        }
+        final Collection<Object> collection = (Collection<Object>)newCollection(cls);
+        int size = readVarInt();
+        int nbPending = (pending == null) ? 0 : pending.size();
+        final List<Object> elements = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            elements.add(readValue(in.readUnsignedByte()));
+        }
+        if (pending != null && pending.size() > nbPending) {
+            // hash codes of the elements are valid after the elements are restored
+            pending.add(new Step() {
+                @Override
+                void run() {
+                    addAll(collection, elements);
+                }
+            });
+        } else {
+            addAll(collection, elements);
+        }
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readMap() throws IOException, ClassNotFoundException {
+        Class<?> cls = readClass().cls;
+        if (!isMapClass(cls)) {
+            throw new InvalidClassException(cls.getName(), "not a supported map");
+        }
+        final Map<Object, Object> map = (Map<Object, Object>)newCollection(cls);
+        int size = readVarInt();
+        int nbPending = (pending == null) ? 0 : pending.size();
+        final List<Object> keysAndValues = Lists.newArrayListWithCapacity(2 * size);
+        for (int i = 0; i < 2 * size; i++) {
+            keysAndValues.add(readValue(in.readUnsignedByte()));
+        }
+        if (pending != null && pending.size() > nbPending) {
+            // hash codes of the keys are valid after the keys are restored
+            pending.add(new Step() {
+                @Override
+                void run() {
+                    putAll(map, keysAndValues);
+                }
+            });
+        } else {
+            putAll(map, keysAndValues);
+        }
+        return map;
+    }
+
+    private static void addAll(Collection<Object> collection, List<Object> elements) {
+        for (Object element:elements) {
+            collection.add(restored(element));
+        }
+    }
+
+    private static void putAll(Map<Object, Object> map, List<Object> keysAndValues) {
+        for (int i = 0; i < keysAndValues.size(); i += 2) {
+            map.put(restored(keysAndValues.get(i)), restored(keysAndValues.get(i + 1)));
+        }
+    }
+
+    private Object newCollection(Class<?> cls) throws IOException {
+        try {
+            return cls.getDeclaredConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            throw new IOException("Cannot create collection " + cls.getName(), e.getCause());
+        } catch (Exception e) {
+            // NoSuchMethodException, InstantiationException, IllegalAccessException
+            throw new InvalidClassException(cls.getName(), "cannot create collection");
+        }
+    }
+
+    private Object readFieldObject() throws IOException, ClassNotFoundException {
+        ClassEntry entry = readClass();
+        final ClassInfo info = getClassInfo(entry.cls);
+        if (!info.isStorable()) {
+            throw new InvalidClassException(entry.cls.getName(), "cannot be restored field by field");
+        }
+
+        // read all stored values first
+        final Map<String, Map<String, Object>> levelValues = Maps.newHashMap();
+        for (StoredLevel stored:entry.levels) {
+            Map<String, Object> values = Maps.newHashMap();
+            for (String fieldName:stored.fieldNames) {
+                values.put(fieldName, readValue(in.readUnsignedByte()));
+            }
+            levelValues.put(stored.className, values);
+        }
+
+        if (pending != null) {
+            final Restored restored = new Restored(info.getInfoClass());
+            pending.add(new Step() {
+                @Override
+                void run() throws IOException, ClassNotFoundException {
+                    restored.obj = restore(info, levelValues);
+                }
+            });
+            return restored;
+        } else {
+            return restore(info, levelValues);
+        }
+    }
+
+    /**
+     * restores the object by Java serialization from a stream that contains
+     * the stored values of each class (starting with the top-most class)
+     */
+    private Object restore(ClassInfo info, Map<String, Map<String, Object>> levelValues)
+            throws IOException, ClassNotFoundException {
+        // classes without stored values are left out, their readObjectNoData methods are called
+        List<LevelInfo> levels = Lists.newArrayList();
+        List<List<Field>> levelFields = Lists.newArrayList();
+        for (LevelInfo level:info.getLevels()) {
+            Map<String, Object> values = levelValues.get(level.getLevelClass().getName());
+            if (values == null && level.getLevelClass() != info.getInfoClass()) continue;
+            levels.add(level);
+            levelFields.add(getStoredFields(level, values));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeShort(ObjectStreamConstants.STREAM_MAGIC);
+        data.writeShort(ObjectStreamConstants.STREAM_VERSION);
+        data.writeByte(ObjectStreamConstants.TC_OBJECT);
+        // class descriptions, starting with the class of the object
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            writeClassDescription(data, levels.get(i), levelFields.get(i));
+        }
+        data.writeByte(ObjectStreamConstants.TC_NULL);
+        // class data, starting with the top-most class
+        List<Object> objects = Lists.newArrayList();
+        for (int i = 0; i < levels.size(); i++) {
+            Map<String, Object> values = levelValues.get(levels.get(i).getLevelClass().getName());
+            for (Field field:levelFields.get(i)) {
+                writeFieldValue(data, field, restored(values.get(field.getName())), objects);
+            }
+        }
+        data.close();
+
+        FieldObjectInputStream ois = new FieldObjectInputStream(getLoader(),
+                new ByteArrayInputStream(bytes.toByteArray()), objects);
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+
+    /**
+     * @return stored fields that still exist, primitive fields first (as required by Java serialization)
+     */
+    private static List<Field> getStoredFields(LevelInfo level, Map<String, Object> values) {
+        List<Field> fields = Lists.newArrayList();
+        if (values == null) return fields;
+        for (Field field:level.getFields()) {
+            if (field.getType().isPrimitive() && values.containsKey(field.getName())) {
+                fields.add(field);
+            }
+        }
+        for (Field field:level.getFields()) {
+            if (!field.getType().isPrimitive() && values.containsKey(field.getName())) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private static void writeClassDescription(DataOutputStream data, LevelInfo level, List<Field> fields)
+            throws IOException {
+        Class<?> cls = level.getLevelClass();
+        data.writeByte(ObjectStreamConstants.TC_CLASSDESC);
+        data.writeUTF(cls.getName());
+        data.writeLong(ObjectStreamClass.lookup(cls).getSerialVersionUID());
+        data.writeByte(ObjectStreamConstants.SC_SERIALIZABLE);
+        data.writeShort(fields.size());
+        for (Field field:fields) {
+            if (field.getType().isPrimitive()) {
+                data.writeByte(PRIMITIVE_CODES.get(field.getType()));
+                data.writeUTF(field.getName());
+            } else {
+                // the types of object fields are checked against the restored values
+                data.writeByte('L');
+                data.writeUTF(field.getName());
+                data.writeByte(ObjectStreamConstants.TC_STRING);
+                data.writeUTF("Ljava/lang/Object;");
+            }
+        }
+        data.writeByte(ObjectStreamConstants.TC_ENDBLOCKDATA);
+    }
+
+    /**
+     * Writes primitive values directly, objects are referenced by their index in objects
+     */
+    private static void writeFieldValue(DataOutputStream data, Field field, Object value, List<Object> objects)
+            throws IOException {
+        Class<?> type = field.getType();
+        if (!type.isPrimitive()) {
+            if (value == null) {
+                data.writeByte(ObjectStreamConstants.TC_NULL);
+            } else {
+                data.writeByte(ObjectStreamConstants.TC_STRING);
+                data.writeUTF(String.valueOf(objects.size()));
+                objects.add(value);
+            }
+        } else if (type == int.class && value instanceof Integer) {
+            data.writeInt((Integer)value);
+        } else if (type == boolean.class && value instanceof Boolean) {
+            data.writeBoolean((Boolean)value);
+        } else if (type == long.class && value instanceof Long) {
+            data.writeLong((Long)value);
+        } else if (type == short.class && value instanceof Short) {
+            data.writeShort((Short)value);
+        } else if (type == byte.class && value instanceof Byte) {
+            data.writeByte((Byte)value);
+        } else if (type == char.class && value instanceof Character) {
+            data.writeChar((Character)value);
+        } else if (type == float.class && value instanceof Float) {
+            data.writeFloat((Float)value);
+        } else if (type == double.class && value instanceof Double) {
+            data.writeDouble((Double)value);
+        } else {
+            throw new InvalidClassException(field.getDeclaringClass().getName(),
+                    "incompatible types for field " + field.getName());
+        }
+    }
+
+    private static Object restored(Object value) {
+        if (value instanceof Restored) {
+            return ((Restored)value).obj;
+        }
+        return value;
+    }
+
+    private String readString() throws IOException {
+        int index = readVarInt();
+        if (index > 0) {
+            if (index > strings.size()) {
+                throw new StreamCorruptedException("Unknown string index " + index);
+            }
+            return strings.get(index - 1);
+        }
+        byte[] bytes = new byte[readVarInt()];
+        in.readFully(bytes);
+        String string = new String(bytes, Charsets.UTF_8);
+        strings.add(string);
+        return string;
+    }
+
+    private ClassEntry readClass() throws IOException, ClassNotFoundException {
+        int index = readVarInt();
+        if (index > 0) {
+            if (index > classes.size()) {
+                throw new StreamCorruptedException("Unknown class index " + index);
+            }
+            return classes.get(index - 1);
+        }
+        String className = readString();
+        ImmutableList.Builder<StoredLevel> levels = ImmutableList.builder();
+        int nbLevels = readVarInt();
+        for (int i = 0; i < nbLevels; i++) {
+            String levelName = readString();
+            ImmutableList.Builder<String> fieldNames = ImmutableList.builder();
+            int nbFields = readVarInt();
+            for (int j = 0; j < nbFields; j++) {
+                fieldNames.add(readString());
+            }
+            levels.add(new StoredLevel(levelName, fieldNames.build()));
+        }
+        ClassEntry entry = new ClassEntry(resolveClass(className), levels.build());
+        classes.add(entry);
+        return entry;
+    }
+
+    private Class<?> resolveClass(String className) throws ClassNotFoundException {
+        try {
+            return Class.forName(className, false, BinaryObjectInputStream.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            // primitive component types of arrays
+            Class<?> primitive = PRIMITIVES.get(className);
+            if (primitive == null) throw e;
+            return primitive;
+        }
+    }
+
+    private static final Map<String, Class<?>> PRIMITIVES = Maps.newHashMap();
+    static {
+        for (Class<?> cls: new Class<?>[] {boolean.class, byte.class, char.class, short.class,
+                int.class, long.class, float.class, double.class}) {
+            PRIMITIVES.put(cls.getName(), cls);
+        }
+    }
+
+    // type codes of the primitive fields in serialized class descriptions
+    private static final Map<Class<?>, Character> PRIMITIVE_CODES = ImmutableMap.<Class<?>, Character>builder()
+            .put(boolean.class, 'Z').put(byte.class, 'B').put(char.class, 'C').put(short.class, 'S')
+            .put(int.class, 'I').put(long.class, 'J').put(float.class, 'F').put(double.class, 'D').build();
+
+    private int readVarInt() throws IOException {
+        return (int)readVarLong();
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Object read by {@link BinaryObjectInputStream#readDeferred()}
+     */
+    final class Deferred {
+        private final Object obj;
+        private final List<Step> steps;
+
+        private Deferred(Object obj, List<Step> steps) {
+            this.obj = obj;
+            this.steps = steps;
+        }
+
+        /**
+         * @return the class of the object, that is not restored before resolve is called
+         */
+        Class<?> getObjectClass() {
+            if (obj instanceof Restored) {
+                return ((Restored)obj).cls;
+            }
+            return (obj == null) ? null : obj.getClass();
+        }
+
+        /**
+         * Restores the object and the objects it contains
+         * (in the same order as readObject does)
+         * @return the restored object
+         */
+        Object resolve() throws IOException, ClassNotFoundException {
+            for (Step step:steps) {
+                step.run();
+            }
+            steps.clear();
+            return restored(obj);
+        }
+    }
+
+    private static abstract class Step {
+        abstract void run() throws IOException, ClassNotFoundException;
+    }
+
+    /**
+     * Object stored field by field, that is created when its step is run
+     */
+    private static final class Restored {
+        private final Class<?> cls;
+        private Object obj;
+
+        private Restored(Class<?> cls) {
+            this.cls = cls;
+        }
+    }
+
+    /**
+     * Position in the stream including the state of the string and class definitions
+     */
+    static final class Position {
+        private final long offset;
+        private final long checksum;
+        private final int nbStrings;
+        private final int nbClasses;
+
+        private Position(long offset, long checksum, int nbStrings, int nbClasses) {
+            this.offset = offset;
+            this.checksum = checksum;
+            this.nbStrings = nbStrings;
+            this.nbClasses = nbClasses;
+        }
+    }
+
+    /**
+     * Bytes between two positions, identified by their checksum,
+     * and the strings and classes defined inside
+     */
+    static final class Segment {
+        private final Position start;
+        private final Position end;
+        private final ImmutableList<String> strings;
+        private final ImmutableList<ClassEntry> classes;
+
+        private Segment(Position start, Position end, ImmutableList<String> strings,
+                ImmutableList<ClassEntry> classes) {
+            this.start = start;
+            this.end = end;
+            this.strings = strings;
+            this.classes = classes;
+        }
+    }
+
+    /**
+     * Keeps track of the offset and the checksum of the bytes read
+     */
+    private static final class PositionInputStream extends FilterInputStream {
+        private final CRC32 checksum = new CRC32();
+        private long offset = 0;
+
+        private PositionInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                checksum.update(b);
+                offset++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                checksum.update(b, off, read);
+                offset += read;
+            }
+            return read;
+        }
+
+        /**
+         * skipped bytes are read to be included in the checksum
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int)Math.min(n, 8192)];
+            return Math.max(read(buffer, 0, buffer.length), 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    private static final class ClassEntry {
+        private final Class<?> cls;
+        private final ImmutableList<StoredLevel> levels;
+
+        private ClassEntry(Class<?> cls, ImmutableList<StoredLevel> levels) {
+            this.cls = cls;
+            this.levels = levels;
+        }
+    }
+
+    private static final class StoredLevel {
+        private final String className;
+        private final ImmutableList<String> fieldNames;
+
+        private StoredLevel(String className, ImmutableList<String> fieldNames) {
+            this.className = className;
+            this.fieldNames = fieldNames;
+        }
+    }
+
+    /**
+     * Restores one object from a stream built by {@link BinaryObjectInputStream#restore},
+     * the values of its object fields are replaced by the objects already restored
+     */
+    private static final class FieldObjectInputStream extends GameLoader.RailsObjectInputStream {
+
+        private final List<Object> objects;
+
+        private FieldObjectInputStream(GameLoader loader, InputStream in, List<Object> objects)
+                throws IOException {
+            super(loader, in);
+            this.objects = objects;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            // all strings of the stream are indices of objects
+            if (obj instanceof String) {
+                try {
+                    return objects.get(Integer.parseInt((String)obj));
+                } catch (RuntimeException e) {
+                    throw new StreamCorruptedException("Unknown object index " + obj);
+                }
+            }
+            return obj;
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+package net.sf.rails.util;
+
+import static net.sf.rails.util.BinaryObjectFormat.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Map;
+
+import net.sf.rails.util.BinaryObjectFormat.ClassInfo;
+import net.sf.rails.util.BinaryObjectFormat.LevelInfo;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+
+/**
+ * An ObjectOutputStream that writes objects in the binary save format
+ * (see {@link BinaryObjectFormat}) instead of Java serialization.
+ *
+ * Only writeObject is supported.
+ */
+class BinaryObjectOutputStream extends ObjectOutputStream {
+
+    // limits the nesting of objects stored field by field
+    private static final int MAX_DEPTH = 32;
+
+    private final DataOutputStream out;
+
+    private final Map<String, Integer> strings = Maps.newHashMap();
+    private final Map<Class<?>, Integer> classes = Maps.newHashMap();
+
+    private int depth = 0;
+
+    BinaryObjectOutputStream(OutputStream out) throws IOException {
+        super();
+        this.out = new DataOutputStream(out);
+        this.out.write(MAGIC);
+        writeVarInt(VERSION);
+    }
+
+    @Override
+    protected void writeObjectOverride(Object obj) throws IOException {
+        writeValue(obj);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeValue(Object obj) throws IOException {
+        if (obj == null) {
+            out.writeByte(NULL);
+        } else if (obj instanceof String) {
+            out.writeByte(STRING);
+            writeString((String)obj);
+        } else if (obj instanceof Integer) {
+            out.writeByte(INT);
+            writeVarLong(zigZag((Integer)obj));
+        } else if (obj instanceof Boolean) {
+            out.writeByte((Boolean)obj ? TRUE : FALSE);
+        } else if (obj instanceof Long) {
+            out.writeByte(LONG);
+            writeVarLong(zigZag((Long)obj));
+        } else if (obj instanceof Short) {
+            out.writeByte(SHORT);
+            writeVarLong(zigZag((Short)obj));
+        } else if (obj instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte)obj);
+        } else if (obj instanceof Character) {
+            out.writeByte(CHAR);
+            writeVarInt((Character)obj);
+        } else if (obj instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float)obj);
+        } else if (obj instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double)obj);
+        } else if (obj instanceof Enum) {
+            out.writeByte(ENUM);
+            writeClass(((Enum<?>)obj).getDeclaringClass());
+            writeString(((Enum<?>)obj).name());
+        } else if (obj instanceof int[]) {
+            int[] array = (int[])obj;
+            out.writeByte(INT_ARRAY);
+            writeVarInt(array.length);
+            for (int i:array) {
+                writeVarLong(zigZag(i));
+            }
+        } else if (obj instanceof Object[] && depth < MAX_DEPTH) {
+            out.writeByte(ARRAY);
+            writeClass(obj.getClass().getComponentType());
+            int length = Array.getLength(obj);
+            writeVarInt(length);
+            depth++;
+            for (Object element:(Object[])obj) {
+                writeValue(element);
+            }
+            depth--;
+        } else if (isStoredCollection(obj) && depth < MAX_DEPTH) {
+            Collection<?> collection = (Collection<?>)obj;
+            out.writeByte(COLLECTION);
+            writeClass(obj.getClass());
+            writeVarInt(collection.size());
+            depth++;
+            for (Object element:collection) {
+                writeValue(element);
+            }
+            depth--;
+        } else if (isStoredMap(obj) && depth < MAX_DEPTH) {
+            Map<?,?> map = (Map<?,?>)obj;
+            out.writeByte(MAP);
+            writeClass(obj.getClass());
+            writeVarInt(map.size());
+            depth++;
+            for (Map.Entry<?,?> entry:map.entrySet()) {
+                writeValue(entry.getKey());
+                writeValue(entry.getValue());
+            }
+            depth--;
+        } else if (getClassInfo(obj.getClass()).isStorable() && depth < MAX_DEPTH) {
+            out.writeByte(OBJECT);
+            writeClass(obj.getClass());
+            depth++;
+            for (LevelInfo level:getClassInfo(obj.getClass()).getLevels()) {
+                for (Field field:level.getFields()) {
+                    try {
+                        writeValue(field.get(obj));
+                    } catch (IllegalAccessException e) {
+                        throw new IOException("Cannot access field " + field, e);
+                    }
+                }
+            }
+            depth--;
+        } else {
+            // fallback: Java serialization
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bytes);
+            oos.writeObject(obj);
+            oos.close();
+            out.writeByte(SERIALIZED);
+            writeVarInt(bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    /**
+     * Writes an index for known strings, otherwise the string itself
+     */
+    private void writeString(String string) throws IOException {
+        Integer index = strings.get(string);
+        if (index != null) {
+            writeVarInt(index + 1);
+        } else {
+            strings.put(string, strings.size());
+            byte[] bytes = string.getBytes(Charsets.UTF_8);
+            writeVarInt(0);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Writes an index for known classes, otherwise the class name and
+     * (for objects stored field by field) the field names of each serializable class
+     */
+    private void writeClass(Class<?> cls) throws IOException {
+        Integer index = classes.get(cls);
+        if (index != null) {
+            writeVarInt(index + 1);
+            return;
+        }
+        classes.put(cls, classes.size());
+        writeVarInt(0);
+        writeString(cls.getName());
+        ClassInfo info = getClassInfo(cls);
+        if (!info.isStorable()) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(info.getLevels().size());
+        for (LevelInfo level:info.getLevels()) {
+            writeString(level.getLevelClass().getName());
+            writeVarInt(level.getFields().size());
+            for (Field field:level.getFields()) {
+                writeString(field.getName());
+            }
+        }
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int)value);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+}
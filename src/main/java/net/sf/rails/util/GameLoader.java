@@ -1,5 +1,6 @@
 package net.sf.rails.util;
 
+import java.io.BufferedInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
@@ -22,6 +23,7 @@ import net.sf.rails.common.parser.ConfigurationException;
 import net.sf.rails.common.parser.GameOptionsParser;
 import net.sf.rails.game.GameManager;
 import net.sf.rails.game.RailsRoot;
+import net.sf.rails.game.state.ChangeStack;
 import net.sf.rails.ui.swing.GameUIManager;
 import net.sf.rails.ui.swing.SplashWindow;
 
@@ -49,7 +51,21 @@ public class GameLoader {
     private RailsRoot railsRoot = null;
     private Exception exception = null;
 
+    // positions of the first action and after the last action (binary files only)
+    private BinaryObjectInputStream.Position actionsStart = null;
+    private BinaryObjectInputStream.Position actionsEnd = null;
+    private ReloadCursor reloadCursor = null;
+    // number of actions skipped by convertNewGameData
+    private int skippedActions = 0;
+
     public GameLoader() {};
+
+    /**
+     * Creates a GameLoader that reads the actions for an existing game (e.g. for reload)
+     */
+    public GameLoader(RailsRoot railsRoot) {
+        this.railsRoot = railsRoot;
+    }
     
     public static void loadAndStartGame(File gameFile) {
         SplashWindow splashWindow = new SplashWindow(true, gameFile.getAbsolutePath());
@@ -126,7 +142,7 @@ public class GameLoader {
         // FIXME: Removed the filename replacement expression
         // check if this still works
         // String filename = filePath.replaceAll(".*[/\\\\]", "");
-        ois = new RailsObjectInputStream(this, new FileInputStream(gameFile));
+        ois = createObjectInputStream(this, new FileInputStream(gameFile));
 
         Object object = ois.readObject();
         String version;
@@ -186,8 +202,27 @@ public class GameLoader {
         GameInfo game = GameInfo.createLegacy(gameName);
         
         gameIOData.setGameData(GameData.create(game, gameOptions, playerNames));
+
+        if (ois instanceof BinaryObjectInputStream) {
+            actionsStart = ((BinaryObjectInputStream)ois).startSegment();
+            actionsEnd = actionsStart;
+        }
     }
     
+    /**
+     * Creates the object stream for the format of the saved data (binary or serialized)
+     * @param in stream that starts at the beginning of the saved data
+     */
+    public static ObjectInputStream createObjectInputStream(GameLoader loader, InputStream in) 
+            throws IOException {
+        InputStream buffered = new BufferedInputStream(in);
+        if (BinaryObjectFormat.isBinary(buffered)) {
+            return new BinaryObjectInputStream(loader, buffered);
+        } else {
+            return new RailsObjectInputStream(loader, buffered);
+        }
+    }
+
     /**
      * Convert the gameData
      * Requires successfull load of gameData
@@ -208,11 +243,16 @@ public class GameLoader {
             if (actionObject instanceof List) {
                 // Until Rails 1.3: one List of PossibleAction
                 gameIOData.setActions((List<PossibleAction>) actionObject);
+                // no cursor for a list of actions
+                actionsStart = null;
             } else if (actionObject instanceof PossibleAction) {
                 List<PossibleAction> actions = Lists.newArrayList();
                 // Since Rails 1.3.1: separate PossibleActionsObjects
                 while (actionObject instanceof PossibleAction) {
                     actions.add((PossibleAction)actionObject);
+                    if (actionsStart != null) {
+                        actionsEnd = ((BinaryObjectInputStream)ois).getPosition();
+                    }
                     try {
                         actionObject = ois.readObject();
                     } catch (EOFException e) {
@@ -246,10 +286,58 @@ public class GameLoader {
                 // but also the java.io.StreamCorruptedException: invalid type code
             }
         }
+        if (actionsStart != null) {
+            List<PossibleAction> actions = gameIOData.getActions();
+            int nbActions = skippedActions + (actions == null ? 0 : actions.size());
+            reloadCursor = new ReloadCursor(nbActions,
+                    ((BinaryObjectInputStream)ois).getSegment(actionsStart, actionsEnd));
+        }
         ois.close();
         ois = null;
     }
 
+    /**
+     * Convert only the actions that follow the actions of a cursor of a previous
+     * load of the same game (see {@link #getReloadCursor()}), the actions before
+     * the cursor are skipped and not compared (besides their checksum)
+     * Requires successfull load of gameData
+     * @return false if the file does not continue after the cursor,
+     * then the file has to be loaded and converted completely by a new GameLoader
+     */
+    public boolean convertNewGameData(ReloadCursor cursor) throws Exception {
+        if (actionsStart == null || !((BinaryObjectInputStream)ois).skipSegment(cursor.getActions())) {
+            ois.close();
+            ois = null;
+            return false;
+        }
+        skippedActions = cursor.getActionCount();
+        actionsEnd = ((BinaryObjectInputStream)ois).getPosition();
+        convertGameData();
+        if (gameIOData.getActions() == null) {
+            gameIOData.setActions(Lists.<PossibleAction>newArrayList());
+        }
+        return true;
+    }
+
+    /**
+     * Adds the actions stored in the journal of the game file (see {@link ActionJournal})
+     * Requires successfull convert of gameData
+     */
+    public void loadJournal(File gameFile) throws IOException {
+        List<PossibleAction> actions = gameIOData.getActions();
+        int baseCount = (actions == null) ? 0 : actions.size();
+        List<PossibleAction> journaled = ActionJournal.read(gameFile, baseCount, this);
+        if (journaled.isEmpty()) return;
+
+        if (actions == null) {
+            actions = Lists.newArrayList();
+        } else {
+            actions = Lists.newArrayList(actions);
+        }
+        actions.addAll(journaled);
+        gameIOData.setActions(actions);
+    }
+
     /**
      * @return false if exception occurred
      */
@@ -259,30 +347,110 @@ public class GameLoader {
         log.debug("Starting to execute loaded actions");
         gameManager.setReloading(true);
 
-        int count = -1;
+        int count = 0;
         if (gameIOData != null && gameIOData.getActions() != null) {
             // set possible actions for first action
             gameManager.getCurrentRound().setPossibleActions();
             for (PossibleAction action : gameIOData.getActions()) {
+                if (!replayAction(gameManager, action, count)) break;
                 count++;
-                if (!gameManager.processOnReload(action)) {
-                    log.warn("Replay of game interrupted");
-                    String message = LocalText.getText("LoadInterrupted", count);
-                    exception = new RailsReplayException(message);
-                    break;
+            }
+        }
+
+        finishReplay(gameManager, count);
+        // return true if no exception occurred
+        return (exception == null);
+    }
+
+    /**
+     * Replays the actions while they are read from the stream, the actions of the
+     * journal of the file (if any) are replayed afterwards
+     * Requires successfull load of gameData from a binary file
+     * @return false if exception occurred
+     */
+    public boolean replayGameStreaming(File gameFile) {
+
+        GameManager gameManager = railsRoot.getGameManager();
+        log.debug("Starting to execute streamed actions");
+        gameManager.setReloading(true);
+
+        List<PossibleAction> actions = Lists.newArrayList();
+        gameIOData.setActions(actions);
+
+        ActionStream stream = new ActionStream((BinaryObjectInputStream)ois);
+        ois = null;
+        stream.start();
+
+        int count = 0;
+        int read = 0;
+        try {
+            // set possible actions for first action
+            gameManager.getCurrentRound().setPossibleActions();
+            while (true) {
+                PossibleAction action;
+                try {
+                    action = stream.next();
+                } catch (Exception e) {
+                    if (exception == null) throw e;
+                    // after an interrupted replay the remaining actions are restored for the state reached,
+                    // which may fail for single actions
+                    log.warn("Cannot read action " + read + " after the interrupted replay", e);
+                    read++;
+                    continue;
+                }
+                if (action == null) break;
+                read++;
+                actions.add(action);
+                // after an interrupted replay the remaining actions are still read
+                if (exception == null && replayAction(gameManager, action, count)) {
+                    count++;
                 }
             }
+            for (PossibleAction journaled : ActionJournal.read(gameFile, read, this)) {
+                actions.add(journaled);
+                if (exception == null && replayAction(gameManager, journaled, count)) {
+                    count++;
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Exception during replayGameStreaming in gameLoader ", e);
+            // keep the failure of the replay, if the actions cannot be read afterwards
+            if (exception == null) {
+                exception = e;
+            }
+        } finally {
+            stream.close();
+        }
+
+        finishReplay(gameManager, count);
+        // return true if no exception occurred
+        return (exception == null);
+    }
+
+    /**
+     * @return false if the replay of the action failed
+     */
+    private boolean replayAction(GameManager gameManager, PossibleAction action, int index) {
+        if (gameManager.processOnReload(action)) {
+            return true;
         }
+        log.warn("Replay of game interrupted");
+        String message = LocalText.getText("LoadInterrupted", index);
+        exception = new RailsReplayException(message);
+        return false;
+    }
 
+    private void finishReplay(GameManager gameManager, int count) {
         gameManager.setReloading(false);
+        ChangeStack changeStack = railsRoot.getStateManager().getChangeStack();
+        log.info("Replayed " + count + " actions, stored " + changeStack.getStoredChanges() 
+                + " changes, removed " + changeStack.getRemovedChanges() + " changes by compaction");
         
         // FIXME (Rails2.0): CommentItems have to be replaced
         // ReportBuffer.setCommentItems(gameData.userComments);
 
         // callback to GameManager
         gameManager.finishLoading();
-        // return true if no exception occurred
-        return (exception == null);
     }
     
     public RailsRoot getRoot() {
@@ -296,6 +464,20 @@ public class GameLoader {
     public List<PossibleAction> getActions() {
         return gameIOData.getActions();
     }
+
+    /**
+     * @return number of actions skipped before the actions retrieved by {@link #getActions()}
+     */
+    public int getSkippedActions() {
+        return skippedActions;
+    }
+
+    /**
+     * @return cursor after the converted actions, null if not available (e.g. serialized files)
+     */
+    public ReloadCursor getReloadCursor() {
+        return reloadCursor;
+    }
     
     public String getGameDataAsText() {
         return gameIOData.metaDataAsText() + gameIOData.gameOptionsAsText() + gameIOData.playerNamesAsText();
@@ -307,6 +489,7 @@ public class GameLoader {
      */
     public boolean createFromFile(File gameFile)  {
 
+        boolean streaming;
         try {
             // 1st: loadGameData
             loadGameData(gameFile);
@@ -314,8 +497,15 @@ public class GameLoader {
             // 2nd: create game
             railsRoot = RailsRoot.create(gameIOData.getGameData());
 
-            // 3rd: convert game data (retrieve actions)
-            convertGameData();        
+            // binary files are replayed while the actions are read
+            streaming = (ois instanceof BinaryObjectInputStream);
+            if (!streaming) {
+                // 3rd: convert game data (retrieve actions)
+                convertGameData();        
+
+                // 3a: add the actions from a journal of the file (if any)
+                loadJournal(gameFile);
+            }
 
             // 4tgh: start game
             railsRoot.start();
@@ -327,7 +517,11 @@ public class GameLoader {
             return false;
         }
         // 5th: replay game
-        return replayGame();
+        if (streaming) {
+            return replayGameStreaming(gameFile);
+        } else {
+            return replayGame();
+        }
     }
     
     /**
@@ -350,10 +544,22 @@ public class GameLoader {
             this.loader = loader;
         }
         
+        /**
+         * Constructor for subclasses that implement their own format
+         */
+        protected RailsObjectInputStream(GameLoader loader) throws IOException {
+            super();
+            this.loader = loader;
+        }
+        
         public RailsRoot getRoot() {
             return loader.getRoot();
         }
         
+        protected GameLoader getLoader() {
+            return loader;
+        }
+        
 //        @Override
 //        protected java.io.ObjectStreamClass readClassDescriptor() 
 //                throws IOException, ClassNotFoundException {
@@ -1,9 +1,11 @@
 package net.sf.rails.util;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
@@ -39,9 +41,32 @@ public class GameSaver {
     public static final String autosaveFolder = "autosave";
     public static final String autosaveFile = "18xx_autosave.rails";
 
+    /**
+     * Formats of save files, both can be loaded
+     */
+    public enum Format {
+        /** experimental compact binary format, see {@link BinaryObjectFormat} */
+        BINARY, 
+        /** Java serialization, as used by all Rails versions before */
+        SERIALIZED;
+        
+        /**
+         * @return format defined by save.format, default is serialized
+         */
+        public static Format fromConfig() {
+            if (Config.get("save.format", "serialized").equalsIgnoreCase("binary")) {
+                return BINARY;
+            } else {
+                return SERIALIZED;
+            }
+        }
+    }
+
     // game data
     private final GameIOData gameIOData = new GameIOData();
     
+    private Format format = Format.fromConfig();
+    
     /**
      * Creates a new game saver
      * @param gameData of the game to save
@@ -63,15 +88,35 @@ public class GameSaver {
         this(gameLoader.getRoot().getGameData(), gameLoader.getActions());
     }
 
+    /**
+     * Sets the format of the saved files, default is defined by the configuration
+     */
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Creates the object stream to write data in the format 
+     */
+    public static ObjectOutputStream createObjectOutputStream(OutputStream out, Format format) 
+            throws IOException {
+        if (format == Format.BINARY) {
+            return new BinaryObjectOutputStream(out);
+        } else {
+            return new ObjectOutputStream(out);
+        }
+    }
+
     /**
      * Stores the game to a file
      * @param file to save game to
      */
     public void saveGame(File file) throws IOException {
-        log.info("Trying to save file to " + file.getAbsoluteFile());
+        log.info("Trying to save file to " + file.getAbsoluteFile() + " (" + format + ")");
 
+        FileOutputStream fos = new FileOutputStream(file);
         ObjectOutputStream oos =
-            new ObjectOutputStream(new FileOutputStream(file));
+            createObjectOutputStream(new BufferedOutputStream(fos), format);
         oos.writeObject(gameIOData.getVersion());
         oos.writeObject(gameIOData.getDate());
         oos.writeObject(gameIOData.getFileVersionID());
@@ -81,6 +126,9 @@ public class GameSaver {
         for (PossibleAction action : gameIOData.getActions()) {
             oos.writeObject(action);
         }
+        oos.flush();
+        // make sure the file is on disk before it replaces other files
+        fos.getFD().sync();
         oos.close();
         log.info("File save successfull");
     }
@@ -91,7 +139,18 @@ public class GameSaver {
      */
     public void autoSave() throws IOException  {
         File directory = SystemOS.get().getConfigurationFolder(autosaveFolder, true);
-        String fileName = autosaveFile;
+        saveGameSafely(new File(directory, autosaveFile));
+    }
+
+    /**
+     * Stores the game to a temporary file first and renames it afterwards,
+     * a previously existing file is kept as backup file
+     * @param recoveryFile to save game to
+     * @throws IOException
+     */
+    public void saveGameSafely(File recoveryFile) throws IOException {
+        File directory = recoveryFile.getParentFile();
+        String fileName = recoveryFile.getName();
         
         // create temporary new save file
         File tempFile = new File(directory, fileName + ".tmp");
@@ -99,7 +158,6 @@ public class GameSaver {
         log.debug("Created temporary recovery file, path = "  + tempFile.getPath());
 
         // rename the temp file to the recover file
-        File recoveryFile = new File(directory, fileName);
         log.debug("Potential recovery at "  + recoveryFile.getPath());
         // check if previous save file exists
         boolean renameResult;
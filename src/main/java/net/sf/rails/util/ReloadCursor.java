@@ -0,0 +1,31 @@
+package net.sf.rails.util;
+
+/**
+ * ReloadCursor marks the end of the actions read from a (binary) saved file.
+ *
+ * A later saved file of the same game that starts with the same actions
+ * (identified by the checksum of their bytes) is continued after the cursor,
+ * thus only the new actions are read (see {@link GameLoader#convertNewGameData(ReloadCursor)}).
+ */
+public final class ReloadCursor {
+
+    private final int actionCount;
+    private final BinaryObjectInputStream.Segment actions;
+
+    ReloadCursor(int actionCount, BinaryObjectInputStream.Segment actions) {
+        this.actionCount = actionCount;
+        this.actions = actions;
+    }
+
+    /**
+     * @return number of actions before the cursor
+     */
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    BinaryObjectInputStream.Segment getActions() {
+        return actions;
+    }
+
+}
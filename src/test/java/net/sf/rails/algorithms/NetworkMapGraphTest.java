@@ -0,0 +1,112 @@
+package net.sf.rails.algorithms;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Set;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.game.state.ChangeStack;
+import net.sf.rails.util.GameLoader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class NetworkMapGraphTest {
+
+    private final static String GAME_FILE = "real/1856_A.rails";
+
+    private RailsRoot root;
+    private NetworkMapGraph networkMapGraph;
+
+    @BeforeClass
+    public static void setUpConfig() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() {
+        RailsRoot.clearInstance();
+        GameLoader gameLoader = new GameLoader();
+        assertTrue(gameLoader.createFromFile(new File(Config.get("save.directory"), GAME_FILE)));
+        root = gameLoader.getRoot();
+        networkMapGraph = root.getMapManager().getNetworkMapGraph();
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    private static Set<String> describe(NetworkGraph graph) {
+        Set<String> description = Sets.newHashSet();
+        for (NetworkVertex vertex:graph.getGraph().vertexSet()) {
+            description.add(vertex.getIdentifier());
+        }
+        for (NetworkEdge edge:graph.getGraph().edgeSet()) {
+            String source = edge.getSource().getIdentifier();
+            String target = edge.getTarget().getIdentifier();
+            if (source.compareTo(target) > 0) {
+                String swap = source; source = target; target = swap;
+            }
+            description.add(source + "-" + target + (edge.isGreedy() ? " greedy" : ""));
+        }
+        return description;
+    }
+
+    private void assertEqualsFullGraph() {
+        assertEquals(describe(NetworkGraph.createMapGraph(root)),
+                describe(networkMapGraph.getMapGraph()));
+    }
+
+    @Test
+    public void testUndoRedo() {
+        ChangeStack changeStack = root.getStateManager().getChangeStack();
+        assertEqualsFullGraph();
+
+        int index = changeStack.getCurrentIndex();
+        changeStack.undo(index / 2);
+        assertEqualsFullGraph();
+        int version = networkMapGraph.getVersion();
+
+        // step through the second half of the game
+        for (int i = 0; changeStack.isRedoPossible(); i++) {
+            changeStack.redo();
+            if (i % 10 == 0) {
+                assertEqualsFullGraph();
+            }
+        }
+        assertEqualsFullGraph();
+        assertTrue(networkMapGraph.getVersion() > version);
+    }
+
+    @Test
+    public void testSharedGraphsFrozen() {
+        NetworkGraph mapGraph = networkMapGraph.getMapGraph();
+        assertTrue(mapGraph.isFrozen());
+        assertSame(mapGraph, networkMapGraph.getMapGraph());
+        try {
+            mapGraph.getGraph().removeVertex(mapGraph.getGraph().vertexSet().iterator().next());
+            fail("Shared map graph changed");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        NetworkGraph copy = networkMapGraph.createMapGraph();
+        assertFalse(copy.isFrozen());
+        assertEquals(describe(mapGraph), describe(copy));
+
+        for (PublicCompany company:root.getCompanyManager().getAllPublicCompanies()) {
+            if (company.getLaidBaseTokens().isEmpty()) continue;
+            assertTrue(networkMapGraph.getRouteGraph(company, true).isFrozen());
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package net.sf.rails.algorithms;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+
+import net.sf.rails.game.RailsRoot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares RevenueCalculatorMultiBits with RevenueCalculatorMulti on a small multigraph
+ * with parallel edges, travel sets, a visit set and a sink
+ */
+public class RevenueCalculatorMultiBitsTest {
+
+    // vertices ordered by value: major, minor, sink, value
+    private final static Object[][] VERTICES = {
+        {true, false, false, 60},
+        {true, false, false, 50},
+        {true, false, true, 45}, // offboard
+        {true, false, false, 40},
+        {true, false, false, 30},
+        {false, true, false, 20},
+    };
+
+    private final static int[] START_VERTICES = {0, 3};
+
+    // edges: from vertex, to vertex
+    private final static int[][] EDGES = {
+        {0, 1}, {0, 1}, {1, 3}, {0, 3}, {3, 4}, {1, 4}, {4, 5}, {3, 5}, {1, 2}, {4, 2}
+    };
+
+    // edges that share track with each other
+    private final static int[][] TRAVEL_SETS = {{0, 2}, {3, 7}};
+
+    // vertices of the same hex
+    private final static int[] VISIT_SET = {4, 5};
+
+    private final static int MAX_NEIGHBORS = 5;
+
+    // trains: majors, minors
+    private final static int[][][] TRAIN_SETS = {
+        {{2, 0}},
+        {{2, 0}, {2, 0}},
+        {{2, 0}, {3, 0}},
+        {{3, 1}, {4, 0}},
+        {{2, 0}, {3, 0}, {5, 0}},
+    };
+
+    private RevenueAdapter revenueAdapter;
+
+    @Before
+    public void setUp() {
+        revenueAdapter = new RevenueAdapter(mock(RailsRoot.class), null, null, null);
+    }
+
+    private void populate(RevenueCalculator rc, int[][] trains) {
+        for (int id=0; id < VERTICES.length; id++) {
+            rc.setVertex(id, (Boolean)VERTICES[id][0], (Boolean)VERTICES[id][1], (Boolean)VERTICES[id][2]);
+            for (int trainId=0; trainId < trains.length; trainId++) {
+                rc.setVertexValue(id, trainId, (Integer)VERTICES[id][3]);
+            }
+        }
+        for (int id=0; id < VERTICES.length; id++) {
+            int nb = 0;
+            int[] neighbors = new int[MAX_NEIGHBORS], edges = new int[MAX_NEIGHBORS];
+            for (int edgeId=0; edgeId < EDGES.length; edgeId++) {
+                if (EDGES[edgeId][0] == id) {
+                    neighbors[nb] = EDGES[edgeId][1];
+                } else if (EDGES[edgeId][1] == id) {
+                    neighbors[nb] = EDGES[edgeId][0];
+                } else {
+                    continue;
+                }
+                edges[nb++] = edgeId;
+            }
+            rc.setVertexNeighbors(id, Arrays.copyOf(neighbors, nb),
+                    Arrays.copyOf(edges, nb));
+        }
+        rc.setStartVertexes(START_VERTICES);
+        for (int edgeId=0; edgeId < EDGES.length; edgeId++) {
+            rc.setEdge(edgeId, true, 1);
+        }
+        for (int id=0; id < trains.length; id++) {
+            rc.setTrain(id, trains[id][0], trains[id][1], false, false, false);
+        }
+        rc.setVisitSet(VISIT_SET);
+    }
+
+    private int calculate(RevenueCalculator rc, int nbTrains) {
+        rc.initRuns(0, nbTrains - 1);
+        rc.executePredictions(0, nbTrains - 1);
+        return rc.calculateRevenue(0, nbTrains - 1);
+    }
+
+    private int calculateMulti(int[][] trains) {
+        RevenueCalculatorMulti rc = new RevenueCalculatorMulti(revenueAdapter, VERTICES.length,
+                EDGES.length, MAX_NEIGHBORS, VISIT_SET.length - 1, 1, trains.length, 0);
+        populate(rc, trains);
+        for (int[] travelSet:TRAVEL_SETS) {
+            rc.setTravelSet(travelSet[0], new int[] {travelSet[1]});
+            rc.setTravelSet(travelSet[1], new int[] {travelSet[0]});
+        }
+        return calculate(rc, trains.length);
+    }
+
+    private int calculateMultiBits(int[][] trains) {
+        RevenueCalculatorMultiBits rc = new RevenueCalculatorMultiBits(revenueAdapter, VERTICES.length,
+                EDGES.length, MAX_NEIGHBORS, VISIT_SET.length - 1, 1, trains.length, 0);
+        populate(rc, trains);
+        for (int[] travelSet:TRAVEL_SETS) {
+            rc.setTravelSet(travelSet[0], new int[] {travelSet[1]});
+            rc.setTravelSet(travelSet[1], new int[] {travelSet[0]});
+        }
+        return calculate(rc, trains.length);
+    }
+
+    @Test
+    public void testParallelEdges() {
+        // both trains run between the two best stations, each on its own edge
+        assertEquals(220, calculateMulti(TRAIN_SETS[1]));
+        assertEquals(220, calculateMultiBits(TRAIN_SETS[1]));
+    }
+
+    @Test
+    public void testEqualRevenues() {
+        for (int[][] trains:TRAIN_SETS) {
+            int revenue = calculateMulti(trains);
+            assertTrue(revenue > 0);
+            assertEquals(trains.length + " trains", revenue, calculateMultiBits(trains));
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package net.sf.rails.algorithms;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.OperatingRound;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.game.round.RoundFacade;
+import net.sf.rails.game.state.ChangeStack;
+import net.sf.rails.util.GameLoader;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compares the variants of the revenue calculation with the sequential calculation
+ * for each operating company of saved games
+ */
+public class RevenueCalculatorTest {
+
+    private final static String[] GAME_FILES = {"real/1830_A.rails", "real/1856_A.rails"};
+
+    // games with dynamic modifiers
+    private final static String[] MODIFIER_GAME_FILES = {"real/1880_ATG1.rails", "real/18EU_A.rails"};
+
+    // evaluations checked per company
+    private final static int MAX_CHECKED_EVALUATIONS = 2000;
+
+    /**
+     * Checks that the evaluation of the run view equals the evaluation 
+     * of the converted runs for each evaluated run
+     */
+    private static final class CheckedModifier implements RevenueDynamicModifier {
+        private final RevenueDynamicModifier modifier;
+        private RevenueAdapter revenueAdapter;
+        private int evaluations;
+
+        private CheckedModifier(RevenueDynamicModifier modifier) {
+            this.modifier = modifier;
+        }
+
+        public boolean prepareModifier(RevenueAdapter revenueAdapter) {
+            this.revenueAdapter = revenueAdapter;
+            return modifier.prepareModifier(revenueAdapter);
+        }
+
+        public int predictionValue(RevenueRunView run) {
+            return modifier.predictionValue(run);
+        }
+
+        public int evaluationValue(RevenueRunView run) {
+            int value = modifier.evaluationValue(run);
+            assertEquals(modifier.toString(), 
+                    modifier.evaluationValue(revenueAdapter.getCurrentRun(), false), value);
+            evaluations++;
+            return value;
+        }
+
+        public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
+            return modifier.evaluationValue(runs, optimalRuns);
+        }
+
+        public void adjustOptimalRun(List<RevenueTrainRun> optimalRuns) {
+            modifier.adjustOptimalRun(optimalRuns);
+        }
+
+        public String prettyPrint(RevenueAdapter revenueAdapter) {
+            return modifier.prettyPrint(revenueAdapter);
+        }
+    }
+
+    @BeforeClass
+    public static void setUpConfig() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    private RailsRoot load(String game) {
+        RailsRoot.clearInstance();
+        GameLoader gameLoader = new GameLoader();
+        // an interrupted replay keeps the game at the last valid action
+        gameLoader.createFromFile(new File(Config.get("save.directory"), game));
+        assertNotNull(game, gameLoader.getRoot());
+        return gameLoader.getRoot();
+    }
+
+    private RevenueAdapter createAdapter(RailsRoot root, PublicCompany company, int threads) {
+        RevenueAdapter ra = RevenueAdapter.createRevenueAdapter(root, company,
+                root.getPhaseManager().getCurrentPhase());
+        ra.initRevenueCalculator(true, threads);
+        return ra;
+    }
+
+    /**
+     * Redoes the game from its start and calculates the revenue
+     * whenever a company with trains starts to operate
+     * @param threads threads of the revenue calculator
+     * @param runCache maximum entries of the run cache, 0 => no cache
+     * @return revenues of the calculations
+     */
+    private List<Integer> revenues(String game, int threads, int runCache) {
+        RailsRoot root = load(game);
+        List<Integer> revenues = Lists.newArrayList();
+
+        ChangeStack changeStack = root.getStateManager().getChangeStack();
+        changeStack.undo(1);
+        RoundFacade lastRound = null;
+        PublicCompany lastCompany = null;
+        while (true) {
+            RoundFacade round = root.getGameManager().getCurrentRound();
+            if (round instanceof OperatingRound) {
+                PublicCompany company = ((OperatingRound)round).getOperatingCompany();
+                if (company != null && (round != lastRound || company != lastCompany)
+                        && !company.getPortfolioModel().getTrainList().isEmpty()) {
+                    RevenueAdapter ra = createAdapter(root, company, threads);
+                    ra.setRunCacheSize(runCache);
+                    revenues.add(ra.calculateRevenue());
+                }
+                lastCompany = company;
+            }
+            lastRound = round;
+            if (!changeStack.isRedoPossible()) break;
+            changeStack.redo();
+        }
+        assertFalse(revenues.isEmpty());
+        return revenues;
+    }
+
+    @Test
+    public void testParallel() {
+        for (String game:GAME_FILES) {
+            assertEquals(game, revenues(game, 1, 0), revenues(game, 4, 0));
+        }
+        // the worker threads are kept between calculations, but do not prevent the exit
+        for (Thread thread:Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("RevenueWorker")) {
+                assertTrue(thread.isDaemon());
+            }
+        }
+    }
+
+    @Test
+    public void testRunCache() {
+        for (String game:GAME_FILES) {
+            assertEquals(game, revenues(game, 1, 0), 
+                    revenues(game, 1, RevenueAdapter.DEFAULT_RUN_CACHE_SIZE));
+        }
+    }
+
+    @Test
+    public void testRunCacheRepeated() {
+        RailsRoot root = load(GAME_FILES[0]);
+        for (PublicCompany company:root.getCompanyManager().getAllPublicCompanies()) {
+            if (company.getPortfolioModel().getTrainList().isEmpty()) continue;
+            int revenue = createAdapter(root, company, 1).calculateRevenue();
+
+            // the second calculation of the adapter uses the runs cached by the first
+            RevenueAdapter ra = createAdapter(root, company, 1);
+            ra.setRunCacheSize(RevenueAdapter.DEFAULT_RUN_CACHE_SIZE);
+            assertEquals(company.getId(), revenue, ra.calculateRevenue());
+            assertEquals(company.getId(), revenue, ra.calculateRevenue());
+            // a single train is not cached
+            if (company.getPortfolioModel().getTrainList().size() > 1) {
+                assertTrue(company.getId(), ra.getStatistics().getCacheHits() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testRunView() {
+        for (String game:MODIFIER_GAME_FILES) {
+            RailsRoot root = load(game);
+            RevenueManager revenueManager = root.getRevenueManager();
+            List<CheckedModifier> checkedModifiers = Lists.newArrayList();
+            for (RevenueDynamicModifier modifier:
+                    Lists.newArrayList(revenueManager.getDynamicModifiers())) {
+                CheckedModifier checkedModifier = new CheckedModifier(modifier);
+                revenueManager.removeDynamicModifier(modifier);
+                revenueManager.addDynamicModifier(checkedModifier);
+                checkedModifiers.add(checkedModifier);
+            }
+            assertFalse(game, checkedModifiers.isEmpty());
+
+            for (PublicCompany company:root.getCompanyManager().getAllPublicCompanies()) {
+                if (company.getPortfolioModel().getTrainList().isEmpty()) continue;
+                RevenueAdapter ra = createAdapter(root, company, 1);
+                ra.setSearchLimits(0, MAX_CHECKED_EVALUATIONS);
+                ra.calculateRevenue();
+            }
+            int evaluations = 0;
+            for (CheckedModifier checkedModifier:checkedModifiers) {
+                evaluations += checkedModifier.evaluations;
+            }
+            assertTrue(game, evaluations > 0);
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package net.sf.rails.algorithms;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.game.specific._1825.DoubleHeadingModifier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Evaluates dynamic modifiers on run views with given train values
+ */
+public class RevenueRunViewTest {
+
+    private final static String TRAIN_SINGLE = "2";
+    private final static String DOUBLEHEAD_NAME = "2&2";
+
+    private RevenueAdapter revenueAdapter;
+
+    @Before
+    public void setUp() {
+        revenueAdapter = new RevenueAdapter(mock(RailsRoot.class), null, null, null);
+    }
+
+    /**
+     * @return view on a run of all trains with the values, each train runs between two vertices
+     */
+    private RevenueRunView createView(String[] trainNames, int[] values) {
+        List<NetworkTrain> trains = Lists.newArrayList();
+        for (String trainName:trainNames) {
+            NetworkTrain train = NetworkTrain.createFromString(TRAIN_SINGLE);
+            train.setTrainName(trainName);
+            trains.add(train);
+        }
+        RevenueCalculatorSimple rc = new RevenueCalculatorSimple(revenueAdapter, 2, 1, 1, 0,
+                trains.size(), 0);
+        rc.startTrainSet = 0;
+        rc.finalTrainSet = trains.size() - 1;
+        for (int j=0; j < trains.size(); j++) {
+            rc.trainStackPos[j] = 2;
+            rc.trainCurrentValue[j] = values[j];
+        }
+        RevenueRunView view = new RevenueRunView(rc, trains, ImmutableList.<NetworkVertex>of(),
+                ImmutableList.<NetworkEdge>of(), false);
+        view.reset();
+        return view;
+    }
+
+    @Test
+    public void testDoubleHeading() {
+        DoubleHeadingModifier modifier = new DoubleHeadingModifier();
+        // the two lowest 2-trains are removed for the double heading train
+        assertEquals(-30, modifier.evaluationValue(createView(
+                new String[] {TRAIN_SINGLE, TRAIN_SINGLE, TRAIN_SINGLE, DOUBLEHEAD_NAME},
+                new int[] {10, 40, 20, 60})));
+    }
+
+    @Test
+    public void testDoubleHeadingWithoutEnoughSingleTrains() {
+        DoubleHeadingModifier modifier = new DoubleHeadingModifier();
+        // fills the buffer of the modifier with the values of four 2-trains
+        assertEquals(0, modifier.evaluationValue(createView(
+                new String[] {TRAIN_SINGLE, TRAIN_SINGLE, TRAIN_SINGLE, TRAIN_SINGLE},
+                new int[] {10, 20, 30, 40})));
+        // two double heading runs, but only a single 2-train
+        assertEquals(-50, modifier.evaluationValue(createView(
+                new String[] {TRAIN_SINGLE, DOUBLEHEAD_NAME, DOUBLEHEAD_NAME, DOUBLEHEAD_NAME},
+                new int[] {50, 60, 70, 0})));
+    }
+
+}
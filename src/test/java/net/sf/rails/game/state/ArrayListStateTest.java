@@ -267,4 +267,14 @@ public class ArrayListStateTest {
         assertTestIterator();
     }
 
+    @Test
+    public void testViewCached() {
+        ImmutableList<Item> view = stateInit.view();
+        assertSame(view, stateInit.view());
+        stateInit.add(anotherItem);
+        assertEquals(ImmutableList.of(oneItem), view);
+        assertEquals(ImmutableList.of(oneItem, anotherItem), stateInit.view());
+        StateTestUtils.closeAndUndo(root);
+        assertEquals(ImmutableList.of(oneItem), stateInit.view());
+    }
 }
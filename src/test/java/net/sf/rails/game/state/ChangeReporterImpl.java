@@ -15,6 +15,11 @@ public class ChangeReporterImpl implements ChangeReporter {
         // do nothing
     }
 
+    @Override
+    public void informOnClose() {
+        // do nothing
+    }
+
     @Override
     public void informOnUndo() {
         // do nothing
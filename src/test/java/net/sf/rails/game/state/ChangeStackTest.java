@@ -3,11 +3,14 @@ package net.sf.rails.game.state;
 import static org.fest.assertions.api.Fail.failBecauseExceptionWasNotThrown;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
+import net.sf.rails.game.state.ArrayListState;
 import net.sf.rails.game.state.BooleanState;
 import net.sf.rails.game.state.ChangeAction;
 import net.sf.rails.game.state.ChangeSet;
 import net.sf.rails.game.state.ChangeStack;
+import net.sf.rails.game.state.IntegerState;
 import net.sf.rails.game.state.Root;
 
 import org.junit.Before;
@@ -15,6 +18,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.collect.ImmutableList;
+
 
 @RunWith(MockitoJUnitRunner.class)
 public class ChangeStackTest {
@@ -131,4 +136,107 @@ public class ChangeStackTest {
         testUndoAfterClose();
     }
 
+    @Test
+    public void testUndoRedoWithSnapshots() {
+        changeStack.setSnapshotInterval(2);
+        IntegerState integer = IntegerState.create(root, "Integer");
+        ArrayListState<Integer> list = ArrayListState.create(root, "List");
+        IntegerState later = null;
+        for (int i = 1; i <= 20; i++) {
+            integer.set(i);
+            list.add(i);
+            if (i == 7) {
+                later = IntegerState.create(root, "Later", 100);
+            }
+            if (later != null) {
+                later.add(1);
+            }
+            StateTestUtils.close(root);
+        }
+        // ChangeSet with index i + 3 belongs to i
+        assertEquals(23, changeStack.getCurrentIndex());
+        assertEquals(114, later.value());
+
+        changeStack.undo(14);
+        assertEquals(14, changeStack.getCurrentIndex());
+        assertEquals(11, integer.value());
+        assertEquals(11, list.size());
+        assertEquals(105, later.value());
+
+        changeStack.undo(4);
+        assertEquals(4, changeStack.getCurrentIndex());
+        assertEquals(1, integer.value());
+        assertEquals(1, list.size());
+
+        changeStack.redo(21);
+        assertEquals(21, changeStack.getCurrentIndex());
+        assertEquals(18, integer.value());
+        assertEquals(ImmutableList.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18), list.view());
+        assertEquals(112, later.value());
+
+        // a new ChangeSet invalidates the redo stack and its snapshots
+        changeStack.undo(10);
+        integer.set(50);
+        StateTestUtils.close(root);
+        assertFalse(changeStack.isRedoPossible());
+        changeStack.undo(5);
+        assertEquals(2, integer.value());
+        changeStack.redo(11);
+        assertEquals(50, integer.value());
+        assertEquals(7, list.size());
+        assertEquals(101, later.value());
+    }
+
+    @Test
+    public void testCompaction() {
+        IntegerState integer = IntegerState.create(root, "Integer", 5);
+        StateTestUtils.close(root);
+        long stored = changeStack.getStoredChanges();
+        for (int i = 1; i <= 10; i++) {
+            integer.add(i);
+        }
+        state.set(false);
+        state.set(true);
+        StateTestUtils.close(root);
+        // changes of integer combined into one, changes of state removed
+        assertEquals(stored + 1, changeStack.getStoredChanges());
+        assertEquals(1, changeStack.getClosedChangeSet().size());
+        assertEquals(60, integer.value());
+
+        changeStack.undo();
+        assertEquals(5, integer.value());
+        assertTrue(state.value());
+        changeStack.redo();
+        assertEquals(60, integer.value());
+    }
+
+    @Test
+    public void testCombineSameStateOnly() {
+        IntegerState first = IntegerState.create(root, "First");
+        IntegerState second = IntegerState.create(root, "Second");
+        Change change = new IntegerChange(first, 1);
+        assertNull(change.combine(new IntegerChange(second, 2)));
+        assertNull(change.combine(new BooleanChange(state, false)));
+        assertNotNull(change.combine(new IntegerChange(first, 3)));
+    }
+
+    @Test
+    public void testReplay() {
+        Observer observer = mock(Observer.class);
+        state.addObserver(observer);
+        changeStack.close(changeAction);
+
+        changeStack.setReplay(true);
+        state.set(false);
+        StateTestUtils.close(root);
+        state.set(true);
+        StateTestUtils.close(root);
+        changeStack.undo();
+        verify(observer, never()).update(anyString());
+
+        // one update at the end of the replay
+        changeStack.setReplay(false);
+        verify(observer, times(1)).update("false");
+    }
+
 }
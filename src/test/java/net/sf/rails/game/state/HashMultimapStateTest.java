@@ -184,6 +184,16 @@ public class HashMultimapStateTest {
         assertTestIterator(thirdItem);
     }
 
-    
-
+    @Test
+    public void testViewsCached() {
+        initState();
+        Set<Item> values = state.get(ITEM_A_ID);
+        assertSame(values, state.get(ITEM_A_ID));
+        assertSame(state.keySet(), state.keySet());
+        state.remove(ITEM_A_ID, itemA);
+        assertThat(values).containsOnly(itemA, itemB, itemC);
+        assertThat(state.get(ITEM_A_ID)).containsOnly(itemB, itemC);
+        StateTestUtils.closeAndUndo(root);
+        assertThat(state.get(ITEM_A_ID)).containsOnly(itemA, itemB, itemC);
+    }
 }
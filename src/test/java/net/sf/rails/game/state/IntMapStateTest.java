@@ -0,0 +1,96 @@
+package net.sf.rails.game.state;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class IntMapStateTest {
+
+    private final static String DEFAULT_ID = "Default";
+    private final static String INIT_ID = "Init";
+
+    private final static String FIRST_KEY = "First";
+    private final static String SECOND_KEY = "Second";
+
+    private Root root;
+
+    private IntMapState<String> stateDefault;
+    private IntMapState<String> stateInit;
+
+    @Before
+    public void setUp() {
+        root = StateTestUtils.setUpRoot();
+        stateDefault = IntMapState.create(root, DEFAULT_ID);
+        stateInit = IntMapState.create(root, INIT_ID, ImmutableMap.of(FIRST_KEY, 5));
+    }
+
+    @Test
+    public void testCreate() {
+        assertTrue(stateDefault.isEmpty());
+        assertEquals(ImmutableMap.of(FIRST_KEY, 5), stateInit.view());
+    }
+
+    @Test
+    public void testPutAndGet() {
+        assertEquals(0, stateDefault.get(FIRST_KEY));
+        assertFalse(stateDefault.containsKey(FIRST_KEY));
+        stateDefault.put(FIRST_KEY, 0);
+        assertTrue(stateDefault.containsKey(FIRST_KEY));
+        stateInit.put(FIRST_KEY, 3);
+        assertEquals(3, stateInit.get(FIRST_KEY));
+    }
+
+    @Test
+    public void testAdd() {
+        assertEquals(2, stateDefault.add(FIRST_KEY, 2));
+        assertEquals(-1, stateDefault.add(FIRST_KEY, -3));
+        assertEquals(7, stateInit.add(FIRST_KEY, 2));
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        assertFalse(stateDefault.remove(FIRST_KEY));
+        stateInit.put(SECOND_KEY, 1);
+        assertTrue(stateInit.remove(FIRST_KEY));
+        assertEquals(ImmutableMap.of(SECOND_KEY, 1), stateInit.view());
+        stateInit.clear();
+        assertTrue(stateInit.isEmpty());
+    }
+
+    @Test
+    public void testInitFromMap() {
+        stateInit.initFromMap(ImmutableMap.of(SECOND_KEY, 2));
+        assertEquals(ImmutableMap.of(SECOND_KEY, 2), stateInit.view());
+    }
+
+    @Test
+    public void testSetSameIgnored() {
+        stateInit.put(FIRST_KEY, 5);
+        StateTestUtils.close(root);
+        assertThat(StateTestUtils.getPreviousChangeSet(root).getStates()).doesNotContain(stateInit);
+    }
+
+    @Test
+    public void testUndoRedo() {
+        stateDefault.add(FIRST_KEY, 2);
+        stateInit.put(FIRST_KEY, 3);
+        stateInit.put(SECOND_KEY, 4);
+        stateInit.remove(FIRST_KEY);
+        StateTestUtils.close(root);
+        assertEquals(ImmutableMap.of(FIRST_KEY, 2), stateDefault.view());
+        assertEquals(ImmutableMap.of(SECOND_KEY, 4), stateInit.view());
+
+        StateTestUtils.undo(root);
+        assertTrue(stateDefault.isEmpty());
+        assertEquals(ImmutableMap.of(FIRST_KEY, 5), stateInit.view());
+
+        StateTestUtils.redo(root);
+        assertEquals(ImmutableMap.of(FIRST_KEY, 2), stateDefault.view());
+        assertEquals(ImmutableMap.of(SECOND_KEY, 4), stateInit.view());
+    }
+
+}
@@ -2,8 +2,10 @@ package net.sf.rails.game.state;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 import net.sf.rails.game.state.IntegerState;
+import net.sf.rails.game.state.Observer;
 import net.sf.rails.game.state.Root;
 
 import org.junit.Before;
@@ -85,4 +87,40 @@ public class IntegerStateTest {
         assertEquals(stateInit.value(), 0);
     }
 
+    @Test
+    public void testTextCached() {
+        stateInit.set(OTHER);
+        assertEquals(stateInit.getText(), String.valueOf(OTHER));
+        stateInit.add(INIT);
+        assertEquals(stateInit.getText(), String.valueOf(INIT + OTHER));
+        StateTestUtils.close(root);
+
+        StateTestUtils.undo(root);
+        assertEquals(stateInit.getText(), String.valueOf(INIT));
+    }
+
+    @Test
+    public void testUnchangedTextNotDelivered() {
+        Observer observer = mock(Observer.class);
+        stateInit.addObserver(observer);
+
+        stateInit.set(OTHER);
+        StateTestUtils.close(root);
+        verify(observer).update(String.valueOf(OTHER));
+
+        // value changes and returns to the same text within one ChangeSet
+        stateInit.add(INIT);
+        stateInit.add(-INIT);
+        StateTestUtils.close(root);
+        verify(observer, times(1)).update(anyString());
+
+        // a new observer receives the next text
+        Observer other = mock(Observer.class);
+        stateInit.addObserver(other);
+        StateTestUtils.undo(root);
+        StateTestUtils.undo(root);
+        verify(observer).update(String.valueOf(INIT));
+        verify(other).update(String.valueOf(INIT));
+    }
+
 }
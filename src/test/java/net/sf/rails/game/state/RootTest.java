@@ -65,6 +65,23 @@ public class RootTest {
         assertSame(Root.ID, root.getFullURI());
     }
 
+    @Test
+    public void testItemsDuringConstruction() {
+        // items created before the initial ChangeSet are not recorded as changes
+        ChangeStack changeStack = root.getStateManager().getChangeStack();
+        changeStack.close(new ChangeActionImpl());
+        assertEquals(0, changeStack.getClosedChangeSet().size());
+        
+        // afterwards item creation can be undone
+        Item later = new AbstractItemImpl(root, "later");
+        StateTestUtils.close(root);
+        assertSame(later, root.locate(later.getFullURI()));
+        StateTestUtils.undo(root);
+        assertNull(root.locate(later.getFullURI()));
+        StateTestUtils.redo(root);
+        assertSame(later, root.locate(later.getFullURI()));
+    }
+
     @Test
     public void testLocate() {
         // item is local
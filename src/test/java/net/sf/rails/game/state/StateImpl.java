@@ -26,4 +26,14 @@ class StateImpl extends State {
     public String toString() {
         return text;
     }
+
+    @Override
+    Object createSnapshot() {
+        return text;
+    }
+
+    @Override
+    void restoreSnapshot(Object snapshot) {
+        // text is immutable
+    }
 }
@@ -18,7 +18,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -101,6 +103,39 @@ public class StateManagerTest {
         assertThat(sm.getObservers(state)).doesNotContain(observer);
     }
 
+    @Test
+    public void testObserverAssignedOnce() {
+        sm.addObserver(observer, state);
+        try {
+            sm.addObserver(observer, model);
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        } catch (Exception e) {
+            assertThat(e).isInstanceOf(IllegalArgumentException.class);
+        }
+        // removal from the wrong observable fails
+        assertFalse(sm.removeObserver(observer, model));
+        assertTrue(sm.removeObserver(observer, state));
+        // after removal it can be assigned again
+        sm.addObserver(observer, model);
+        assertThat(sm.getObservers(model)).containsOnly(observer);
+        assertThat(sm.getObservers(state)).isEmpty();
+    }
+
+    @Test
+    public void testRemoveObserverDuringUpdate() {
+        final State observed = m_A1.getState();
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) {
+                sm.removeObserver(o_A1, m_A1);
+                return null;
+            }
+        }).when(o_A1).update(anyString());
+        sm.addObserver(observer, observed);
+        sm.updateObservers(ImmutableSet.of(observed));
+        verify(observer).update(anyString());
+        assertThat(sm.getObservers(m_A1)).doesNotContain(o_A1);
+    }
+
     @Test
     public void testAddModel() {
         sm.addModel(model, state);
@@ -179,6 +214,16 @@ public class StateManagerTest {
         verifyZeroInteractions(o_A2, o_A3, o_C3);
     }
 
+    @Test
+    public void testModelsToUpdateAfterAddModel() {
+        assertObservables(ImmutableList.of(m_C1), ImmutableSet.of(m_C1));
+        m_C1.addModel(m_C3);
+        assertObservables(ImmutableList.of(m_C1, m_C3), ImmutableSet.of(m_C1));
+        assertObservables(ImmutableList.of(m_B1, m_C1, m_C3), ImmutableSet.of(m_B1));
+        m_C1.removeModel(m_C3);
+        assertObservables(ImmutableList.of(m_B1, m_C1), ImmutableSet.of(m_B1));
+    }
+
     @Test
     public void testGetChangeStack() {
         assertNotNull(sm.getChangeStack());
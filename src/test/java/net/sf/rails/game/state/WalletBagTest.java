@@ -53,6 +53,16 @@ public class WalletBagTest {
         assertEquals(-AMOUNT, walletA.value());
         assertEquals(AMOUNT, walletB.value());
     }
-    
+
+    @Test
+    public void testMovesCompacted() {
+        long stored = root.getStateManager().getChangeStack().getStoredChanges();
+        item.move(ownerA, AMOUNT, ownerB);
+        item.move(ownerB, AMOUNT, ownerA);
+        StateTestUtils.close(root);
+        assertEquals(stored, root.getStateManager().getChangeStack().getStoredChanges());
+        assertEquals(0, walletA.value());
+        assertEquals(0, walletB.value());
+    }
     
 }
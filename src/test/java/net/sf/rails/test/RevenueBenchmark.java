@@ -0,0 +1,244 @@
+package net.sf.rails.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.rails.algorithms.RevenueAdapter;
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.OperatingRound;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.game.round.RoundFacade;
+import net.sf.rails.game.state.ChangeStack;
+import net.sf.rails.util.GameLoader;
+
+/**
+ * Headless benchmark of the revenue calculation on saved games
+ *
+ * Each game is loaded and then redone from its start. Whenever a company
+ * starts to operate in an operating round, the revenue calculation
+ * for that company is measured (after warmup runs).
+ *
+ * Usage: RevenueBenchmark [files or directories]
+ * Default is the directory real below the test save directory.
+ *
+ * System properties:
+ * benchmark.warmup = number of warmup runs (default 1)
+ * benchmark.iterations = number of measured runs (default 3)
+ * benchmark.threads = threads of the revenue calculator (default 1)
+ * benchmark.timeLimit = time limit of a calculation in milliseconds (default 0 = none)
+ * benchmark.maxEvaluations = evaluations limit of a calculation (default 0 = none)
+ * benchmark.reachPrediction = predictions use the stops within reach (default false)
+ * benchmark.runCache = maximum entries of the run cache (default 0 = none)
+ * benchmark.bitSets = use the bitset calculator (default false)
+ *
+ * Use a quiet logback configuration (-Dlogback.configurationFile), as
+ * logging otherwise dominates the results.
+ */
+public final class RevenueBenchmark {
+
+    private static final String REAL_GAMES = "real";
+
+    private final int warmup;
+    private final int iterations;
+    private final int threads;
+    private final long timeLimit;
+    private final long maxEvaluations;
+    private final boolean reachPrediction;
+    private final int runCache;
+    private final boolean bitSets;
+
+    // totals over all games
+    private int totalCalculations = 0;
+    private long totalEvaluations = 0;
+    private long totalPredictions = 0;
+    private long totalNanos = 0;
+    private int failedGames = 0;
+
+    private RevenueBenchmark(int warmup, int iterations, int threads, long timeLimit,
+            long maxEvaluations, boolean reachPrediction, int runCache, boolean bitSets) {
+        this.warmup = warmup;
+        this.iterations = iterations;
+        this.threads = threads;
+        this.timeLimit = timeLimit;
+        this.maxEvaluations = maxEvaluations;
+        this.reachPrediction = reachPrediction;
+        this.runCache = runCache;
+        this.bitSets = bitSets;
+    }
+
+    private void benchmarkGame(File gameFile) {
+        try {
+            replayGame(gameFile);
+        } catch (Exception e) {
+            // report the failure and continue with the next game
+            System.out.println(gameFile.getName() + " FAILED: " + e);
+            e.printStackTrace(System.out);
+            failedGames++;
+        } finally {
+            RailsRoot.clearInstance();
+        }
+    }
+
+    private void replayGame(File gameFile) {
+        GameLoader gameLoader = new GameLoader();
+        if (!gameLoader.createFromFile(gameFile)) {
+            System.out.println("Game " + gameFile.getName() + " loaded with exception: "
+                    + gameLoader.getException());
+        }
+        RailsRoot root = gameLoader.getRoot();
+        if (root == null) return;
+
+        int calculations = 0;
+        long evaluations = 0;
+        long predictions = 0;
+        long nanos = 0;
+
+        // replay the game using redo to stop at each operating company
+        ChangeStack changeStack = root.getStateManager().getChangeStack();
+        if (changeStack.isUndoPossible()) {
+            changeStack.undo(1);
+        }
+        RoundFacade lastRound = null;
+        PublicCompany lastCompany = null;
+        while (true) {
+            RoundFacade round = root.getGameManager().getCurrentRound();
+            if (round instanceof OperatingRound) {
+                PublicCompany company = ((OperatingRound)round).getOperatingCompany();
+                if (company != null && (round != lastRound || company != lastCompany)
+                        && !company.getPortfolioModel().getTrainList().isEmpty()) {
+                    Result result = benchmarkCompany(root, company);
+                    System.out.println(gameFile.getName() + " " + round.getId() + " " + result);
+                    calculations++;
+                    evaluations += result.evaluations;
+                    predictions += result.predictions;
+                    nanos += result.nanos;
+                }
+                lastCompany = company;
+            }
+            lastRound = round;
+            if (!changeStack.isRedoPossible()) break;
+            changeStack.redo();
+        }
+
+        System.out.println(gameFile.getName() + " TOTAL " + calculations + " calculations, "
+                + evaluations + " evaluations, " + predictions + " predictions, "
+                + formatMillis(nanos) + " ms");
+        totalCalculations += calculations;
+        totalEvaluations += evaluations;
+        totalPredictions += predictions;
+        totalNanos += nanos;
+    }
+
+    private Result benchmarkCompany(RailsRoot root, PublicCompany company) {
+        Result result = new Result(company);
+        for (int i = 0; i < warmup + iterations; i++) {
+            RevenueAdapter ra = RevenueAdapter.createRevenueAdapter(root, company,
+                    root.getPhaseManager().getCurrentPhase());
+            ra.setBitSetCalculator(bitSets);
+            ra.initRevenueCalculator(true, threads);
+            ra.setSearchLimits(timeLimit, maxEvaluations);
+            ra.setReachPrediction(reachPrediction);
+            ra.setRunCacheSize(runCache);
+            long start = System.nanoTime();
+            int revenue = ra.calculateRevenue();
+            long time = System.nanoTime() - start;
+            if (i < warmup) continue;
+            result.revenue = revenue;
+            result.evaluations = ra.getNumberOfEvaluations();
+            result.predictions = ra.getNumberOfPredictions();
+            result.prunes = ra.getStatistics().getPrunes();
+            result.optimal = ra.isOptimal();
+            result.cacheHits = ra.getStatistics().getCacheHits();
+            result.cacheMisses = ra.getStatistics().getCacheMisses();
+            result.times.add(time);
+        }
+        // use the median of the measured runs
+        Collections.sort(result.times);
+        result.nanos = result.times.get(result.times.size() / 2);
+        return result;
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.1f", nanos / 1000000.0);
+    }
+
+    private static final class Result {
+        private final PublicCompany company;
+        private final List<Long> times = new ArrayList<Long>();
+        private int revenue;
+        private int evaluations;
+        private int predictions;
+        private long prunes;
+        private boolean optimal;
+        private long cacheHits;
+        private long cacheMisses;
+        private long nanos;
+
+        private Result(PublicCompany company) {
+            this.company = company;
+        }
+
+        @Override
+        public String toString() {
+            return company.getId() + " revenue=" + revenue + " evaluations=" + evaluations
+                    + " predictions=" + predictions + " prunes=" + prunes
+                    + " cache=" + cacheHits + "/" + (cacheHits + cacheMisses)
+                    + (optimal ? "" : " (stopped)")
+                    + " time=" + formatMillis(nanos) + " ms"
+                    + " (min " + formatMillis(times.get(0))
+                    + ", max " + formatMillis(times.get(times.size() - 1)) + ")";
+        }
+    }
+
+    private static void addGameFiles(File file, List<File> gameFiles) {
+        if (file.isDirectory()) {
+            List<String> filenameList = Arrays.asList(file.list());
+            Collections.sort(filenameList);
+            for (String fn:filenameList) {
+                addGameFiles(new File(file, fn), gameFiles);
+            }
+        } else if (file.isFile() && file.getName().endsWith("." + Config.get("save.filename.extension"))) {
+            gameFiles.add(file);
+        }
+    }
+
+    public static void main(String[] args) {
+
+        ConfigManager.initConfiguration(true);
+
+        List<File> gameFiles = new ArrayList<File>();
+        if (args != null && args.length > 0) {
+            for (String arg:args) {
+                addGameFiles(new File(arg), gameFiles);
+            }
+        } else {
+            addGameFiles(new File(Config.get("save.directory"), REAL_GAMES), gameFiles);
+        }
+
+        RevenueBenchmark benchmark = new RevenueBenchmark(
+                Integer.getInteger("benchmark.warmup", 1),
+                Math.max(1, Integer.getInteger("benchmark.iterations", 3)),
+                Integer.getInteger("benchmark.threads", 1),
+                Long.getLong("benchmark.timeLimit", 0),
+                Long.getLong("benchmark.maxEvaluations", 0),
+                Boolean.getBoolean("benchmark.reachPrediction"),
+                Integer.getInteger("benchmark.runCache", 0),
+                Boolean.getBoolean("benchmark.bitSets"));
+        for (File gameFile:gameFiles) {
+            benchmark.benchmarkGame(gameFile);
+        }
+
+        System.out.println("TOTAL " + benchmark.totalCalculations + " calculations, "
+                + benchmark.totalEvaluations + " evaluations, "
+                + benchmark.totalPredictions + " predictions, "
+                + formatMillis(benchmark.totalNanos) + " ms"
+                + (benchmark.failedGames > 0 ? ", " + benchmark.failedGames + " games failed" : ""));
+        System.exit(0);
+    }
+
+}
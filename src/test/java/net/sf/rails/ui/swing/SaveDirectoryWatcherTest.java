@@ -0,0 +1,65 @@
+package net.sf.rails.ui.swing;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SaveDirectoryWatcherTest {
+
+    // watch services without native notifications poll the directory (e.g. every 10 seconds on Mac OS X)
+    private final static long CHANGE_TIMEOUT = 30000;
+
+    // changes of other files are ignored, thus waiting longer would only slow down the test
+    private final static long NO_CHANGE_TIMEOUT = 500;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private SaveDirectoryWatcher watcher;
+
+    @Before
+    public void setUp() {
+        watcher = SaveDirectoryWatcher.create(folder.getRoot().getPath());
+        assertNotNull(watcher);
+    }
+
+    @After
+    public void tearDown() {
+        watcher.close();
+    }
+
+    private void write(String filename, String content) throws Exception {
+        FileWriter out = new FileWriter(new File(folder.getRoot(), filename));
+        out.write(content);
+        out.close();
+    }
+
+    @Test
+    public void testChange() throws Exception {
+        write("1830.last_rails", "1830_20161017_Alice.rails");
+        assertTrue(watcher.awaitChange("1830", CHANGE_TIMEOUT, 50));
+        assertTrue(watcher.isValid());
+    }
+
+    @Test
+    public void testOtherFilesIgnored() throws Exception {
+        write("notes.txt", "no saved game");
+        assertFalse(watcher.awaitChange("1830", NO_CHANGE_TIMEOUT, 50));
+    }
+
+    @Test
+    public void testChangesCombined() throws Exception {
+        write("1830_20161017_Alice.rails", "game");
+        write("1830.last_rails", "1830_20161017_Alice.rails");
+        assertTrue(watcher.awaitChange("1830", CHANGE_TIMEOUT, 200));
+        // both changes were processed by the first call
+        assertFalse(watcher.awaitChange("1830", NO_CHANGE_TIMEOUT, 50));
+    }
+
+}
@@ -0,0 +1,117 @@
+package net.sf.rails.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.common.GameData;
+import net.sf.rails.game.RailsRoot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rails.game.action.PossibleAction;
+
+public class ActionJournalTest {
+
+    private final static String GAME_FILE = "real/1830_A.rails";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private GameData gameData;
+    private List<PossibleAction> actions;
+    private File baseFile;
+    private ActionJournal journal;
+
+    @BeforeClass
+    public static void setUpConfig() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() {
+        RailsRoot.clearInstance();
+        GameLoader gameLoader = new GameLoader();
+        assertTrue(gameLoader.createFromFile(new File(Config.get("save.directory"), GAME_FILE)));
+        gameData = gameLoader.getRoot().getGameData();
+        actions = gameLoader.getActions();
+
+        baseFile = new File(folder.getRoot(), "journal.rails");
+        journal = new ActionJournal(baseFile);
+    }
+
+    @After
+    public void tearDown() {
+        journal.close();
+        RailsRoot.clearInstance();
+    }
+
+    private GameLoader load() {
+        RailsRoot.clearInstance();
+        GameLoader gameLoader = new GameLoader();
+        assertTrue(gameLoader.createFromFile(baseFile));
+        return gameLoader;
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        journal.update(gameData, actions.subList(0, 50));
+        long baseLength = baseFile.length();
+        journal.update(gameData, actions.subList(0, 120));
+        journal.close();
+
+        // the base file is unchanged, the new actions are in the journal
+        assertEquals(baseLength, baseFile.length());
+        assertTrue(ActionJournal.getJournalFile(baseFile).exists());
+        assertEquals(120, load().getActions().size());
+    }
+
+    @Test
+    public void testIncompleteRecordIgnored() throws Exception {
+        journal.update(gameData, actions.subList(0, 50));
+        journal.update(gameData, actions.subList(0, 60));
+        journal.close();
+
+        RandomAccessFile file = new RandomAccessFile(ActionJournal.getJournalFile(baseFile), "rw");
+        file.setLength(file.length() - 5);
+        file.close();
+
+        assertEquals(59, load().getActions().size());
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        journal.update(gameData, actions.subList(0, 50));
+        journal.update(gameData, actions.subList(0, 60));
+        // removed actions (e.g. undo) require a compaction
+        journal.update(gameData, actions.subList(0, 55));
+        journal.update(gameData, actions.subList(0, 56));
+        journal.close();
+        assertEquals(56, load().getActions().size());
+
+        // compaction after the interval
+        journal.update(gameData, actions.subList(0, 57 + ActionJournal.COMPACTION_INTERVAL));
+        journal.close();
+        assertEquals(57 + ActionJournal.COMPACTION_INTERVAL, load().getActions().size());
+    }
+
+    @Test
+    public void testStaleJournalIgnored() throws Exception {
+        journal.update(gameData, actions.subList(0, 50));
+        journal.update(gameData, actions.subList(0, 60));
+        journal.close();
+
+        // base file replaced by another save
+        new GameSaver(gameData, actions.subList(0, 40)).saveGame(baseFile);
+        assertEquals(40, load().getActions().size());
+    }
+
+}
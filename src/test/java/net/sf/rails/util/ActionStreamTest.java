@@ -0,0 +1,116 @@
+package net.sf.rails.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.common.GameData;
+import net.sf.rails.game.RailsRoot;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rails.game.action.PossibleAction;
+
+import com.google.common.collect.Lists;
+
+public class ActionStreamTest {
+
+    private final static String GAME_FILE = "real/1830_A.rails";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpConfig() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    private GameLoader load(File file) {
+        RailsRoot.clearInstance();
+        GameLoader gameLoader = new GameLoader();
+        gameLoader.createFromFile(file);
+        return gameLoader;
+    }
+
+    private File save(String name, GameData gameData, List<PossibleAction> actions,
+            GameSaver.Format format) throws Exception {
+        File file = folder.newFile(name);
+        GameSaver gameSaver = new GameSaver(gameData, actions);
+        gameSaver.setFormat(format);
+        gameSaver.saveGame(file);
+        return file;
+    }
+
+    @Test
+    public void testInterruptedReplay() throws Exception {
+        GameLoader original = load(new File(Config.get("save.directory"), GAME_FILE));
+        assertNull(original.getException());
+
+        // remove an action, thus the replay of a later action fails
+        List<PossibleAction> actions = Lists.newArrayList(original.getActions());
+        actions.remove(100);
+        GameData gameData = original.getRoot().getGameData();
+        File binaryFile = save("binary.rails", gameData, actions, GameSaver.Format.BINARY);
+        File serializedFile = save("serialized.rails", gameData, actions, GameSaver.Format.SERIALIZED);
+
+        GameLoader serialized = load(serializedFile);
+        assertTrue(serialized.getException() instanceof RailsReplayException);
+
+        // streaming reports the same failing action and still reads all actions
+        GameLoader binary = load(binaryFile);
+        assertTrue(binary.getException() instanceof RailsReplayException);
+        assertEquals(serialized.getException().getMessage(), binary.getException().getMessage());
+        assertEquals(actions.size(), binary.getActions().size());
+    }
+
+    @Test
+    public void testCorruptAfterInterruptedReplay() throws Exception {
+        GameLoader original = load(new File(Config.get("save.directory"), GAME_FILE));
+        List<PossibleAction> actions = Lists.newArrayList(original.getActions());
+        actions.remove(100);
+        File binaryFile = save("corrupt.rails", original.getRoot().getGameData(), actions,
+                GameSaver.Format.BINARY);
+
+        // the last actions cannot be decoded anymore
+        byte[] garbage = new byte[500];
+        Arrays.fill(garbage, (byte)0x7F);
+        RandomAccessFile file = new RandomAccessFile(binaryFile, "rw");
+        try {
+            file.seek(file.length() - garbage.length);
+            file.write(garbage);
+        } finally {
+            file.close();
+        }
+
+        // the failure of the replay is kept, the actions before the corrupt part are read
+        GameLoader binary = load(binaryFile);
+        assertTrue(binary.getException() instanceof RailsReplayException);
+        assertTrue(binary.getActions().size() > 101);
+        assertTrue(binary.getActions().size() < actions.size());
+    }
+
+    @Test
+    public void testNoActions() throws Exception {
+        GameLoader original = load(new File(Config.get("save.directory"), GAME_FILE));
+        File file = save("empty.rails", original.getRoot().getGameData(),
+                Lists.<PossibleAction>newArrayList(), GameSaver.Format.BINARY);
+
+        GameLoader binary = load(file);
+        assertNull(binary.getException());
+        assertEquals(0, binary.getActions().size());
+    }
+
+}
@@ -0,0 +1,135 @@
+package net.sf.rails.util;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.RailsRoot;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+public class BinaryObjectFormatTest {
+
+    // games with different actions (e.g. mergers, destinations, loans, token exchanges)
+    private final static String[] GAME_FILES = {"real/1830_A.rails", "real/1835_KoIT3.rails",
+            "real/1856_A.rails", "real/1889_A.rails", "real/18AL_A.rails", "real/18EU_A.rails"};
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpConfig() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    private GameLoader load(File file) {
+        RailsRoot.clearInstance();
+        GameLoader gameLoader = new GameLoader();
+        assertTrue(file.getName(), gameLoader.createFromFile(file));
+        return gameLoader;
+    }
+
+    private static boolean isBinary(File file) throws Exception {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            return BinaryObjectFormat.isBinary(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static List<String> getReport(GameLoader gameLoader) {
+        return gameLoader.getRoot().getReportManager().getReportBuffer().getAsList();
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        Map<String, Integer> map = Maps.newLinkedHashMap();
+        map.put("PRR", 67);
+        map.put("B&O", -1);
+        List<Object> values = new ArrayList<Object>();
+        values.add(null);
+        values.add("M1");
+        values.add("M1");
+        values.add(Integer.MIN_VALUE);
+        values.add(Long.MAX_VALUE);
+        values.add(true);
+        values.add(2.5);
+        values.add(GameSaver.Format.SERIALIZED);
+        values.add(map);
+        values.add(ImmutableList.of("D", "4"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream oos = GameSaver.createObjectOutputStream(bytes, GameSaver.Format.BINARY);
+        for (Object value:values) {
+            oos.writeObject(value);
+        }
+        oos.close();
+
+        ObjectInputStream ois = GameLoader.createObjectInputStream(new GameLoader(),
+                new ByteArrayInputStream(bytes.toByteArray()));
+        assertTrue(ois instanceof BinaryObjectInputStream);
+        for (Object value:values) {
+            assertEquals(value, ois.readObject());
+        }
+        ois.close();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (String game:GAME_FILES) {
+            roundTrip(game);
+        }
+    }
+
+    private void roundTrip(String game) throws Exception {
+        GameLoader original = load(new File(Config.get("save.directory"), game));
+
+        File binaryFile = folder.newFile("binary_" + new File(game).getName());
+        GameSaver binarySaver = new GameSaver(original);
+        binarySaver.setFormat(GameSaver.Format.BINARY);
+        binarySaver.saveGame(binaryFile);
+
+        File serializedFile = folder.newFile("serialized_" + new File(game).getName());
+        GameSaver serializedSaver = new GameSaver(original);
+        serializedSaver.setFormat(GameSaver.Format.SERIALIZED);
+        serializedSaver.saveGame(serializedFile);
+
+        assertTrue(game, isBinary(binaryFile));
+        assertFalse(game, isBinary(serializedFile));
+        assertTrue(game, binaryFile.length() < serializedFile.length());
+
+        // both formats replay to the same game
+        GameLoader binary = load(binaryFile);
+        assertEquals(game, original.getActions().size(), binary.getActions().size());
+        assertEquals(game, getReport(original), getReport(binary));
+
+        GameLoader serialized = load(serializedFile);
+        assertEquals(game, original.getActions().size(), serialized.getActions().size());
+        assertEquals(game, getReport(original), getReport(serialized));
+    }
+
+}
@@ -0,0 +1,117 @@
+package net.sf.rails.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.RailsRoot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rails.game.action.PossibleAction;
+
+import com.google.common.collect.Lists;
+
+public class ReloadCursorTest {
+
+    private final static String GAME_FILE = "real/1830_A.rails";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private RailsRoot root;
+    private List<PossibleAction> actions;
+
+    @BeforeClass
+    public static void setUpConfig() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() {
+        RailsRoot.clearInstance();
+        GameLoader gameLoader = new GameLoader();
+        assertTrue(gameLoader.createFromFile(new File(Config.get("save.directory"), GAME_FILE)));
+        root = gameLoader.getRoot();
+        actions = gameLoader.getActions();
+    }
+
+    @After
+    public void tearDown() {
+        RailsRoot.clearInstance();
+    }
+
+    private File save(String name, List<PossibleAction> saved) throws Exception {
+        File file = folder.newFile(name);
+        GameSaver gameSaver = new GameSaver(root.getGameData(), saved);
+        gameSaver.setFormat(GameSaver.Format.BINARY);
+        gameSaver.saveGame(file);
+        return file;
+    }
+
+    private GameLoader convert(File file) throws Exception {
+        GameLoader gameLoader = new GameLoader(root);
+        gameLoader.loadGameData(file);
+        gameLoader.convertGameData();
+        return gameLoader;
+    }
+
+    @Test
+    public void testNewActionsOnly() throws Exception {
+        File first = save("first.rails", actions.subList(0, 400));
+        File second = save("second.rails", actions.subList(0, 600));
+        File third = save("third.rails", actions);
+
+        ReloadCursor cursor = convert(first).getReloadCursor();
+        assertEquals(400, cursor.getActionCount());
+
+        GameLoader gameLoader = new GameLoader(root);
+        gameLoader.loadGameData(second);
+        assertTrue(gameLoader.convertNewGameData(cursor));
+        assertEquals(400, gameLoader.getSkippedActions());
+        assertEquals(200, gameLoader.getActions().size());
+        for (int i = 0; i < 200; i++) {
+            assertTrue(actions.get(400 + i).equalsAsAction(gameLoader.getActions().get(i)));
+        }
+
+        // the cursor of an incremental convert continues as well
+        cursor = gameLoader.getReloadCursor();
+        assertEquals(600, cursor.getActionCount());
+        gameLoader = new GameLoader(root);
+        gameLoader.loadGameData(third);
+        assertTrue(gameLoader.convertNewGameData(cursor));
+        assertEquals(actions.size() - 600, gameLoader.getActions().size());
+        assertEquals(actions.size(), gameLoader.getReloadCursor().getActionCount());
+    }
+
+    @Test
+    public void testChangedActions() throws Exception {
+        File first = save("first.rails", actions.subList(0, 400));
+        List<PossibleAction> changed = Lists.newArrayList(actions);
+        changed.remove(100);
+        File second = save("second.rails", changed);
+
+        ReloadCursor cursor = convert(first).getReloadCursor();
+        GameLoader gameLoader = new GameLoader(root);
+        gameLoader.loadGameData(second);
+        assertFalse(gameLoader.convertNewGameData(cursor));
+    }
+
+    @Test
+    public void testNoCursorForSerializedFiles() throws Exception {
+        File file = folder.newFile("serialized.rails");
+        GameSaver gameSaver = new GameSaver(root.getGameData(), actions);
+        gameSaver.setFormat(GameSaver.Format.SERIALIZED);
+        gameSaver.saveGame(file);
+
+        assertNull(convert(file).getReloadCursor());
+    }
+
+}